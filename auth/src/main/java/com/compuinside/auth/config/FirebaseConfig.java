@@ -7,14 +7,21 @@ import com.google.firebase.FirebaseOptions;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.cloud.FirestoreClient;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.core.io.ClassPathResource;
 
 import java.io.IOException;
 
 @Configuration
+@RequiredArgsConstructor
 public class FirebaseConfig {
+
+    private final Environment environment;
+
     @PostConstruct
     public void initialize() throws IOException {
         if (FirebaseApp.getApps().isEmpty()) {
@@ -23,10 +30,14 @@ public class FirebaseConfig {
 
             var options = FirebaseOptions.builder()
                     .setCredentials(credentials)
-                    .setProjectId("proyecto-cparalela")
-                    .build();
+                    .setProjectId("proyecto-cparalela");
+
+            // Con spring.threads.virtual.enabled (Java 21+) las llamadas *Async del SDK también van en hilos virtuales
+            if (Threading.VIRTUAL.isActive(environment)) {
+                options.setThreadManager(new VirtualThreadManager());
+            }
 
-            FirebaseApp.initializeApp(options);
+            FirebaseApp.initializeApp(options.build());
         }
     }
 
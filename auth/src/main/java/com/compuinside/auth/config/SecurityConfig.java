@@ -1,6 +1,8 @@
 package com.compuinside.auth.config;
 
+import com.compuinside.auth.jwt.InternalIdentityFilter;
 import com.compuinside.auth.jwt.JwtAuthenticationFilter;
+import com.compuinside.auth.jwt.TokenRevocationService;
 import com.compuinside.auth.repository.Token;
 import com.compuinside.auth.repository.TokenRepository;
 import lombok.RequiredArgsConstructor;
@@ -8,6 +10,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -24,8 +27,10 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtA;
+    private final InternalIdentityFilter internalIdentityFilter;
     private final AuthenticationProvider authenticationProvider;
     private final TokenRepository tokenRepository;
+    private final TokenRevocationService revocationService;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -33,15 +38,22 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authRequest ->
                 authRequest
+                // El alta masiva crea cuentas en bloque: sólo administradores (identidad del gateway)
+                .requestMatchers(HttpMethod.POST, "/auth/register/bulk").hasAuthority("ADMIN")
                 .requestMatchers("/auth/**", "/v3/api-docs/**",
                         "/swagger-ui/**",
                         "/swagger-ui.html",
-                        "/internal/tokens/check").permitAll()
+                        "/internal/tokens/check",
+                        "/internal/tokens/check/batch",
+                        "/internal/tokens/revocations/**",
+                        // Sólo health es público; /actuator/metrics pide un token como el resto
+                        "/actuator/health").permitAll()
                 .anyRequest().authenticated()
         )
                 .sessionManagement(sessionManager ->
                     sessionManager.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider)
+                .addFilterBefore(internalIdentityFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(jwtA, UsernamePasswordAuthenticationFilter.class)
                 /*.logout(logout ->
                         logout.logoutUrl("/auth/logout")
@@ -64,9 +76,7 @@ public class SecurityConfig {
         final String jwtToken = token.substring(7);
         final Token foundToken = tokenRepository.findByToken(jwtToken).orElseThrow(() -> new IllegalArgumentException("Token not found"));
 
-        foundToken.setExpired(true);
-        foundToken.setRevoked(true);
-        tokenRepository.save(foundToken);
+        revocationService.revoke(foundToken);
         log.info("Usuario se desloguea exitosamente ");
     }
 
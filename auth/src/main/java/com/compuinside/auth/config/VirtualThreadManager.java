@@ -0,0 +1,34 @@
+package com.compuinside.auth.config;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.ThreadManager;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.core.task.support.ExecutorServiceAdapter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Hilos del Firebase Admin SDK en hilos virtuales: cada llamada {@code *Async}
+ * (y el refresco de credenciales) corre en su propio hilo virtual en lugar del
+ * pool de hilos de plataforma del SDK. Sólo se usa en Java 21+.
+ */
+class VirtualThreadManager extends ThreadManager {
+
+    private final VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("firebase-");
+
+    @Override
+    protected ExecutorService getExecutor(FirebaseApp app) {
+        return new ExecutorServiceAdapter(executor);
+    }
+
+    @Override
+    protected void releaseExecutor(FirebaseApp app, ExecutorService executorService) {
+        // Nada que cerrar: los hilos virtuales terminan con su tarea
+    }
+
+    @Override
+    protected ThreadFactory getThreadFactory() {
+        return executor.getVirtualThreadFactory();
+    }
+}
@@ -1,14 +1,18 @@
 package com.compuinside.auth.controller;
 
 
+import com.compuinside.auth.jwt.BulkRegistrationService;
 import com.compuinside.auth.jwt.FirebaseAuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.InputStream;
 import java.util.Map;
 
 @RestController
@@ -18,6 +22,7 @@ import java.util.Map;
 public class AuthController {
 
     private final FirebaseAuthService authService;
+    private final BulkRegistrationService bulkRegistrationService;
 
     @PostMapping("/register")
     @ResponseStatus(HttpStatus.CREATED)
@@ -26,6 +31,15 @@ public class AuthController {
         return authService.register(request);
     }
 
+    /** Alta masiva: un RegisterRequest por línea; responde un BulkRegisterResult por línea a medida que avanza. */
+    @PostMapping(path = "/register/bulk",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkRegisterResult> registerBulk(InputStream body) {
+        log.info("POST /auth/register/bulk");
+        return bulkRegistrationService.register(body);
+    }
+
     @PostMapping("/login")
     public Mono<AuthResponse> login(@Valid @RequestBody LoginRequest request) {
         log.info("POST /auth/login - Email: {}", request.getEmail());
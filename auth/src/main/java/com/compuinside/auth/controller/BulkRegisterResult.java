@@ -0,0 +1,23 @@
+package com.compuinside.auth.controller;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Resultado de una línea de POST /auth/register/bulk (una línea NDJSON por usuario). */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkRegisterResult {
+    /** Número de línea en el cuerpo, desde 1. */
+    private long line;
+    private String email;
+    private boolean success;
+    private String uid;
+    private String accountId;
+    private String error;
+}
@@ -1,19 +1,30 @@
 package com.compuinside.auth.controller;
 
+import com.compuinside.auth.dto.TokenRevocation;
 import com.compuinside.auth.jwt.JwtService;
+import com.compuinside.auth.jwt.TokenRevocationService;
 import com.compuinside.auth.repository.TokenRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/internal")
 @RequiredArgsConstructor
 public class JWTController {
     private final TokenRepository tokenRepository;
+    private final TokenRevocationService revocationService;
 
     @GetMapping("/tokens/check")
     public boolean checkToken(@RequestParam String token){
@@ -21,4 +32,25 @@ public class JWTController {
                 .filter(t -> !t.isExpired() && !t.isRevoked())
                 .isPresent();
     }
+
+    // Resuelve varios tokens con una sola consulta IN (lotes del gateway)
+    @PostMapping("/tokens/check/batch")
+    public Map<String, Boolean> checkTokens(@RequestBody List<String> tokens) {
+        Map<String, Boolean> result = new HashMap<>();
+        tokens.forEach(token -> result.put(token, false));
+        tokenRepository.findAllByTokenIn(result.keySet()).stream()
+                .filter(t -> !t.isExpired() && !t.isRevoked())
+                .forEach(t -> result.put(t.getToken(), true));
+        return result;
+    }
+
+    @GetMapping("/tokens/revocations")
+    public List<TokenRevocation> revocations() {
+        return revocationService.activeRevocations();
+    }
+
+    @GetMapping(path = "/tokens/revocations/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter revocationStream() {
+        return revocationService.subscribe();
+    }
 }
@@ -6,7 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class UserProfile {
@@ -28,4 +28,7 @@ public class UserProfile {
 
     @Builder.Default
     private String state = "ACTIVE";
+
+    /** Última escritura del perfil o del estado (no de lastLogin); la sigue FirebaseUserCache. */
+    private Long updatedAt;
 }
@@ -0,0 +1,17 @@
+package com.compuinside.auth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocation {
+    // SHA-256 (base64url sin padding) del token revocado; nunca se publica el token en claro
+    private String digest;
+    // Expiración del token en ms epoch: después de esto ya no hace falta recordarlo
+    private long expiresAt;
+}
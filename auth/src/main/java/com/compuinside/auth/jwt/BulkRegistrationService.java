@@ -0,0 +1,308 @@
+package com.compuinside.auth.jwt;
+
+import com.compuinside.auth.controller.BulkRegisterResult;
+import com.compuinside.auth.controller.RegisterRequest;
+import com.compuinside.auth.controller.UserProfile;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteResult;
+import com.google.firebase.auth.ErrorInfo;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.ImportUserRecord;
+import com.google.firebase.auth.UserImportOptions;
+import com.google.firebase.auth.UserImportResult;
+import com.google.firebase.auth.hash.Pbkdf2Sha256;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.compuinside.auth.support.ApiFutureMono.monoOf;
+import static com.compuinside.auth.support.ApiFutureMono.toMono;
+
+/**
+ * Alta masiva de usuarios a partir de NDJSON (un {@link RegisterRequest} por
+ * línea). En lugar de {@code createUser} + {@code set} por usuario, agrupa las
+ * líneas en lotes de {@code auth.bulk-register.chunk-size} (como mucho 1000,
+ * el máximo de {@link FirebaseAuth#importUsers}), importa cada lote en una sola
+ * llamada y escribe sus perfiles en {@code users} con un {@link BulkWriter}.
+ * Se procesan a la vez {@code auth.bulk-register.parallelism} lotes.
+ *
+ * <p>{@code importUsers} no acepta contraseñas en claro: se envían como
+ * PBKDF2-SHA256 con sal por usuario y Firebase las pasa a su scrypt en el
+ * primer login. Cada línea produce un {@link BulkRegisterResult} en cuanto
+ * termina su lote, así que el orden de salida es por lotes, no por línea. Si
+ * el perfil no se puede guardar, el usuario se borra de Firebase Auth para
+ * que la línea se pueda reintentar.
+ *
+ * <p>Todos los usuarios se crean con el rol {@value #DEFAULT_ROLE}; el
+ * {@code role} de las líneas se ignora para que un fichero no pueda crear
+ * administradores. Los cambios de rol van por su propio endpoint.
+ */
+@Service
+@Slf4j
+public class BulkRegistrationService {
+
+    static final int MAX_IMPORT_BATCH = 1000;
+    static final String DEFAULT_ROLE = "USER";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final FirebaseAuth firebaseAuth;
+    private final Firestore firestore;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int hashRounds;
+    private final SecureRandom random = new SecureRandom();
+
+    public BulkRegistrationService(FirebaseAuth firebaseAuth,
+                                   Firestore firestore,
+                                   Validator validator,
+                                   ObjectMapper objectMapper,
+                                   @Value("${auth.bulk-register.chunk-size:1000}") int chunkSize,
+                                   @Value("${auth.bulk-register.parallelism:4}") int parallelism,
+                                   @Value("${auth.bulk-register.hash-rounds:10000}") int hashRounds) {
+        this.firebaseAuth = firebaseAuth;
+        this.firestore = firestore;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, MAX_IMPORT_BATCH));
+        this.parallelism = Math.max(1, parallelism);
+        this.hashRounds = hashRounds;
+    }
+
+    /** Lee el NDJSON línea a línea (en boundedElastic, la lectura del cuerpo bloquea) y registra. */
+    public Flux<BulkRegisterResult> register(InputStream ndjson) {
+        Flux<String> lines = Flux.using(
+                () -> new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8)),
+                reader -> Flux.fromStream(reader.lines()),
+                BulkRegistrationService::closeQuietly
+        ).subscribeOn(Schedulers.boundedElastic());
+        return register(lines);
+    }
+
+    public Flux<BulkRegisterResult> register(Flux<String> lines) {
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        return lines.index()
+                .filter(line -> !line.getT2().isBlank())
+                .map(line -> parse(line.getT1() + 1, line.getT2()))
+                .buffer(chunkSize)
+                .flatMap(this::registerChunk, parallelism)
+                .doOnNext(result -> (result.isSuccess() ? succeeded : failed).incrementAndGet())
+                .doOnComplete(() -> log.info("📥 Alta masiva terminada: {} registrados, {} con error",
+                        succeeded.get(), failed.get()));
+    }
+
+    private Row parse(long line, String json) {
+        RegisterRequest request;
+        try {
+            request = objectMapper.readValue(json, RegisterRequest.class);
+        } catch (JsonProcessingException e) {
+            return new Row(line, null, "JSON inválido: " + e.getOriginalMessage());
+        }
+        String error = validator.validate(request).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+        return new Row(line, request, error.isEmpty() ? null : error);
+    }
+
+    private Flux<BulkRegisterResult> registerChunk(List<Row> chunk) {
+        List<BulkRegisterResult> rejected = new ArrayList<>();
+        List<Row> valid = new ArrayList<>();
+        for (Row row : chunk) {
+            if (row.error() != null) {
+                rejected.add(failure(row, null, row.error()));
+            } else {
+                valid.add(row);
+            }
+        }
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(rejected);
+        }
+
+        // PBKDF2 es CPU pura: fuera de los hilos de Firebase y de Tomcat
+        Flux<BulkRegisterResult> imported = Mono.fromCallable(() -> prepare(valid))
+                .subscribeOn(Schedulers.parallel())
+                .flatMapMany(users -> monoOf(() -> firebaseAuth.importUsersAsync(
+                                users.stream().map(Prepared::record).toList(),
+                                UserImportOptions.withHash(Pbkdf2Sha256.builder().setRounds(hashRounds).build())))
+                        .flatMapMany(result -> saveProfiles(users, result)))
+                .onErrorResume(e -> {
+                    log.error("Error importando lote de {} usuarios: {}", valid.size(), e.getMessage());
+                    return Flux.fromIterable(valid).map(row -> failure(row, null, "Error al importar: " + e.getMessage()));
+                });
+        return Flux.fromIterable(rejected).concatWith(imported);
+    }
+
+    private List<Prepared> prepare(List<Row> rows) throws GeneralSecurityException {
+        SecretKeyFactory pbkdf2 = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        List<Prepared> users = new ArrayList<>(rows.size());
+        long now = System.currentTimeMillis();
+        for (Row row : rows) {
+            RegisterRequest request = row.request();
+            String uid = UUID.randomUUID().toString().replace("-", "");
+            byte[] salt = new byte[SALT_BYTES];
+            random.nextBytes(salt);
+            byte[] hash = pbkdf2.generateSecret(new PBEKeySpec(request.getPassword().toCharArray(), salt,
+                    hashRounds, HASH_BITS)).getEncoded();
+
+            ImportUserRecord.Builder record = ImportUserRecord.builder()
+                    .setUid(uid)
+                    .setEmail(request.getEmail())
+                    .setEmailVerified(false)
+                    .setPasswordHash(hash)
+                    .setPasswordSalt(salt);
+            if (request.getDisplayName() != null && !request.getDisplayName().trim().isEmpty()) {
+                record.setDisplayName(request.getDisplayName());
+            }
+            if (request.getPhotoUrl() != null && !request.getPhotoUrl().trim().isEmpty()) {
+                record.setPhotoUrl(request.getPhotoUrl());
+            }
+
+            UserProfile profile = UserProfile.builder()
+                    .uid(uid)
+                    .email(request.getEmail())
+                    .displayName(request.getDisplayName())
+                    .photoUrl(request.getPhotoUrl())
+                    .role(DEFAULT_ROLE)
+                    .accountId(UUID.randomUUID().toString())
+                    .createdAt(now)
+                    .lastLogin(now)
+                    .state("ACTIVE")
+                    .updatedAt(now)
+                    .build();
+            users.add(new Prepared(row, record.build(), profile));
+        }
+        return users;
+    }
+
+    /** Perfiles de los importados con un BulkWriter; los que no se guardan se deshacen en Firebase Auth. */
+    private Flux<BulkRegisterResult> saveProfiles(List<Prepared> users, UserImportResult result) {
+        Map<Integer, String> importErrors = new HashMap<>();
+        for (ErrorInfo error : result.getErrors()) {
+            importErrors.put(error.getIndex(), error.getReason());
+        }
+
+        List<BulkRegisterResult> results = new ArrayList<>(users.size());
+        List<Prepared> imported = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            String reason = importErrors.get(i);
+            if (reason != null) {
+                results.add(failure(users.get(i).row(), null, reason));
+            } else {
+                imported.add(users.get(i));
+            }
+        }
+        if (imported.isEmpty()) {
+            return Flux.fromIterable(results);
+        }
+
+        BulkWriter writer = firestore.bulkWriter();
+        List<Mono<BulkRegisterResult>> writes = new ArrayList<>(imported.size());
+        for (Prepared user : imported) {
+            ApiFuture<WriteResult> write = writer.set(
+                    firestore.collection(FirebaseUserCache.USERS).document(user.profile().getUid()), user.profile());
+            writes.add(toMono(write)
+                    .thenReturn(BulkRegisterResult.builder()
+                            .line(user.row().line())
+                            .email(user.profile().getEmail())
+                            .success(true)
+                            .uid(user.profile().getUid())
+                            .accountId(user.profile().getAccountId())
+                            .build())
+                    .onErrorResume(e -> Mono.just(failure(user.row(), user.profile().getUid(),
+                            "Perfil no guardado: " + e.getMessage()))));
+        }
+
+        return monoOf(writer::flush)
+                .thenMany(Flux.concat(writes))
+                .doFinally(signal -> closeQuietly(writer))
+                .collectList()
+                .flatMapMany(written -> rollback(written)
+                        .thenMany(Flux.fromIterable(results).concatWith(Flux.fromIterable(written))));
+    }
+
+    /** Borra de Firebase Auth a los importados sin perfil y quita su uid del resultado. */
+    private Mono<Void> rollback(List<BulkRegisterResult> written) {
+        List<BulkRegisterResult> orphans = written.stream()
+                .filter(result -> !result.isSuccess() && result.getUid() != null)
+                .toList();
+        if (orphans.isEmpty()) {
+            return Mono.empty();
+        }
+        List<String> uids = orphans.stream().map(BulkRegisterResult::getUid).toList();
+        orphans.forEach(result -> result.setUid(null));
+        return monoOf(() -> firebaseAuth.deleteUsersAsync(uids))
+                .doOnNext(deleted -> log.warn("⚠️ {} usuarios importados sin perfil borrados de Firebase Auth",
+                        deleted.getSuccessCount()))
+                .onErrorResume(e -> {
+                    log.error("No se pudieron borrar {} usuarios sin perfil {}: {}", uids.size(), uids, e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static BulkRegisterResult failure(Row row, String uid, String error) {
+        return BulkRegisterResult.builder()
+                .line(row.line())
+                .email(row.request() != null ? row.request().getEmail() : null)
+                .success(false)
+                .uid(uid)
+                .error(error)
+                .build();
+    }
+
+    private static void closeQuietly(BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.debug("Error cerrando el cuerpo NDJSON: {}", e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(BulkWriter writer) {
+        try {
+            // Tras flush no queda nada pendiente: close no espera
+            writer.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("⚠️ Error cerrando BulkWriter de alta masiva: {}", e.getMessage());
+        }
+    }
+
+    /** Línea del NDJSON; {@code error} si no se pudo leer o no pasa la validación. */
+    private record Row(long line, RegisterRequest request, String error) {
+    }
+
+    private record Prepared(Row row, ImportUserRecord record, UserProfile profile) {
+    }
+}
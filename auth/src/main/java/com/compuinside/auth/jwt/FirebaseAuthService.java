@@ -4,20 +4,25 @@ import com.compuinside.auth.controller.*;
 import com.google.cloud.firestore.Firestore;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.FirebaseToken;
 import com.google.firebase.auth.UserRecord;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ExecutionException;
 
+import static com.compuinside.auth.support.ApiFutureMono.monoOf;
+
+/**
+ * Operaciones de usuario sobre Firebase Auth y Firestore. Todas las llamadas
+ * van por {@link com.compuinside.auth.support.ApiFutureMono}: ningún hilo se
+ * queda esperando la respuesta de Firestore o de Firebase Auth.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -25,157 +30,137 @@ public class FirebaseAuthService {
 
     private final FirebaseAuth firebaseAuth;
     private final Firestore firestore;
+    private final FirebaseUserCache userCache;
+    private final LastLoginWriter lastLoginWriter;
 
     public Mono<AuthResponse> register(RegisterRequest request) {
-        return Mono.fromCallable(() -> {
-            try {
-                log.info("Registrando usuario: {}", request.getEmail());
-
-                UserRecord.CreateRequest userRequest = new UserRecord.CreateRequest()
-                        .setEmail(request.getEmail())
-                        .setPassword(request.getPassword())
-                        .setEmailVerified(false);
-
-                if (request.getDisplayName() != null && !request.getDisplayName().trim().isEmpty()) {
-                    userRequest.setDisplayName(request.getDisplayName());
-                }
-
-                if (request.getPhotoUrl() != null && !request.getPhotoUrl().trim().isEmpty()) {
-                    userRequest.setPhotoUrl(request.getPhotoUrl());
-                }
-
-                UserRecord userRecord = firebaseAuth.createUser(userRequest);
-                log.info("Usuario creado en Firebase Auth: {}", userRecord.getUid());
-
-                UserProfile userProfile = UserProfile.builder()
-                        .uid(userRecord.getUid())
-                        .email(userRecord.getEmail())
-                        .displayName(request.getDisplayName())
-                        .photoUrl(request.getPhotoUrl())
-                        .role(request.getRole() != null ? request.getRole() : "USER")
-                        .accountId(UUID.randomUUID().toString())
-                        .createdAt(System.currentTimeMillis())
-                        .lastLogin(System.currentTimeMillis())
-                        .state("ACTIVE")
-                        .build();
-
-                firestore.collection("users")
-                        .document(userRecord.getUid())
-                        .set(userProfile)
-                        .get();
+        return Mono.defer(() -> {
+            log.info("Registrando usuario: {}", request.getEmail());
 
-                log.info("Perfil guardado en Firestore: {}", userRecord.getUid());
+            UserRecord.CreateRequest userRequest = new UserRecord.CreateRequest()
+                    .setEmail(request.getEmail())
+                    .setPassword(request.getPassword())
+                    .setEmailVerified(false);
 
-                String customToken = firebaseAuth.createCustomToken(userRecord.getUid());
-
-                return AuthResponse.builder()
-                        .success(true)
-                        .message("Usuario registrado exitosamente")
-                        .data(AuthData.builder()
-                                .uid(userRecord.getUid())
-                                .email(userRecord.getEmail())
-                                .displayName(userRecord.getDisplayName())
-                                .photoUrl(userRecord.getPhotoUrl())
-                                .customToken(customToken)
-                                .role(userProfile.getRole())
-                                .accountId(userProfile.getAccountId())
-                                .build())
-                        .build();
+            if (request.getDisplayName() != null && !request.getDisplayName().trim().isEmpty()) {
+                userRequest.setDisplayName(request.getDisplayName());
+            }
 
-            } catch (FirebaseAuthException e) {
-                log.error("Error registrando usuario: {}", e.getMessage());
-                String errorMessage = getAuthErrorMessage(e);
-                return AuthResponse.builder()
-                        .success(false)
-                        .error(errorMessage)
-                        .build();
-            } catch (Exception e) {
-                log.error("Error inesperado: {}", e.getMessage(), e);
-                return AuthResponse.builder()
-                        .success(false)
-                        .error("Error al registrar usuario: " + e.getMessage())
-                        .build();
+            if (request.getPhotoUrl() != null && !request.getPhotoUrl().trim().isEmpty()) {
+                userRequest.setPhotoUrl(request.getPhotoUrl());
             }
-        }).subscribeOn(Schedulers.boundedElastic());
+
+            return monoOf(() -> firebaseAuth.createUserAsync(userRequest));
+        }).flatMap(userRecord -> {
+            log.info("Usuario creado en Firebase Auth: {}", userRecord.getUid());
+
+            UserProfile userProfile = UserProfile.builder()
+                    .uid(userRecord.getUid())
+                    .email(userRecord.getEmail())
+                    .displayName(request.getDisplayName())
+                    .photoUrl(request.getPhotoUrl())
+                    .role(request.getRole() != null ? request.getRole() : "USER")
+                    .accountId(UUID.randomUUID().toString())
+                    .createdAt(System.currentTimeMillis())
+                    .lastLogin(System.currentTimeMillis())
+                    .state("ACTIVE")
+                    .build();
+
+            return monoOf(() -> firestore.collection("users")
+                    .document(userRecord.getUid())
+                    .set(userProfile))
+                    .doOnNext(result -> log.info("Perfil guardado en Firestore: {}", userRecord.getUid()))
+                    .then(monoOf(() -> firebaseAuth.createCustomTokenAsync(userRecord.getUid())))
+                    .map(customToken -> AuthResponse.builder()
+                            .success(true)
+                            .message("Usuario registrado exitosamente")
+                            .data(AuthData.builder()
+                                    .uid(userRecord.getUid())
+                                    .email(userRecord.getEmail())
+                                    .displayName(userRecord.getDisplayName())
+                                    .photoUrl(userRecord.getPhotoUrl())
+                                    .customToken(customToken)
+                                    .role(userProfile.getRole())
+                                    .accountId(userProfile.getAccountId())
+                                    .build())
+                            .build());
+        }).onErrorResume(FirebaseAuthException.class, e -> {
+            log.error("Error registrando usuario: {}", e.getMessage());
+            String errorMessage = getAuthErrorMessage(e);
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error(errorMessage)
+                    .build());
+        }).onErrorResume(e -> {
+            log.error("Error inesperado: {}", e.getMessage(), e);
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Error al registrar usuario: " + e.getMessage())
+                    .build());
+        });
     }
 
     public Mono<AuthResponse> login(LoginRequest request) {
-        return Mono.fromCallable(() -> {
-            try {
-                log.info("Login de usuario: {}", request.getEmail());
-
-                UserRecord userRecord = firebaseAuth.getUserByEmail(request.getEmail());
-
-                if (userRecord.isDisabled()) {
-                    return AuthResponse.builder()
-                            .success(false)
-                            .error("Usuario deshabilitado")
-                            .build();
-                }
-
-                String customToken = firebaseAuth.createCustomToken(userRecord.getUid());
-
-                Map<String, Object> updates = new HashMap<>();
-                updates.put("lastLogin", System.currentTimeMillis());
-
-                firestore.collection("users")
-                        .document(userRecord.getUid())
-                        .update(updates)
-                        .get();
-
-                // Obtener perfil extendido
-                UserProfile profile = firestore.collection("users")
-                        .document(userRecord.getUid())
-                        .get()
-                        .get()
-                        .toObject(UserProfile.class);
-
-                log.info("Login exitoso para: {}", userRecord.getUid());
-
-                return AuthResponse.builder()
-                        .success(true)
-                        .message("Login exitoso")
-                        .data(AuthData.builder()
-                                .uid(userRecord.getUid())
-                                .email(userRecord.getEmail())
-                                .displayName(userRecord.getDisplayName())
-                                .photoUrl(userRecord.getPhotoUrl())
-                                .customToken(customToken)
-                                .role(profile != null ? profile.getRole() : null)
-                                .accountId(profile != null ? profile.getAccountId() : null)
-                                .build())
-                        .build();
-
-            } catch (FirebaseAuthException e) {
-                log.error("Error en login: {}", e.getMessage());
-                return AuthResponse.builder()
-                        .success(false)
-                        .error("Credenciales inválidas o usuario no existe")
-                        .build();
-            } catch (Exception e) {
-                log.error("Error inesperado en login: {}", e.getMessage(), e);
-                return AuthResponse.builder()
+        return Mono.defer(() -> {
+            log.info("Login de usuario: {}", request.getEmail());
+            return userCache.getUserByEmail(request.getEmail());
+        }).flatMap(userRecord -> {
+            if (userRecord.isDisabled()) {
+                return Mono.just(AuthResponse.builder()
                         .success(false)
-                        .error("Error al procesar login: " + e.getMessage())
-                        .build();
+                        .error("Usuario deshabilitado")
+                        .build());
             }
-        }).subscribeOn(Schedulers.boundedElastic());
+
+            return monoOf(() -> firebaseAuth.createCustomTokenAsync(userRecord.getUid()))
+                    .flatMap(customToken -> {
+                        // lastLogin se escribe en diferido (LastLoginWriter), fuera del camino del login
+                        long lastLogin = System.currentTimeMillis();
+                        lastLoginWriter.record(userRecord.getUid(), lastLogin);
+                        userCache.updateLastLogin(userRecord.getUid(), lastLogin);
+
+                        // Obtener perfil extendido
+                        return profile(userRecord.getUid()).map(profile -> {
+                            log.info("Login exitoso para: {}", userRecord.getUid());
+
+                            return AuthResponse.builder()
+                                    .success(true)
+                                    .message("Login exitoso")
+                                    .data(AuthData.builder()
+                                            .uid(userRecord.getUid())
+                                            .email(userRecord.getEmail())
+                                            .displayName(userRecord.getDisplayName())
+                                            .photoUrl(userRecord.getPhotoUrl())
+                                            .customToken(customToken)
+                                            .role(profile.map(UserProfile::getRole).orElse(null))
+                                            .accountId(profile.map(UserProfile::getAccountId).orElse(null))
+                                            .build())
+                                    .build();
+                        });
+                    });
+        }).onErrorResume(FirebaseAuthException.class, e -> {
+            log.error("Error en login: {}", e.getMessage());
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Credenciales inválidas o usuario no existe")
+                    .build());
+        }).onErrorResume(e -> {
+            log.error("Error inesperado en login: {}", e.getMessage(), e);
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Error al procesar login: " + e.getMessage())
+                    .build());
+        });
     }
 
     public Mono<AuthResponse> verifyToken(String token) {
-        return Mono.fromCallable(() -> {
-            try {
-                log.info("Verificando token");
-
-                FirebaseToken decodedToken = firebaseAuth.verifyIdToken(token);
-                String uid = decodedToken.getUid();
-
-                UserProfile profile = firestore.collection("users")
-                        .document(uid)
-                        .get()
-                        .get()
-                        .toObject(UserProfile.class);
+        return Mono.defer(() -> {
+            log.info("Verificando token");
+            return monoOf(() -> firebaseAuth.verifyIdTokenAsync(token));
+        }).flatMap(decodedToken -> {
+            String uid = decodedToken.getUid();
 
+            return profile(uid).map(profile -> {
                 log.info("Token válido para: {}", uid);
 
                 return AuthResponse.builder()
@@ -186,219 +171,207 @@ public class FirebaseAuthService {
                                 .email(decodedToken.getEmail())
                                 .displayName(decodedToken.getName())
                                 .photoUrl(decodedToken.getPicture())
-                                .role(profile != null ? profile.getRole() : null)
-                                .accountId(profile != null ? profile.getAccountId() : null)
+                                .role(profile.map(UserProfile::getRole).orElse(null))
+                                .accountId(profile.map(UserProfile::getAccountId).orElse(null))
                                 .build())
                         .build();
-
-            } catch (FirebaseAuthException e) {
-                log.error("Token inválido: {}", e.getMessage());
-                return AuthResponse.builder()
-                        .success(false)
-                        .error("Token inválido o expirado")
-                        .build();
-            } catch (Exception e) {
-                log.error("Error verificando token: {}", e.getMessage(), e);
-                return AuthResponse.builder()
-                        .success(false)
-                        .error("Error al verificar token: " + e.getMessage())
-                        .build();
-            }
-        }).subscribeOn(Schedulers.boundedElastic());
+            });
+        }).onErrorResume(FirebaseAuthException.class, e -> {
+            log.error("Token inválido: {}", e.getMessage());
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Token inválido o expirado")
+                    .build());
+        }).onErrorResume(e -> {
+            log.error("Error verificando token: {}", e.getMessage(), e);
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Error al verificar token: " + e.getMessage())
+                    .build());
+        });
     }
 
 
     public Mono<UserProfile> getUserProfile(String uid) {
-        return Mono.fromCallable(() -> {
-            try {
-                log.info("Obteniendo perfil: {}", uid);
-
-                UserProfile profile = firestore.collection("users")
-                        .document(uid)
-                        .get()
-                        .get()
-                        .toObject(UserProfile.class);
-
-                return profile;
-            } catch (InterruptedException | ExecutionException e) {
-                log.error("Error obteniendo perfil: {}", e.getMessage(), e);
-                throw new RuntimeException("Error al obtener perfil", e);
+        return Mono.defer(() -> {
+            log.info("Obteniendo perfil: {}", uid);
+            return userCache.getProfile(uid);
+        }).map(profile -> {
+            Long lastLogin = lastLoginWriter.pending(uid);
+            if (lastLogin != null && (profile.getLastLogin() == null || lastLogin > profile.getLastLogin())) {
+                return profile.toBuilder().lastLogin(lastLogin).build();
             }
-        }).subscribeOn(Schedulers.boundedElastic());
+            return profile;
+        }).onErrorMap(e -> {
+            log.error("Error obteniendo perfil: {}", e.getMessage(), e);
+            return new RuntimeException("Error al obtener perfil", e);
+        });
     }
 
     public Mono<AuthResponse> updateUserProfile(String uid, Map<String, Object> updates) {
-        return Mono.fromCallable(() -> {
-            try {
-                log.info("Actualizando perfil: {}", uid);
-
-                firestore.collection("users")
-                        .document(uid)
-                        .update(updates)
-                        .get();
+        return Mono.defer(() -> {
+            log.info("Actualizando perfil: {}", uid);
 
-                if (updates.containsKey("email") || updates.containsKey("displayName")) {
-                    UserRecord.UpdateRequest authUpdate = new UserRecord.UpdateRequest(uid);
+            Map<String, Object> profileUpdates = new HashMap<>(updates);
+            profileUpdates.put(FirebaseUserCache.UPDATED_AT, System.currentTimeMillis());
 
-                    if (updates.containsKey("email")) {
-                        authUpdate.setEmail((String) updates.get("email"));
-                    }
-                    if (updates.containsKey("displayName")) {
-                        authUpdate.setDisplayName((String) updates.get("displayName"));
-                    }
+            Mono<UserRecord> authUpdate = Mono.empty();
+            if (updates.containsKey("email") || updates.containsKey("displayName")) {
+                UserRecord.UpdateRequest request = new UserRecord.UpdateRequest(uid);
 
-                    firebaseAuth.updateUser(authUpdate);
+                if (updates.containsKey("email")) {
+                    request.setEmail((String) updates.get("email"));
+                }
+                if (updates.containsKey("displayName")) {
+                    request.setDisplayName((String) updates.get("displayName"));
                 }
 
-                log.info("Perfil actualizado: {}", uid);
-
-                return AuthResponse.builder()
-                        .success(true)
-                        .message("Perfil actualizado exitosamente")
-                        .build();
-
-            } catch (Exception e) {
-                log.error("Error actualizando perfil: {}", e.getMessage(), e);
-                return AuthResponse.builder()
-                        .success(false)
-                        .error("Error actualizando perfil: " + e.getMessage())
-                        .build();
+                authUpdate = monoOf(() -> firebaseAuth.updateUserAsync(request));
             }
-        }).subscribeOn(Schedulers.boundedElastic());
+
+            return monoOf(() -> firestore.collection("users")
+                    .document(uid)
+                    .update(profileUpdates))
+                    .then(authUpdate)
+                    .then(Mono.fromRunnable(() -> userCache.invalidate(uid)));
+        }).then(Mono.fromCallable(() -> {
+            log.info("Perfil actualizado: {}", uid);
+
+            return AuthResponse.builder()
+                    .success(true)
+                    .message("Perfil actualizado exitosamente")
+                    .build();
+        })).onErrorResume(e -> {
+            log.error("Error actualizando perfil: {}", e.getMessage(), e);
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Error actualizando perfil: " + e.getMessage())
+                    .build());
+        });
     }
 
     public Mono<AuthResponse> deleteUser(String uid) {
-        return Mono.fromCallable(() -> {
-            try {
-                log.info("Eliminando usuario: {}", uid);
-
-                // Eliminar de Firebase Auth
-                firebaseAuth.deleteUser(uid);
-
-                // Eliminar perfil de Firestore
-                firestore.collection("users")
+        return Mono.defer(() -> {
+            log.info("Eliminando usuario: {}", uid);
+
+            // Eliminar de Firebase Auth
+            return monoOf(() -> firebaseAuth.deleteUserAsync(uid));
+        }).then(
+                // Lápida en lugar de borrar el perfil: el listener de FirebaseUserCache la lleva a todas las instancias
+                monoOf(() -> firestore.collection("users")
                         .document(uid)
-                        .delete()
-                        .get();
-
-                log.info("Usuario eliminado: {}", uid);
-
-                return AuthResponse.builder()
-                        .success(true)
-                        .message("Usuario eliminado exitosamente")
-                        .build();
-
-            } catch (FirebaseAuthException e) {
-                log.error("Error eliminando usuario: {}", e.getMessage());
-                return AuthResponse.builder()
-                        .success(false)
-                        .error("Error eliminando usuario: " + e.getMessage())
-                        .build();
-            } catch (Exception e) {
-                log.error("Error inesperado eliminando usuario: {}", e.getMessage(), e);
-                return AuthResponse.builder()
-                        .success(false)
-                        .error("Error al eliminar usuario: " + e.getMessage())
-                        .build();
-            }
-        }).subscribeOn(Schedulers.boundedElastic());
+                        .set(tombstone(uid)))
+        ).then(Mono.fromCallable(() -> {
+            userCache.invalidate(uid);
+            log.info("Usuario eliminado: {}", uid);
+
+            return AuthResponse.builder()
+                    .success(true)
+                    .message("Usuario eliminado exitosamente")
+                    .build();
+        })).onErrorResume(FirebaseAuthException.class, e -> {
+            log.error("Error eliminando usuario: {}", e.getMessage());
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Error eliminando usuario: " + e.getMessage())
+                    .build());
+        }).onErrorResume(e -> {
+            log.error("Error inesperado eliminando usuario: {}", e.getMessage(), e);
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Error al eliminar usuario: " + e.getMessage())
+                    .build());
+        });
     }
 
 
     public Mono<AuthResponse> disableUser(String uid) {
-        return Mono.fromCallable(() -> {
-            try {
-                log.info("Deshabilitando usuario: {}", uid);
-
-                UserRecord.UpdateRequest request = new UserRecord.UpdateRequest(uid)
-                        .setDisabled(true);
-
-                firebaseAuth.updateUser(request);
-
-                Map<String, Object> updates = new HashMap<>();
-                updates.put("state", "DISABLED");
-
-                firestore.collection("users")
-                        .document(uid)
-                        .update(updates)
-                        .get();
-
-                log.info("Usuario deshabilitado: {}", uid);
-
-                return AuthResponse.builder()
-                        .success(true)
-                        .message("Usuario deshabilitado exitosamente")
-                        .build();
-
-            } catch (Exception e) {
-                log.error("Error deshabilitando usuario: {}", e.getMessage(), e);
-                return AuthResponse.builder()
-                        .success(false)
-                        .error("Error al deshabilitar usuario: " + e.getMessage())
-                        .build();
-            }
-        }).subscribeOn(Schedulers.boundedElastic());
+        return Mono.defer(() -> {
+            log.info("Deshabilitando usuario: {}", uid);
+            return setState(uid, true, "DISABLED");
+        }).then(Mono.fromCallable(() -> {
+            log.info("Usuario deshabilitado: {}", uid);
+
+            return AuthResponse.builder()
+                    .success(true)
+                    .message("Usuario deshabilitado exitosamente")
+                    .build();
+        })).onErrorResume(e -> {
+            log.error("Error deshabilitando usuario: {}", e.getMessage(), e);
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Error al deshabilitar usuario: " + e.getMessage())
+                    .build());
+        });
     }
 
     public Mono<AuthResponse> enableUser(String uid) {
-        return Mono.fromCallable(() -> {
-            try {
-                log.info("Habilitando usuario: {}", uid);
-
-                UserRecord.UpdateRequest request = new UserRecord.UpdateRequest(uid)
-                        .setDisabled(false);
-
-                firebaseAuth.updateUser(request);
-
-                // Actualizar estado en Firestore
-                Map<String, Object> updates = new HashMap<>();
-                updates.put("state", "ACTIVE");
-
-                firestore.collection("users")
-                        .document(uid)
-                        .update(updates)
-                        .get();
-
-                log.info("Usuario habilitado: {}", uid);
-
-                return AuthResponse.builder()
-                        .success(true)
-                        .message("Usuario habilitado exitosamente")
-                        .build();
-
-            } catch (Exception e) {
-                log.error("Error habilitando usuario: {}", e.getMessage(), e);
-                return AuthResponse.builder()
-                        .success(false)
-                        .error("Error al habilitar usuario: " + e.getMessage())
-                        .build();
-            }
-        }).subscribeOn(Schedulers.boundedElastic());
+        return Mono.defer(() -> {
+            log.info("Habilitando usuario: {}", uid);
+            return setState(uid, false, "ACTIVE");
+        }).then(Mono.fromCallable(() -> {
+            log.info("Usuario habilitado: {}", uid);
+
+            return AuthResponse.builder()
+                    .success(true)
+                    .message("Usuario habilitado exitosamente")
+                    .build();
+        })).onErrorResume(e -> {
+            log.error("Error habilitando usuario: {}", e.getMessage(), e);
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Error al habilitar usuario: " + e.getMessage())
+                    .build());
+        });
     }
 
     public Mono<AuthResponse> sendEmailVerification(String email) {
-        return Mono.fromCallable(() -> {
-            try {
-                log.info("Enviando email de verificación a: {}", email);
-
-                UserRecord userRecord = firebaseAuth.getUserByEmail(email);
-
+        return Mono.defer(() -> {
+            log.info("Enviando email de verificación a: {}", email);
+            return monoOf(() -> firebaseAuth.getUserByEmailAsync(email));
+        }).map(userRecord ->
                 // Firebase Admin SDK no envía emails directamente
                 // Esto debe manejarse desde el cliente (Flutter)
-
-                return AuthResponse.builder()
+                AuthResponse.builder()
                         .success(true)
                         .message("Instrucciones enviadas. Verifica desde la app móvil.")
-                        .build();
+                        .build()
+        ).onErrorResume(e -> {
+            log.error("Error enviando email de verificación: {}", e.getMessage());
+            return Mono.just(AuthResponse.builder()
+                    .success(false)
+                    .error("Error al enviar email de verificación")
+                    .build());
+        });
+    }
 
-            } catch (Exception e) {
-                log.error("Error enviando email de verificación: {}", e.getMessage());
-                return AuthResponse.builder()
-                        .success(false)
-                        .error("Error al enviar email de verificación")
-                        .build();
-            }
-        }).subscribeOn(Schedulers.boundedElastic());
+    /** Perfil desde el cache; vacío como {@link Optional#empty()} para no cortar la respuesta. */
+    private Mono<Optional<UserProfile>> profile(String uid) {
+        return userCache.getProfile(uid).map(Optional::of).defaultIfEmpty(Optional.empty());
+    }
+
+    private static Map<String, Object> tombstone(String uid) {
+        Map<String, Object> tombstone = new HashMap<>();
+        tombstone.put("uid", uid);
+        tombstone.put(FirebaseUserCache.STATE, FirebaseUserCache.DELETED);
+        tombstone.put(FirebaseUserCache.UPDATED_AT, System.currentTimeMillis());
+        return tombstone;
+    }
+
+    /** Deshabilita o habilita en Firebase Auth y deja el estado en Firestore. */
+    private Mono<Void> setState(String uid, boolean disabled, String state) {
+        UserRecord.UpdateRequest request = new UserRecord.UpdateRequest(uid)
+                .setDisabled(disabled);
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("state", state);
+        updates.put(FirebaseUserCache.UPDATED_AT, System.currentTimeMillis());
+
+        return monoOf(() -> firebaseAuth.updateUserAsync(request))
+                .then(monoOf(() -> firestore.collection("users")
+                        .document(uid)
+                        .update(updates)))
+                .then(Mono.fromRunnable(() -> userCache.invalidate(uid)));
     }
 
     private String getAuthErrorMessage(FirebaseAuthException e) {
@@ -0,0 +1,256 @@
+package com.compuinside.auth.jwt;
+
+import com.compuinside.auth.controller.UserProfile;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.UserRecord;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.compuinside.auth.support.ApiFutureMono.monoOf;
+
+/**
+ * Cache en memoria de los perfiles de {@code users/{uid}} y de los
+ * {@link UserRecord} de Firebase Auth (por email), con tamaño máximo y TTL.
+ *
+ * <p>Para que los cambios hechos por otra instancia se vean en menos de un
+ * segundo, escucha con un snapshot listener los documentos de {@code users}
+ * cuyo {@code updatedAt} es posterior al arranque del listener. Por eso toda
+ * escritura que cambie el perfil o el estado tiene que poner
+ * {@link #UPDATED_AT}; {@code lastLogin} no lo pone y no despierta a nadie.
+ * Un perfil cacheado se sustituye por el nuevo y el UserRecord de su email se
+ * descarta. El listener se vuelve a abrir cada {@code listener.window} para que
+ * el conjunto de documentos que sigue no crezca sin límite.
+ *
+ * <p>El listener no se entera de que se borra un documento que no estaba en su
+ * consulta, así que al eliminar un usuario no se borra {@code users/{uid}}: se
+ * sustituye por una lápida ({@code state} {@link #DELETED} y
+ * {@link #UPDATED_AT}, sin datos personales) que llega a todas las instancias.
+ * {@link #getProfile} trata la lápida como un perfil que no existe.
+ *
+ * <p>Si el listener falla se vacía todo y no se cachea nada hasta que vuelve a
+ * estar activo. Métricas: {@code cache.*} con {@code cache=auth.users.profiles}
+ * y {@code auth.users.records} (aciertos, fallos, expulsiones), y
+ * {@code auth.users.cache.staleness}, el retraso entre la escritura y su
+ * llegada por el listener.
+ */
+@Component
+@Slf4j
+public class FirebaseUserCache implements DisposableBean {
+
+    public static final String USERS = "users";
+    public static final String UPDATED_AT = "updatedAt";
+    public static final String STATE = "state";
+    /** Estado de la lápida que deja un usuario eliminado. */
+    public static final String DELETED = "DELETED";
+
+    private static final long REATTACH_OVERLAP_MILLIS = 5_000;
+
+    private final Firestore firestore;
+    private final FirebaseAuth firebaseAuth;
+    private final MeterRegistry meterRegistry;
+    private final boolean listenerEnabled;
+    private final Duration listenerWindow;
+    private final Duration retryInterval;
+
+    private final Cache<String, UserProfile> profiles;
+    private final Cache<String, UserRecord> userRecords;
+    private final Timer staleness;
+
+    /** Se incrementa en cada invalidación: una carga que la cruza no se guarda. */
+    private final AtomicLong generation = new AtomicLong();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "users-cache-listener");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ListenerRegistration registration;
+    private volatile boolean listening;
+
+    public FirebaseUserCache(Firestore firestore,
+                             FirebaseAuth firebaseAuth,
+                             MeterRegistry meterRegistry,
+                             @Value("${auth.users.cache.max-size:10000}") long maxSize,
+                             @Value("${auth.users.cache.profile-ttl:10m}") Duration profileTtl,
+                             @Value("${auth.users.cache.user-record-ttl:5m}") Duration userRecordTtl,
+                             @Value("${auth.users.cache.listener.enabled:true}") boolean listenerEnabled,
+                             @Value("${auth.users.cache.listener.window:1h}") Duration listenerWindow,
+                             @Value("${auth.users.cache.listener.retry-interval:5s}") Duration retryInterval) {
+        this.firestore = firestore;
+        this.firebaseAuth = firebaseAuth;
+        this.meterRegistry = meterRegistry;
+        this.listenerEnabled = listenerEnabled;
+        this.listenerWindow = listenerWindow;
+        this.retryInterval = retryInterval;
+        this.profiles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(profileTtl)
+                .recordStats()
+                .build();
+        this.userRecords = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(userRecordTtl)
+                .recordStats()
+                .build();
+        this.staleness = Timer.builder("auth.users.cache.staleness")
+                .description("Tiempo entre la escritura de un perfil y su llegada por el snapshot listener")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles, "auth.users.profiles");
+        CaffeineCacheMetrics.monitor(meterRegistry, userRecords, "auth.users.records");
+        Gauge.builder("auth.users.cache.listener.up", this, cache -> cache.listening ? 1 : 0)
+                .description("1 si el snapshot listener de users está activo")
+                .register(meterRegistry);
+        if (listenerEnabled) {
+            attach(System.currentTimeMillis());
+            long window = listenerWindow.toMillis();
+            scheduler.scheduleAtFixedRate(this::reattach, window, window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Perfil de {@code users/{uid}}; vacío si no existe o es una lápida (no se cachea). */
+    public Mono<UserProfile> getProfile(String uid) {
+        return Mono.defer(() -> {
+            UserProfile cached = profiles.getIfPresent(uid);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long loadedAt = generation.get();
+            return monoOf(() -> firestore.collection(USERS).document(uid).get())
+                    .mapNotNull(snapshot -> snapshot.toObject(UserProfile.class))
+                    .filter(profile -> !DELETED.equals(profile.getState()))
+                    .doOnNext(profile -> {
+                        if (cacheable(loadedAt)) {
+                            profiles.put(uid, profile);
+                        }
+                    });
+        });
+    }
+
+    public Mono<UserRecord> getUserByEmail(String email) {
+        return Mono.defer(() -> {
+            String key = email.toLowerCase(Locale.ROOT);
+            UserRecord cached = userRecords.getIfPresent(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long loadedAt = generation.get();
+            return monoOf(() -> firebaseAuth.getUserByEmailAsync(email))
+                    .doOnNext(userRecord -> {
+                        if (cacheable(loadedAt)) {
+                            userRecords.put(key, userRecord);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Lleva el lastLogin de un login a la copia cacheada. No pasa por el
+     * listener: las otras instancias lo ven cuando les expira el perfil.
+     */
+    public void updateLastLogin(String uid, long lastLogin) {
+        profiles.asMap().computeIfPresent(uid, (key, profile) -> profile.toBuilder().lastLogin(lastLogin).build());
+    }
+
+    /** Tras una escritura de esta instancia; las demás se enteran por el listener. */
+    public void invalidate(String uid) {
+        generation.incrementAndGet();
+        UserProfile profile = profiles.asMap().remove(uid);
+        if (profile != null && profile.getEmail() != null) {
+            userRecords.invalidate(profile.getEmail().toLowerCase(Locale.ROOT));
+        } else {
+            // Sin perfil no se sabe el email: se recorre el cache (las escrituras son raras)
+            userRecords.asMap().values().removeIf(userRecord -> uid.equals(userRecord.getUid()));
+        }
+    }
+
+    private boolean cacheable(long loadedAt) {
+        return (!listenerEnabled || listening) && generation.get() == loadedAt;
+    }
+
+    private synchronized void attach(long since) {
+        ListenerRegistration previous = registration;
+        registration = firestore.collection(USERS)
+                .whereGreaterThan(UPDATED_AT, since)
+                .addSnapshotListener(this::onSnapshot);
+        if (previous != null) {
+            previous.remove();
+        }
+    }
+
+    /** El solape cubre las escrituras que lleguen mientras se cambia de listener. */
+    private void reattach() {
+        attach(System.currentTimeMillis() - REATTACH_OVERLAP_MILLIS);
+    }
+
+    private void onSnapshot(QuerySnapshot snapshot, FirestoreException error) {
+        if (error != null) {
+            listening = false;
+            generation.incrementAndGet();
+            profiles.invalidateAll();
+            userRecords.invalidateAll();
+            log.warn("⚠️ Snapshot listener de users caído, cache vaciado; reintento en {}: {}", retryInterval, error.getMessage());
+            scheduler.schedule(this::reattach, retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        if (!listening) {
+            listening = true;
+            log.info("👂 Snapshot listener de users activo");
+        }
+
+        long now = System.currentTimeMillis();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            String uid = change.getDocument().getId();
+            boolean cached = profiles.asMap().containsKey(uid);
+            invalidate(uid);
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                continue;
+            }
+            UserProfile updated = change.getDocument().toObject(UserProfile.class);
+            if (cached && !DELETED.equals(updated.getState())) {
+                profiles.put(uid, updated);
+            }
+            if (updated.getEmail() != null) {
+                userRecords.invalidate(updated.getEmail().toLowerCase(Locale.ROOT));
+            }
+            if (updated.getUpdatedAt() != null) {
+                staleness.record(Math.max(0, now - updated.getUpdatedAt()), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        ListenerRegistration current = registration;
+        if (current != null) {
+            current.remove();
+        }
+    }
+}
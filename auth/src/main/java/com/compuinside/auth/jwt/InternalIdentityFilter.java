@@ -0,0 +1,46 @@
+package com.compuinside.auth.jwt;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Autentica con la identidad firmada del gateway ({@link InternalTokenVerifier#HEADER}),
+ * con el rol como authority. Es lo que permite exigir roles en rutas de
+ * {@code /auth/**}, que no llevan el JWT propio de auth.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InternalIdentityFilter extends OncePerRequestFilter {
+
+    private final InternalTokenVerifier verifier;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String token = request.getHeader(InternalTokenVerifier.HEADER);
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            InternalTokenVerifier.InternalIdentity identity = verifier.verify(token);
+            if (identity == null) {
+                log.warn("❌ Identidad interna inválida o expirada: {}", request.getRequestURI());
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Identidad interna inválida o expirada");
+                return;
+            }
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                    identity.uid(), null, List.of(new SimpleGrantedAuthority(identity.role()))));
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,95 @@
+package com.compuinside.auth.jwt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Verifica el token interno que el gateway añade en {@value #HEADER} a las
+ * peticiones autenticadas: {@code kid.payload.firma} en base64url, con la
+ * firma HMAC-SHA256 de {@code kid.payload} y el payload uid, role, accountId,
+ * email, name y exp (segundos epoch) separados por {@code U+001F}.
+ *
+ * <p>El secreto es el mismo {@code INTERNAL_TOKEN_SECRET} del gateway; sin él,
+ * o con menos de {@value #MIN_SECRET_BYTES} bytes, auth no arranca.
+ */
+@Component
+public class InternalTokenVerifier {
+
+    public static final String HEADER = "X-Internal-Identity";
+
+    static final char SEPARATOR = '\u001F';
+
+    /** Lo que pide HMAC-SHA256 para no debilitar la firma (RFC 2104). */
+    static final int MIN_SECRET_BYTES = 32;
+
+    private final String keyId;
+    private final SecretKeySpec key;
+
+    public InternalTokenVerifier(
+            @Value("${internal-token.key-id:v1}") String keyId,
+            @Value("${internal-token.secret:}") String secret) {
+        this.keyId = keyId;
+        this.key = new SecretKeySpec(decodeSecret(secret), "HmacSHA256");
+    }
+
+    /** Identidad del token, o {@code null} si la firma no cuadra o ya expiró. */
+    public InternalIdentity verify(String token) {
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot || !keyId.equals(token.substring(0, firstDot))) {
+            return null;
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] expected = mac.doFinal(token.substring(0, lastDot).getBytes(StandardCharsets.US_ASCII));
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(expected, signature)) {
+                return null;
+            }
+            String payload = new String(Base64.getUrlDecoder().decode(token.substring(firstDot + 1, lastDot)),
+                    StandardCharsets.UTF_8);
+            String[] fields = payload.split(String.valueOf(SEPARATOR), -1);
+            if (fields.length != 6) {
+                return null;
+            }
+            long expiresAt = Long.parseLong(fields[5]);
+            if (expiresAt <= System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            return new InternalIdentity(fields[0], fields[1], fields[2], fields[3], fields[4], expiresAt);
+        } catch (IllegalArgumentException e) {
+            return null;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+
+    private static byte[] decodeSecret(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("Falta internal-token.secret (INTERNAL_TOKEN_SECRET)");
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(secret.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("internal-token.secret no es base64 válido", e);
+        }
+        if (bytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("internal-token.secret tiene " + bytes.length
+                    + " bytes; se necesitan al menos " + MIN_SECRET_BYTES);
+        }
+        return bytes;
+    }
+
+    public record InternalIdentity(String uid, String role, String accountId, String email, String name,
+                                   long expiresAt) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.compuinside.auth.jwt;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.BulkWriterException;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteResult;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritura diferida de {@code lastLogin}: el login sólo deja el instante en
+ * memoria (uno por uid, gana el más reciente) y cada
+ * {@code auth.last-login.flush-interval} se escriben todos juntos con un
+ * {@link BulkWriter}, que agrupa en lotes y reintenta los errores
+ * transitorios. Una escritura que falla vuelve a la cola salvo que el
+ * documento ya no exista, y un volcado interrumpido devuelve a la cola lo que
+ * no llegó a confirmarse. Al apagar se espera al volcado en curso y se vuelca
+ * lo pendiente.
+ *
+ * <p>Si la instancia muere sin apagarse se pierden como mucho los logins del
+ * último intervalo; {@code lastLogin} es informativo y no se usa para
+ * autorizar.
+ *
+ * <p>{@link #flush()} sólo corre en el hilo de plataforma
+ * {@code last-login-flush} o al apagar, nunca en un hilo virtual, así que
+ * esperar a Firestore dentro del {@code synchronized} no fija ningún portador.
+ */
+@Component
+@Slf4j
+public class LastLoginWriter implements DisposableBean {
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Firestore firestore;
+    private final Duration flushInterval;
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final Counter written;
+    private final Counter failed;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "last-login-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LastLoginWriter(Firestore firestore,
+                           MeterRegistry meterRegistry,
+                           @Value("${auth.last-login.flush-interval:5s}") Duration flushInterval) {
+        this.firestore = firestore;
+        this.flushInterval = flushInterval;
+        this.written = Counter.builder("auth.last-login.written")
+                .description("Escrituras de lastLogin confirmadas por Firestore")
+                .register(meterRegistry);
+        this.failed = Counter.builder("auth.last-login.failed")
+                .description("Escrituras de lastLogin fallidas (se reintentan en el siguiente volcado)")
+                .register(meterRegistry);
+        Gauge.builder("auth.last-login.pending", pending, Map::size)
+                .description("Usuarios con lastLogin pendiente de escribir")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long millis = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(String uid, long timestamp) {
+        pending.merge(uid, timestamp, Math::max);
+    }
+
+    /** Instante pendiente de escribir para {@code uid}, o {@code null}. */
+    public Long pending(String uid) {
+        return pending.get(uid);
+    }
+
+    /**
+     * Escribe lo pendiente y espera la respuesta de Firestore.
+     *
+     * @return escrituras confirmadas
+     */
+    public synchronized int flush() throws InterruptedException {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<String> uids = new ArrayList<>(pending.keySet());
+        List<Long> timestamps = new ArrayList<>(uids.size());
+        List<ApiFuture<WriteResult>> results = new ArrayList<>(uids.size());
+
+        BulkWriter writer = firestore.bulkWriter();
+        for (String uid : uids) {
+            // Se saca antes de escribir: un login durante el volcado vuelve a dejar su instante
+            Long timestamp = pending.remove(uid);
+            timestamps.add(timestamp);
+            results.add(writer.update(firestore.collection(FirebaseUserCache.USERS).document(uid),
+                    "lastLogin", timestamp));
+        }
+        int ok = 0;
+        int i = 0;
+        try {
+            try {
+                writer.close();
+            } catch (ExecutionException e) {
+                log.warn("⚠️ Volcado de lastLogin incompleto: {}", e.getMessage());
+            }
+
+            for (; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                    ok++;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof BulkWriterException bulk && bulk.getStatus().getCode() == Status.Code.NOT_FOUND) {
+                        continue;
+                    }
+                    failed.increment();
+                    record(uids.get(i), timestamps.get(i));
+                }
+            }
+        } catch (InterruptedException e) {
+            // Lo que no llegó a confirmarse vuelve a la cola (escribirlo dos veces no hace daño)
+            for (; i < results.size(); i++) {
+                record(uids.get(i), timestamps.get(i));
+            }
+            written.increment(ok);
+            throw e;
+        }
+        written.increment(ok);
+        return ok;
+    }
+
+    private void flushQuietly() {
+        try {
+            int count = flush();
+            if (count > 0) {
+                log.debug("🕒 lastLogin escrito para {} usuarios", count);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudo volcar lastLogin: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Se deja terminar el volcado en curso; si no acaba a tiempo, al interrumpirlo devuelve su lote a la cola
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        if (!pending.isEmpty()) {
+            log.warn("⚠️ {} lastLogin sin escribir al apagar", pending.size());
+        }
+    }
+}
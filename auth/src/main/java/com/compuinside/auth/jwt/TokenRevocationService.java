@@ -0,0 +1,139 @@
+package com.compuinside.auth.jwt;
+
+import com.compuinside.auth.dto.TokenRevocation;
+import com.compuinside.auth.repository.Token;
+import com.compuinside.auth.repository.TokenRepository;
+import io.jsonwebtoken.JwtException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoca tokens y publica las revocaciones por SSE para que el gateway mantenga
+ * su propio conjunto de tokens revocados sin consultar /internal/tokens/check
+ * en cada petición.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationService {
+
+    private final TokenRepository tokenRepository;
+    private final JwtService jwtService;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "revocations-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void startHeartbeat() {
+        // Un comentario periódico detecta conexiones muertas y evita cortes por inactividad
+        heartbeat.scheduleAtFixedRate(() -> broadcast(SseEmitter.event().comment("ping")), 30, 30, TimeUnit.SECONDS);
+    }
+
+    public void revoke(Token token) {
+        Optional<TokenRevocation> revocation = toRevocation(token.getToken());
+        token.setExpired(true);
+        token.setRevoked(true);
+        token.setExpiresAt(revocation.map(TokenRevocation::getExpiresAt).orElse(0L));
+        tokenRepository.save(token);
+        revocation.ifPresent(event -> broadcast(SseEmitter.event().name("revoked").data(event)));
+    }
+
+    /**
+     * Revocaciones de tokens que aún no han expirado (resincronización completa).
+     * Sólo se leen los que no han caducado; a los antiguos sin {@code expiresAt}
+     * se les guarda aquí para que no se vuelvan a leer una vez caducados.
+     */
+    @Transactional
+    public List<TokenRevocation> activeRevocations() {
+        List<TokenRevocation> active = new ArrayList<>();
+        List<Token> backfilled = new ArrayList<>();
+        for (Token token : tokenRepository.findRevokedNotExpired(System.currentTimeMillis())) {
+            Optional<TokenRevocation> revocation = toRevocation(token.getToken());
+            if (token.getExpiresAt() == null) {
+                // Ilegible o ya caducado: 0 basta para que no vuelva a salir
+                token.setExpiresAt(revocation.map(TokenRevocation::getExpiresAt).orElse(0L));
+                backfilled.add(token);
+            }
+            revocation.ifPresent(active::add);
+        }
+        if (!backfilled.isEmpty()) {
+            tokenRepository.saveAll(backfilled);
+        }
+        return active;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        try {
+            // El gateway pide la lista completa al recibir "ready", así no pierde eventos
+            emitter.send(SseEmitter.event().name("ready").data("ok"));
+        } catch (IOException e) {
+            emitters.remove(emitter);
+        }
+        log.info("Gateway suscrito a revocaciones ({} suscriptores)", emitters.size());
+        return emitter;
+    }
+
+    private void broadcast(SseEmitter.SseEventBuilder event) {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private Optional<TokenRevocation> toRevocation(String token) {
+        try {
+            long expiresAt = jwtService.getExpirationDateFromToken(token).getTime();
+            return Optional.of(new TokenRevocation(digest(token), expiresAt));
+        } catch (JwtException | IllegalArgumentException e) {
+            // Ya expirado o ilegible: el gateway lo rechaza por sí mismo
+            return Optional.empty();
+        }
+    }
+
+    // Mismo digest que usa el gateway (TokenDigest)
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+    }
+}
@@ -39,4 +39,7 @@ public class Token {
 
     private boolean isRefresh;
 
+    // Expiración del JWT en ms epoch; se rellena al revocar para no reenviar revocaciones ya caducadas
+    private Long expiresAt;
+
 }
@@ -1,7 +1,10 @@
 package com.compuinside.auth.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -10,4 +13,10 @@ public interface TokenRepository extends JpaRepository<Token, Long> {
     List<Token> findAllValidIsFalseOrRevokedIsFalseByUserId(UUID id);
 
     Optional<Token> findByToken(String token);
+
+    // Sin expiresAt: revocados antes de guardar la expiración, se completan al leerlos
+    @Query("select t from tokens t where t.revoked = true and (t.expiresAt is null or t.expiresAt > :now)")
+    List<Token> findRevokedNotExpired(@Param("now") long now);
+
+    List<Token> findAllByTokenIn(Collection<String> tokens);
 }
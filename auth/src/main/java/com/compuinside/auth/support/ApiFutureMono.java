@@ -0,0 +1,46 @@
+package com.compuinside.auth.support;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Puente sin bloqueo entre los {@link ApiFuture} de Firestore y de las
+ * variantes {@code *Async} de FirebaseAuth y Reactor: el Mono se completa
+ * desde el callback del futuro, sin un hilo esperando en {@code get()}. Un
+ * resultado {@code null} da un Mono vacío y cancelar el Mono cancela el futuro.
+ *
+ * <p>El callback corre en el hilo del SDK que completa el futuro, así que lo
+ * que venga detrás tiene que ser trabajo corto.
+ */
+public final class ApiFutureMono {
+
+    private ApiFutureMono() {
+    }
+
+    public static <T> Mono<T> toMono(ApiFuture<T> future) {
+        return Mono.create(sink -> {
+            ApiFutures.addCallback(future, new ApiFutureCallback<T>() {
+                @Override
+                public void onSuccess(T result) {
+                    sink.success(result);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    sink.error(t);
+                }
+            }, MoreExecutors.directExecutor());
+            sink.onCancel(() -> future.cancel(false));
+        });
+    }
+
+    /** Como {@link #toMono}, pero la llamada se lanza al suscribirse (igual que {@code Mono.fromCallable}). */
+    public static <T> Mono<T> monoOf(Supplier<ApiFuture<T>> call) {
+        return Mono.defer(() -> toMono(call.get()));
+    }
+}
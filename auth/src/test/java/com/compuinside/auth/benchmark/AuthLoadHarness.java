@@ -0,0 +1,296 @@
+package com.compuinside.auth.benchmark;
+
+import com.compuinside.auth.AuthApplication;
+import com.compuinside.auth.dto.UserPlan;
+import com.compuinside.auth.jwt.JwtService;
+import com.compuinside.auth.repository.Token;
+import com.compuinside.auth.repository.TokenRepository;
+import com.compuinside.auth.user.Account;
+import com.compuinside.auth.user.AccountRepository;
+import com.compuinside.auth.user.Role;
+import com.compuinside.auth.user.State;
+import com.compuinside.auth.user.User;
+import com.compuinside.auth.user.UsersRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Prueba de carga del servicio auth sobre un Postgres local (el
+ * {@code db-authentication} de docker-compose) para comparar hilos de
+ * plataforma y virtuales. Arranca auth en este proceso ({@code threads=virtual}
+ * activa el perfil {@code virtual}, que necesita Java 21), crea {@code users}
+ * usuarios con su token en la base y mide dos rutas bloqueantes:
+ * <ul>
+ *     <li>{@code check}: {@code GET /internal/tokens/check}, una consulta JPA.</li>
+ *     <li>{@code filter}: {@code GET /demo/hello} con Bearer, que pasa por
+ *     JwtAuthenticationFilter (token y usuario en la base, firma del JWT).</li>
+ * </ul>
+ * {@code connections} peticiones en vuelo repiten en cuanto reciben la
+ * respuesta (lazo cerrado); con más de 200 el modo plataforma se queda sin
+ * hilos de Tomcat. Al terminar borra los datos que creó.
+ *
+ * <pre>
+ * docker compose up -d db-authentication
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="threads=platform connections=400 duration=30s"
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="threads=virtual connections=400 duration=30s"
+ * </pre>
+ *
+ * <p><b>Medido</b> (Java 21.0.1, Postgres 16 local, 1 vCPU compartida por
+ * cliente, auth y base; 1000 usuarios, 15 s de calentamiento y 30 s medidos;
+ * "a / b" son dos ejecuciones):
+ * <pre>
+ *                    check req/s  p99      filter req/s  p99       errores filter
+ * plataforma, 400    375 / 311    1.7 s    216 / 167     2.3-3.0 s 0
+ * virtuales,  400    289 / 244    3.1-3.7s 207 / 167     6.4-8.4 s 675 / 762
+ * plataforma, 50     392          0.2 s    206           0.4 s     0
+ * virtuales,  50     276          1.2 s    191           2.0 s     0
+ * </pre>
+ * Con la CPU como cuello de botella los hilos virtuales no dan más
+ * rendimiento y empeoran la cola. Con 400 conexiones los errores son
+ * timeouts de Hikari (20 conexiones, hasta ~240 esperando), que es el fallo
+ * rápido que configura {@code application-virtual.properties}. En plataforma
+ * el tope de 200 hilos de Tomcat deja el exceso en la cola de aceptación. El
+ * modo {@code virtual} no es una opción validada: hay que repetir la
+ * comparación con la base en otra máquina antes de usarlo.
+ */
+public final class AuthLoadHarness {
+
+    private AuthLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        boolean virtual = "virtual".equals(options.getOrDefault("threads", "platform"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "400"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "15s"));
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "30s"));
+        int port = Integer.parseInt(options.getOrDefault("port", "18081"));
+        String database = options.getOrDefault("db", "jdbc:postgresql://localhost:5432/auth");
+        List<String> scenarios = List.of(options.getOrDefault("scenarios", "check,filter").split(","));
+
+        if (virtual && Runtime.version().feature() < 21) {
+            System.out.println("⚠️ threads=virtual necesita Java 21; con Java " + Runtime.version().feature()
+                    + " Spring ignora spring.threads.virtual.enabled");
+        }
+
+        // Como argumentos de línea de comandos: con .properties() serían valores por defecto y
+        // application.properties los pisaría (puerto, base de datos, secreto...)
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AuthApplication.class)
+                .profiles(virtual ? new String[]{"virtual"} : new String[0])
+                .run(
+                        "--server.port=" + port,
+                        "--spring.datasource.url=" + database,
+                        "--spring.datasource.username=" + options.getOrDefault("db-user", "postgres"),
+                        "--spring.datasource.password=" + options.getOrDefault("db-password", "postgres"),
+                        "--eureka.client.enabled=false",
+                        "--auth.users.cache.listener.enabled=false",
+                        // Sólo para arrancar: el harness no pasa por el gateway ni envía X-Internal-Identity
+                        "--internal-token.secret=Qh4w7OLmmgE3f3LXqnrDLL69uOcw2is94iP7DgsQYdI=",
+                        "--logging.level.root=WARN");
+        Seed seed;
+        try {
+            seed = seed(context, users);
+        } catch (RuntimeException e) {
+            context.close();
+            throw e;
+        }
+        List<String> tokens = seed.tokens().stream().map(Token::getToken).toList();
+
+        ExecutorService clientThreads = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientThreads)
+                .build();
+        try {
+            System.out.printf("Auth: Java %d, hilos %s, %d conexiones, %d usuarios%n",
+                    Runtime.version().feature(), virtual ? "virtuales" : "de plataforma", connections, users);
+            String base = "http://localhost:" + port;
+            for (String scenario : scenarios) {
+                run(client, base, scenario, tokens, connections, warmup);
+            }
+            for (String scenario : scenarios) {
+                Result result = run(client, base, scenario, tokens, connections, duration);
+                System.out.printf("%-6s %s%n", scenario, result);
+            }
+        } finally {
+            // Los hilos del cliente no son daemon: sin cerrarlos el proceso no termina
+            clientThreads.shutdownNow();
+            cleanup(context, seed);
+            context.close();
+        }
+    }
+
+    /**
+     * Una cuenta con {@code users} usuarios y un token de acceso válido por usuario,
+     * en una transacción: el token lee la cuenta (perezosa) de cada usuario.
+     */
+    private static Seed seed(ConfigurableApplicationContext context, int users) {
+        return new TransactionTemplate(context.getBean(PlatformTransactionManager.class))
+                .execute(status -> createSeed(context, users));
+    }
+
+    private static Seed createSeed(ConfigurableApplicationContext context, int users) {
+        AccountRepository accounts = context.getBean(AccountRepository.class);
+        UsersRepository usersRepository = context.getBean(UsersRepository.class);
+        JwtService jwtService = context.getBean(JwtService.class);
+
+        Account account = accounts.save(Account.builder()
+                .userPlan(UserPlan.BASIC)
+                .state(State.ACTIVE)
+                .build());
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        List<User> created = new ArrayList<>(users);
+        List<Token> tokens = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = usersRepository.save(User.builder()
+                    .username("load-" + run + "-" + i)
+                    .email("load-" + run + "-" + i + "@ups.edu.ec")
+                    .password("-")
+                    .role(Role.USER)
+                    .state(State.ACTIVE)
+                    .account(account)
+                    .build());
+            created.add(user);
+            tokens.add(Token.builder().token(jwtService.getToken(user)).user(user).build());
+        }
+        return new Seed(account, created, context.getBean(TokenRepository.class).saveAll(tokens));
+    }
+
+    private static void cleanup(ConfigurableApplicationContext context, Seed seed) {
+        context.getBean(TokenRepository.class).deleteAll(seed.tokens());
+        context.getBean(UsersRepository.class).deleteAll(seed.users());
+        context.getBean(AccountRepository.class).delete(seed.account());
+    }
+
+    private static Result run(HttpClient client, String base, String scenario, List<String> tokens,
+                              int connections, Duration duration) {
+        Recorder recorder = new Recorder();
+        AtomicInteger next = new AtomicInteger();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+
+        CompletableFuture<?>[] loops = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            loops[i] = done;
+            loop(client, () -> request(base, scenario, tokens.get(Math.floorMod(next.getAndIncrement(), tokens.size()))),
+                    recorder, deadline, done);
+        }
+        CompletableFuture.allOf(loops).join();
+
+        return recorder.result(System.nanoTime() - start);
+    }
+
+    /** Repite la petición en cuanto llega la respuesta hasta {@code deadline}; {@code done} se completa al acabar. */
+    private static void loop(HttpClient client, Supplier<HttpRequest> request, Recorder recorder, long deadline,
+                             CompletableFuture<Void> done) {
+        if (System.nanoTime() >= deadline) {
+            done.complete(null);
+            return;
+        }
+        long sent = System.nanoTime();
+        client.sendAsync(request.get(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    recorder.record(System.nanoTime() - sent,
+                            error != null || response.statusCode() < 200 || response.statusCode() >= 300);
+                    loop(client, request, recorder, deadline, done);
+                });
+    }
+
+    private static HttpRequest request(String base, String scenario, String token) {
+        return switch (scenario) {
+            case "check" -> HttpRequest.newBuilder(URI.create(base + "/internal/tokens/check?token="
+                    + URLEncoder.encode(token, StandardCharsets.UTF_8))).GET().build();
+            case "filter" -> HttpRequest.newBuilder(URI.create(base + "/demo/hello"))
+                    .header("Authorization", "Bearer " + token)
+                    .GET()
+                    .build();
+            default -> throw new IllegalArgumentException("Escenario desconocido: " + scenario);
+        };
+    }
+
+    /** Admite {@code clave=valor} sueltos o varios separados por espacios en un mismo argumento. */
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            for (String option : arg.trim().split("\\s+")) {
+                int separator = option.indexOf('=');
+                if (separator > 0) {
+                    options.put(option.substring(0, separator), option.substring(separator + 1));
+                }
+            }
+        }
+        return options;
+    }
+
+    /** Latencias de todas las peticiones, en nanosegundos. */
+    private static class Recorder {
+
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[1 << 16];
+        private int size;
+
+        private synchronized void record(long nanos, boolean error) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            if (error) {
+                errors.incrementAndGet();
+            }
+        }
+
+        private synchronized Result result(long elapsedNanos) {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return new Result(size, errors.get(), elapsedNanos, sorted);
+        }
+    }
+
+    private record Seed(Account account, List<User> users, List<Token> tokens) {
+    }
+
+    record Result(int requests, long errors, long elapsedNanos, long[] sorted) {
+
+        double percentileMillis(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d peticiones (%d errores) en %.1fs: %.0f req/s | "
+                            + "p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms",
+                    requests, errors, elapsedNanos / 1e9, requests / (elapsedNanos / 1e9),
+                    percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                    percentileMillis(100));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.compuinside.auth.jwt;
+
+import com.compuinside.auth.controller.BulkRegisterResult;
+import com.compuinside.auth.controller.UserProfile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.core.ApiFutures;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteResult;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.auth.DeleteUsersResult;
+import com.google.firebase.auth.ErrorInfo;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.ImportUserRecord;
+import com.google.firebase.auth.UserImportOptions;
+import com.google.firebase.auth.UserImportResult;
+import com.google.firebase.cloud.FirestoreClient;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkRegistrationServiceTests {
+
+	private final FirebaseAuth firebaseAuth = mock(FirebaseAuth.class);
+	private final Firestore firestore = mock(Firestore.class);
+	private final CollectionReference users = mock(CollectionReference.class);
+	private final BulkWriter bulkWriter = mock(BulkWriter.class);
+	private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+	private BulkRegistrationService service;
+
+	@BeforeEach
+	void setUp() {
+		when(firestore.collection(FirebaseUserCache.USERS)).thenReturn(users);
+		when(users.document(anyString())).thenAnswer(invocation -> mock(DocumentReference.class));
+		when(firestore.bulkWriter()).thenReturn(bulkWriter);
+		when(bulkWriter.flush()).thenReturn(ApiFutures.immediateFuture(null));
+		when(bulkWriter.set(any(DocumentReference.class), any(Object.class)))
+				.thenReturn(ApiFutures.immediateFuture(mock(WriteResult.class)));
+		service = new BulkRegistrationService(firebaseAuth, firestore, validator, new ObjectMapper(), 2, 2, 1000);
+	}
+
+	@Test
+	void importsInChunksAndReportsEveryLine() {
+		ErrorInfo duplicate = mock(ErrorInfo.class);
+		when(duplicate.getIndex()).thenReturn(1);
+		when(duplicate.getReason()).thenReturn("EMAIL_EXISTS");
+		UserImportResult withDuplicate = importResult(duplicate);
+		UserImportResult clean = importResult();
+		when(firebaseAuth.importUsersAsync(anyList(), any(UserImportOptions.class)))
+				.thenReturn(ApiFutures.immediateFuture(withDuplicate), ApiFutures.immediateFuture(clean));
+
+		List<BulkRegisterResult> results = register(
+				"{\"email\":\"ana@ups.edu.ec\",\"password\":\"secreta1\",\"displayName\":\"Ana\"}",
+				"{\"email\":\"luis@ups.edu.ec\",\"password\":\"secreta2\"}",
+				"",
+				"{\"email\":\"no-es-email\",\"password\":\"secreta3\"}",
+				"{roto",
+				"{\"email\":\"eva@ups.edu.ec\",\"password\":\"secreta4\",\"role\":\"ADMIN\"}");
+
+		assertEquals(List.of(1L, 2L, 4L, 5L, 6L), results.stream().map(BulkRegisterResult::getLine).toList());
+		assertTrue(results.get(0).isSuccess());
+		assertNotNull(results.get(0).getUid());
+		assertNotNull(results.get(0).getAccountId());
+		assertEquals("EMAIL_EXISTS", results.get(1).getError());
+		assertEquals("Email debe ser válido", results.get(2).getError());
+		assertTrue(results.get(3).getError().startsWith("JSON inválido"));
+		assertTrue(results.get(4).isSuccess());
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<ImportUserRecord>> batches = ArgumentCaptor.forClass(List.class);
+		verify(firebaseAuth, times(2)).importUsersAsync(batches.capture(), any(UserImportOptions.class));
+		assertEquals(List.of(2, 1), batches.getAllValues().stream().map(List::size).toList());
+
+		ArgumentCaptor<Object> profiles = ArgumentCaptor.forClass(Object.class);
+		verify(bulkWriter, times(2)).set(any(DocumentReference.class), profiles.capture());
+		UserProfile eva = (UserProfile) profiles.getAllValues().get(1);
+		// El rol de la línea se ignora
+		assertEquals("USER", eva.getRole());
+		assertEquals(results.get(4).getUid(), eva.getUid());
+		assertNotNull(eva.getUpdatedAt());
+	}
+
+	@Test
+	void importedUserWithoutProfileIsRolledBack() {
+		UserImportResult clean = importResult();
+		when(firebaseAuth.importUsersAsync(anyList(), any(UserImportOptions.class)))
+				.thenReturn(ApiFutures.immediateFuture(clean));
+		when(bulkWriter.set(any(DocumentReference.class), any(Object.class)))
+				.thenReturn(ApiFutures.immediateFailedFuture(new IllegalStateException("DEADLINE_EXCEEDED")));
+		DeleteUsersResult deleted = mock(DeleteUsersResult.class);
+		when(firebaseAuth.deleteUsersAsync(anyList())).thenReturn(ApiFutures.immediateFuture(deleted));
+
+		List<BulkRegisterResult> results = register("{\"email\":\"ana@ups.edu.ec\",\"password\":\"secreta1\"}");
+
+		assertFalse(results.get(0).isSuccess());
+		assertNull(results.get(0).getUid());
+		assertTrue(results.get(0).getError().contains("DEADLINE_EXCEEDED"));
+		verify(firebaseAuth).deleteUsersAsync(anyList());
+	}
+
+	@Test
+	void invalidLinesNeverReachFirebase() {
+		List<BulkRegisterResult> results = register("{\"email\":\"ana@ups.edu.ec\",\"password\":\"123\"}");
+
+		assertEquals("Password debe tener al menos 6 caracteres", results.get(0).getError());
+		verify(firebaseAuth, never()).importUsersAsync(anyList(), any(UserImportOptions.class));
+		verify(firestore, never()).bulkWriter();
+	}
+
+	/**
+	 * Contra los emuladores de Firebase:
+	 * {@code firebase emulators:start --only auth,firestore} y
+	 * {@code FIREBASE_AUTH_EMULATOR_HOST=localhost:9099 FIRESTORE_EMULATOR_HOST=localhost:8080 mvn test -Dtest=BulkRegistrationServiceTests}
+	 */
+	@Test
+	@EnabledIfEnvironmentVariable(named = "FIREBASE_AUTH_EMULATOR_HOST", matches = ".+")
+	@EnabledIfEnvironmentVariable(named = "FIRESTORE_EMULATOR_HOST", matches = ".+")
+	void registersAgainstTheEmulators() throws Exception {
+		FirebaseApp app = FirebaseApp.initializeApp(FirebaseOptions.builder()
+				.setCredentials(GoogleCredentials.create(new AccessToken("owner", new Date(Long.MAX_VALUE))))
+				.setProjectId("demo-bulk-register")
+				.build(), "bulk-" + UUID.randomUUID());
+		try {
+			FirebaseAuth auth = FirebaseAuth.getInstance(app);
+			Firestore emulatorFirestore = FirestoreClient.getFirestore(app);
+			BulkRegistrationService emulated = new BulkRegistrationService(auth, emulatorFirestore, validator,
+					new ObjectMapper(), 1000, 4, 1000);
+			String run = UUID.randomUUID().toString().substring(0, 8);
+			String ndjson = IntStream.range(0, 2_500)
+					.mapToObj(i -> "{\"email\":\"bulk-" + run + "-" + i + "@ups.edu.ec\",\"password\":\"secreta" + i + "\"}")
+					.collect(Collectors.joining("\n"));
+
+			List<BulkRegisterResult> results = emulated.register(
+							new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)))
+					.collectList()
+					.block();
+
+			assertEquals(2_500, results.size());
+			assertTrue(results.stream().allMatch(BulkRegisterResult::isSuccess),
+					() -> results.stream().filter(result -> !result.isSuccess()).limit(3).toList().toString());
+			BulkRegisterResult last = results.stream().max(Comparator.comparingLong(BulkRegisterResult::getLine)).orElseThrow();
+			assertEquals(last.getUid(), auth.getUserByEmail("bulk-" + run + "-2499@ups.edu.ec").getUid());
+			assertTrue(emulatorFirestore.collection(FirebaseUserCache.USERS).document(last.getUid()).get().get().exists());
+		} finally {
+			app.delete();
+		}
+	}
+
+	private List<BulkRegisterResult> register(String... lines) {
+		return service.register(Flux.fromArray(lines))
+				.collectSortedList(Comparator.comparingLong(BulkRegisterResult::getLine))
+				.block();
+	}
+
+	private static UserImportResult importResult(ErrorInfo... errors) {
+		UserImportResult result = mock(UserImportResult.class);
+		when(result.getErrors()).thenReturn(List.of(errors));
+		return result;
+	}
+}
@@ -0,0 +1,175 @@
+package com.compuinside.auth.jwt;
+
+import com.compuinside.auth.controller.UserProfile;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.EventListener;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.UserRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FirebaseUserCacheTests {
+
+	private final Firestore firestore = mock(Firestore.class);
+	private final FirebaseAuth firebaseAuth = mock(FirebaseAuth.class);
+	private final DocumentReference document = mock(DocumentReference.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private FirebaseUserCache cache;
+	private EventListener<QuerySnapshot> listener;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() throws Exception {
+		CollectionReference users = mock(CollectionReference.class);
+		Query query = mock(Query.class);
+		when(firestore.collection(FirebaseUserCache.USERS)).thenReturn(users);
+		when(users.document(anyString())).thenReturn(document);
+		when(users.whereGreaterThan(eq(FirebaseUserCache.UPDATED_AT), anyLong())).thenReturn(query);
+		ArgumentCaptor<EventListener<QuerySnapshot>> captor = ArgumentCaptor.forClass(EventListener.class);
+		when(query.addSnapshotListener(captor.capture())).thenReturn(mock(ListenerRegistration.class));
+
+		DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+		when(snapshot.toObject(UserProfile.class)).thenReturn(profile("USER"));
+		when(document.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+
+		cache = new FirebaseUserCache(firestore, firebaseAuth, meterRegistry, 100,
+				Duration.ofMinutes(10), Duration.ofMinutes(5), true, Duration.ofHours(1), Duration.ofSeconds(5));
+		cache.start();
+		listener = captor.getValue();
+		listener.onEvent(changes(), null);
+	}
+
+	@AfterEach
+	void tearDown() {
+		cache.destroy();
+	}
+
+	@Test
+	void servesRepeatedReadsFromMemory() throws Exception {
+		cache.getProfile("uid-1").block();
+		cache.getProfile("uid-1").block();
+		cache.getProfile("uid-1").block();
+
+		verify(document, times(1)).get();
+		assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "auth.users.profiles")
+				.tag("result", "hit").functionCounter().count());
+	}
+
+	@Test
+	void snapshotListenerReplacesCachedProfileAndDropsUserRecord() throws Exception {
+		UserRecord userRecord = mock(UserRecord.class);
+		when(userRecord.getUid()).thenReturn("uid-1");
+		when(firebaseAuth.getUserByEmailAsync("ana@ups.edu.ec")).thenReturn(ApiFutures.immediateFuture(userRecord));
+		cache.getProfile("uid-1").block();
+		assertSame(userRecord, cache.getUserByEmail("ana@ups.edu.ec").block());
+
+		// Otra instancia cambia el rol
+		listener.onEvent(changes(change("uid-1", profile("ADMIN"))), null);
+
+		assertEquals("ADMIN", cache.getProfile("uid-1").block().getRole());
+		verify(document, times(1)).get();
+		cache.getUserByEmail("ana@ups.edu.ec").block();
+		verify(firebaseAuth, times(2)).getUserByEmailAsync("ana@ups.edu.ec");
+	}
+
+	@Test
+	void localInvalidationDropsUserRecordEvenWithoutCachedProfile() throws Exception {
+		UserRecord userRecord = mock(UserRecord.class);
+		when(userRecord.getUid()).thenReturn("uid-1");
+		when(firebaseAuth.getUserByEmailAsync(any())).thenReturn(ApiFutures.immediateFuture(userRecord));
+		cache.getUserByEmail("ana@ups.edu.ec").block();
+
+		cache.invalidate("uid-1");
+		cache.getUserByEmail("ana@ups.edu.ec").block();
+
+		verify(firebaseAuth, times(2)).getUserByEmailAsync("ana@ups.edu.ec");
+	}
+
+	@Test
+	void tombstoneFromAnotherInstanceEvictsDeletedUser() throws Exception {
+		UserRecord userRecord = mock(UserRecord.class);
+		when(userRecord.getUid()).thenReturn("uid-1");
+		when(firebaseAuth.getUserByEmailAsync("ana@ups.edu.ec")).thenReturn(ApiFutures.immediateFuture(userRecord));
+		cache.getProfile("uid-1").block();
+		cache.getUserByEmail("ana@ups.edu.ec").block();
+
+		// Otra instancia elimina el usuario y deja la lápida en users/uid-1
+		UserProfile tombstone = UserProfile.builder()
+				.uid("uid-1")
+				.state(FirebaseUserCache.DELETED)
+				.updatedAt(System.currentTimeMillis())
+				.build();
+		listener.onEvent(changes(change("uid-1", tombstone)), null);
+		DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+		when(snapshot.toObject(UserProfile.class)).thenReturn(tombstone);
+		when(document.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+
+		assertNull(cache.getProfile("uid-1").block());
+		cache.getUserByEmail("ana@ups.edu.ec").block();
+		verify(firebaseAuth, times(2)).getUserByEmailAsync("ana@ups.edu.ec");
+	}
+
+	@Test
+	void nothingIsCachedWhileListenerIsDown() throws Exception {
+		listener.onEvent(null, mock(FirestoreException.class));
+
+		cache.getProfile("uid-1").block();
+		cache.getProfile("uid-1").block();
+
+		verify(document, times(2)).get();
+	}
+
+	private static UserProfile profile(String role) {
+		return UserProfile.builder()
+				.uid("uid-1")
+				.email("ana@ups.edu.ec")
+				.role(role)
+				.updatedAt(System.currentTimeMillis())
+				.build();
+	}
+
+	private static DocumentChange change(String uid, UserProfile profile) {
+		QueryDocumentSnapshot document = mock(QueryDocumentSnapshot.class);
+		when(document.getId()).thenReturn(uid);
+		when(document.toObject(UserProfile.class)).thenReturn(profile);
+		DocumentChange change = mock(DocumentChange.class);
+		when(change.getDocument()).thenReturn(document);
+		when(change.getType()).thenReturn(DocumentChange.Type.MODIFIED);
+		return change;
+	}
+
+	private static QuerySnapshot changes(DocumentChange... changes) {
+		QuerySnapshot snapshot = mock(QuerySnapshot.class);
+		when(snapshot.getDocumentChanges()).thenReturn(List.of(changes));
+		return snapshot;
+	}
+}
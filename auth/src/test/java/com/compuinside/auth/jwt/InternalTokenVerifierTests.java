@@ -0,0 +1,60 @@
+package com.compuinside.auth.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InternalTokenVerifierTests {
+
+	private static final String SECRET = "Qh4w7OLmmgE3f3LXqnrDLL69uOcw2is94iP7DgsQYdI=";
+
+	private final InternalTokenVerifier verifier = new InternalTokenVerifier("v1", SECRET);
+
+	@Test
+	void acceptsTokensSignedByTheGateway() throws Exception {
+		long exp = System.currentTimeMillis() / 1000 + 60;
+		InternalTokenVerifier.InternalIdentity identity = verifier.verify(token("v1", SECRET, "uid-1", "ADMIN", exp));
+
+		assertEquals("uid-1", identity.uid());
+		assertEquals("ADMIN", identity.role());
+		assertEquals(exp, identity.expiresAt());
+	}
+
+	@Test
+	void rejectsForgedOrExpiredTokens() throws Exception {
+		long exp = System.currentTimeMillis() / 1000 + 60;
+		String otherSecret = Base64.getEncoder().encodeToString(new byte[32]);
+
+		assertNull(verifier.verify(token("v1", otherSecret, "uid-1", "ADMIN", exp)));
+		assertNull(verifier.verify(token("v2", SECRET, "uid-1", "ADMIN", exp)));
+		assertNull(verifier.verify(token("v1", SECRET, "uid-1", "ADMIN", exp - 120)));
+		assertNull(verifier.verify("basura"));
+	}
+
+	@Test
+	void refusesMissingOrShortSecret() {
+		assertThrows(IllegalStateException.class, () -> new InternalTokenVerifier("v1", ""));
+		assertThrows(IllegalStateException.class, () -> new InternalTokenVerifier("v1", "no-es-base64!"));
+		assertThrows(IllegalStateException.class,
+				() -> new InternalTokenVerifier("v1", Base64.getEncoder().encodeToString(new byte[16])));
+	}
+
+	/** Mismo formato que InternalTokenIssuer del gateway. */
+	private static String token(String keyId, String secret, String uid, String role, long exp) throws Exception {
+		Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+		char separator = InternalTokenVerifier.SEPARATOR;
+		String payload = base64.encodeToString((uid + separator + role + separator + "acc-1" + separator
+				+ "ana@ups.edu.ec" + separator + "Ana" + separator + exp).getBytes(StandardCharsets.UTF_8));
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(Base64.getDecoder().decode(secret), "HmacSHA256"));
+		String signed = keyId + "." + payload;
+		return signed + "." + base64.encodeToString(mac.doFinal(signed.getBytes(StandardCharsets.US_ASCII)));
+	}
+}
@@ -0,0 +1,101 @@
+package com.compuinside.auth.jwt;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.BulkWriterException;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteResult;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LastLoginWriterTests {
+
+	private final Firestore firestore = mock(Firestore.class);
+	private final CollectionReference users = mock(CollectionReference.class);
+	private final BulkWriter bulkWriter = mock(BulkWriter.class);
+	private final DocumentReference ana = mock(DocumentReference.class);
+	private final DocumentReference luis = mock(DocumentReference.class);
+
+	private LastLoginWriter writer;
+
+	@BeforeEach
+	void setUp() {
+		when(firestore.collection(FirebaseUserCache.USERS)).thenReturn(users);
+		when(firestore.bulkWriter()).thenReturn(bulkWriter);
+		when(users.document("uid-ana")).thenReturn(ana);
+		when(users.document("uid-luis")).thenReturn(luis);
+		when(bulkWriter.update(any(DocumentReference.class), eq("lastLogin"), any()))
+				.thenReturn(ApiFutures.immediateFuture(mock(WriteResult.class)));
+		writer = new LastLoginWriter(firestore, new SimpleMeterRegistry(), Duration.ofHours(1));
+	}
+
+	@Test
+	void coalescesLoginsPerUserKeepingTheLatest() throws Exception {
+		writer.record("uid-ana", 1_000L);
+		writer.record("uid-ana", 3_000L);
+		writer.record("uid-ana", 2_000L);
+		writer.record("uid-luis", 5_000L);
+
+		assertEquals(2, writer.flush());
+		verify(bulkWriter).update(ana, "lastLogin", 3_000L);
+		verify(bulkWriter).update(luis, "lastLogin", 5_000L);
+		verify(bulkWriter, times(1)).close();
+		assertNull(writer.pending("uid-ana"));
+		assertEquals(0, writer.flush());
+	}
+
+	@Test
+	void failedWritesAreRetriedButDeletedUsersAreDropped() throws Exception {
+		BulkWriterException unavailable = failure(Status.UNAVAILABLE);
+		BulkWriterException notFound = failure(Status.NOT_FOUND);
+		when(bulkWriter.update(eq(ana), eq("lastLogin"), any())).thenReturn(ApiFutures.immediateFailedFuture(unavailable));
+		when(bulkWriter.update(eq(luis), eq("lastLogin"), any())).thenReturn(ApiFutures.immediateFailedFuture(notFound));
+		writer.record("uid-ana", 1_000L);
+		writer.record("uid-luis", 1_000L);
+
+		assertEquals(0, writer.flush());
+		assertEquals(1_000L, writer.pending("uid-ana"));
+		assertNull(writer.pending("uid-luis"));
+	}
+
+	@Test
+	void interruptedFlushPutsTheBatchBack() throws Exception {
+		writer.record("uid-ana", 1_000L);
+		doThrow(new InterruptedException()).when(bulkWriter).close();
+		assertThrows(InterruptedException.class, writer::flush);
+
+		// Un login durante el volcado no se pisa con el instante anterior
+		writer.record("uid-luis", 5_000L);
+		assertEquals(1_000L, writer.pending("uid-ana"));
+
+		doNothing().when(bulkWriter).close();
+		writer.destroy();
+		verify(bulkWriter, times(2)).update(ana, "lastLogin", 1_000L);
+		verify(bulkWriter).update(luis, "lastLogin", 5_000L);
+		assertNull(writer.pending("uid-ana"));
+	}
+
+	private static BulkWriterException failure(Status status) {
+		BulkWriterException exception = mock(BulkWriterException.class);
+		when(exception.getStatus()).thenReturn(status);
+		return exception;
+	}
+}
@@ -0,0 +1,38 @@
+package com.example.demo.config
+
+import io.netty.channel.socket.ServerSocketChannel
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.annotation.Value
+import org.springframework.boot.reactor.netty.NettyServerCustomizer
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
+import org.springframework.http.client.reactive.ReactorClientHttpConnector
+import reactor.netty.http.HttpResources
+import reactor.netty.http.client.HttpClient
+
+/**
+ * Transporte de red del servidor y de los WebClient salientes (CudaServiceClient).
+ * Con `transport.native=true` usa io_uring si el kernel lo permite y si no epoll;
+ * fuera de Linux, o si la librería nativa no carga, sigue con NIO. Por defecto NIO.
+ */
+@Configuration
+open class NettyTransportConfig(
+    @Value("\${transport.native:false}")
+    private val preferNative: Boolean
+) {
+
+    private val log = LoggerFactory.getLogger(NettyTransportConfig::class.java)
+
+    @Bean
+    open fun serverTransportCustomizer(): NettyServerCustomizer {
+        val loops = HttpResources.get()
+        log.info("🚀 Transporte de red (native={}): {}", preferNative,
+            loops.onChannelClass(ServerSocketChannel::class.java, loops.onServer(preferNative)).simpleName)
+        return NettyServerCustomizer { server -> server.runOn(loops, preferNative) }
+    }
+
+    @Bean
+    open fun clientHttpConnector(): ReactorClientHttpConnector {
+        return ReactorClientHttpConnector(HttpClient.create().runOn(HttpResources.get(), preferNative))
+    }
+}
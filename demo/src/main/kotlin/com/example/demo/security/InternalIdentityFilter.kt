@@ -0,0 +1,60 @@
+package com.example.demo.security
+
+import org.slf4j.LoggerFactory
+import org.springframework.boot.context.properties.EnableConfigurationProperties
+import org.springframework.http.HttpStatus
+import org.springframework.stereotype.Component
+import org.springframework.web.server.ServerWebExchange
+import org.springframework.web.server.WebFilter
+import org.springframework.web.server.WebFilterChain
+import reactor.core.publisher.Mono
+
+/**
+ * Acepta sólo peticiones con identidad interna válida del gateway y fija los
+ * headers X-User-* a partir de ella, de modo que los controladores no pueden
+ * recibir valores puestos por el cliente.
+ */
+@Component
+@EnableConfigurationProperties(InternalTokenProperties::class)
+class InternalIdentityFilter(
+    private val verifier: InternalTokenVerifier,
+    private val properties: InternalTokenProperties
+) : WebFilter {
+
+    private val log = LoggerFactory.getLogger(InternalIdentityFilter::class.java)
+
+    override fun filter(exchange: ServerWebExchange, chain: WebFilterChain): Mono<Void> {
+        val request = exchange.request
+        if (request.path.value().startsWith("/actuator")) {
+            return chain.filter(exchange)
+        }
+
+        val token = request.headers.getFirst(InternalTokenVerifier.HEADER)
+        if (token == null) {
+            return if (properties.required) unauthorized(exchange, "sin identidad interna") else chain.filter(exchange)
+        }
+        val identity = verifier.verify(token) ?: return unauthorized(exchange, "identidad interna inválida o expirada")
+
+        exchange.attributes[ATTRIBUTE] = identity
+        val mutated = request.mutate()
+            .headers { headers ->
+                headers.set("X-User-UID", identity.uid)
+                headers.set("X-User-Role", identity.role)
+                headers.set("X-Account-Id", identity.accountId)
+                headers.set("X-User-Email", identity.email)
+                headers.set("X-User-Name", identity.name)
+            }
+            .build()
+        return chain.filter(exchange.mutate().request(mutated).build())
+    }
+
+    private fun unauthorized(exchange: ServerWebExchange, reason: String): Mono<Void> {
+        log.warn("❌ Petición rechazada ({}): {}", reason, exchange.request.path)
+        exchange.response.statusCode = HttpStatus.UNAUTHORIZED
+        return exchange.response.setComplete()
+    }
+
+    companion object {
+        val ATTRIBUTE: String = InternalIdentity::class.java.name
+    }
+}
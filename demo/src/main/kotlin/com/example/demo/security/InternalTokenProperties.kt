@@ -0,0 +1,12 @@
+package com.example.demo.security
+
+import org.springframework.boot.context.properties.ConfigurationProperties
+
+@ConfigurationProperties(prefix = "internal-token")
+data class InternalTokenProperties(
+    // Sin identidad interna se responde 401 (salvo /actuator)
+    val required: Boolean = true,
+    // key-id → secreto HMAC en base64; varias claves permiten rotar sin cortar tráfico
+    val secrets: Map<String, String> = emptyMap(),
+    val cacheMaxSize: Long = 20_000
+)
@@ -0,0 +1,107 @@
+package com.example.demo.security
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import org.springframework.stereotype.Component
+import java.security.MessageDigest
+import java.time.Duration
+import java.util.Base64
+import javax.crypto.Mac
+import javax.crypto.spec.SecretKeySpec
+
+data class InternalIdentity(
+    val uid: String,
+    val role: String,
+    val accountId: String,
+    val email: String,
+    val name: String,
+    // Segundos epoch
+    val expiresAt: Long
+)
+
+/**
+ * Verifica el token interno del gateway: kid.payload.firma en base64url, con
+ * HMAC-SHA256 de "kid.payload". Los tokens ya verificados se guardan hasta su
+ * expiración, así que lo normal es una consulta al cache por petición.
+ *
+ * Cada secreto tiene que ser base64 de al menos 32 bytes; si falta alguno (o
+ * ninguno está configurado con required) el servicio no arranca.
+ */
+@Component
+class InternalTokenVerifier(properties: InternalTokenProperties) {
+
+    private val keys: Map<String, SecretKeySpec> = properties.secrets.mapValues { (keyId, secret) ->
+        SecretKeySpec(decodeSecret(keyId, secret), "HmacSHA256")
+    }
+
+    init {
+        check(!properties.required || keys.isNotEmpty()) {
+            "Falta internal-token.secrets (INTERNAL_TOKEN_SECRET) y internal-token.required=true"
+        }
+    }
+
+    // El gateway emite tokens de 60 s como mucho; exp se comprueba además en cada lectura
+    private val verified: Cache<String, InternalIdentity> = Caffeine.newBuilder()
+        .maximumSize(properties.cacheMaxSize)
+        .expireAfterWrite(Duration.ofMinutes(2))
+        .build()
+
+    fun verify(token: String): InternalIdentity? {
+        val now = System.currentTimeMillis() / 1000
+        verified.getIfPresent(token)?.let { return if (it.expiresAt > now) it else null }
+
+        val identity = parse(token) ?: return null
+        if (identity.expiresAt <= now) {
+            return null
+        }
+        verified.put(token, identity)
+        return identity
+    }
+
+    private fun parse(token: String): InternalIdentity? {
+        val firstDot = token.indexOf('.')
+        val lastDot = token.lastIndexOf('.')
+        if (firstDot <= 0 || lastDot == firstDot) {
+            return null
+        }
+        val key = keys[token.substring(0, firstDot)] ?: return null
+
+        val mac = Mac.getInstance("HmacSHA256").apply { init(key) }
+        val expected = mac.doFinal(token.substring(0, lastDot).toByteArray(Charsets.US_ASCII))
+        return try {
+            val signature = Base64.getUrlDecoder().decode(token.substring(lastDot + 1))
+            if (!MessageDigest.isEqual(expected, signature)) {
+                return null
+            }
+            val fields = String(Base64.getUrlDecoder().decode(token.substring(firstDot + 1, lastDot)), Charsets.UTF_8)
+                .split(SEPARATOR)
+            if (fields.size != 6) {
+                return null
+            }
+            InternalIdentity(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5].toLongOrNull() ?: return null)
+        } catch (e: IllegalArgumentException) {
+            null
+        }
+    }
+
+    companion object {
+        const val HEADER = "X-Internal-Identity"
+        private const val SEPARATOR = '\u001F'
+
+        // Lo que pide HMAC-SHA256 para no debilitar la firma (RFC 2104)
+        const val MIN_SECRET_BYTES = 32
+
+        private fun decodeSecret(keyId: String, secret: String): ByteArray {
+            check(secret.isNotBlank()) { "Falta internal-token.secrets.$keyId (INTERNAL_TOKEN_SECRET)" }
+            val bytes = try {
+                Base64.getDecoder().decode(secret.trim())
+            } catch (e: IllegalArgumentException) {
+                throw IllegalStateException("internal-token.secrets.$keyId no es base64 válido", e)
+            }
+            check(bytes.size >= MIN_SECRET_BYTES) {
+                "internal-token.secrets.$keyId tiene ${bytes.size} bytes; se necesitan al menos $MIN_SECRET_BYTES"
+            }
+            return bytes
+        }
+    }
+}
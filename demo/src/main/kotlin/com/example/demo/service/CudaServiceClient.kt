@@ -3,6 +3,7 @@ package com.example.demo.service
 import org.springframework.beans.factory.annotation.Value
 import org.springframework.core.io.buffer.DataBufferUtils
 import org.springframework.http.MediaType
+import org.springframework.http.client.reactive.ReactorClientHttpConnector
 import org.springframework.http.client.MultipartBodyBuilder
 import org.springframework.stereotype.Component
 import org.springframework.web.reactive.function.BodyInserters
@@ -12,10 +13,12 @@ import reactor.core.publisher.Mono
 @Component
 class CudaServiceClient(
     @Value("\${cuda.service.url}")
-    private val cudaServiceUrl: String
+    private val cudaServiceUrl: String,
+    connector: ReactorClientHttpConnector
 ) {
     private val webClient = WebClient.builder()
         .baseUrl(cudaServiceUrl)
+        .clientConnector(connector)
         .build()
 
     fun getAvailableFilters(): Mono<Map<String, Any>> {
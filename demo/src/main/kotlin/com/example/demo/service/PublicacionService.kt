@@ -2,9 +2,13 @@ package com.example.demo.service
 
 import com.example.demo.model.entities.Publicacion
 import com.example.demo.model.responses.PublicacionResponse
-
+import com.example.demo.support.monoOf
+import com.google.api.core.ApiFutures
+import com.google.cloud.firestore.DocumentSnapshot
+import com.google.cloud.firestore.FieldValue
 import com.google.cloud.firestore.Firestore
 import com.google.cloud.firestore.Query
+import com.google.common.util.concurrent.MoreExecutors
 import org.springframework.stereotype.Service
 import reactor.core.publisher.Flux
 import reactor.core.publisher.Mono
@@ -35,7 +39,7 @@ class PublicacionService(
                 }
             }
             .flatMap { processedBytes ->
-                // Subir a Firebase Storage
+                // Subir a Firebase Storage (cliente bloqueante: sigue en boundedElastic)
                 storageService.uploadImage(processedBytes, "publicaciones")
                     .subscribeOn(Schedulers.boundedElastic())
             }
@@ -53,143 +57,118 @@ class PublicacionService(
                     createdAt = System.currentTimeMillis()
                 )
 
-                Mono.fromCallable {
+                monoOf {
                     firestore.collection(collectionName)
                         .document(uuid)
                         .set(publicacion)
-                        .get()
-                    publicacion
-                }.subscribeOn(Schedulers.boundedElastic())
+                }.thenReturn(publicacion)
             }
             .map { toResponse(it) }
     }
 
     fun getPublicacionesByAccount(accountId: String): Flux<PublicacionResponse> {
-        return Mono.fromCallable {
+        return monoOf {
             firestore.collection(collectionName)
                 .whereEqualTo("accountId", accountId)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
                 .get()
-                .get()
-                .documents
         }
-            .subscribeOn(Schedulers.boundedElastic())
-            .flatMapMany { Flux.fromIterable(it) }
+            .flatMapMany { Flux.fromIterable(it.documents) }
             .mapNotNull { doc ->
                 doc.toObject(Publicacion::class.java)?.let { toResponse(it) }
             }
     }
 
     fun getFeed(limit: Int = 50): Flux<PublicacionResponse> {
-        return Mono.fromCallable {
+        return monoOf {
             firestore.collection(collectionName)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
                 .limit(limit)
                 .get()
-                .get()
-                .documents
         }
-            .subscribeOn(Schedulers.boundedElastic())
-            .flatMapMany { Flux.fromIterable(it) }
+            .flatMapMany { Flux.fromIterable(it.documents) }
             .mapNotNull { doc ->
                 doc.toObject(Publicacion::class.java)?.let { toResponse(it) }
             }
     }
 
     fun darLike(publicacionId: String): Mono<PublicacionResponse> {
-        return Mono.fromCallable {
-            val docRef = firestore.collection(collectionName).document(publicacionId)
-            firestore.runTransaction { transaction ->
-                val snapshot = transaction.get(docRef).get()
-                val likesActuales = snapshot.getLong("likes") ?: 0
-                transaction.update(docRef, "likes", likesActuales + 1)
-            }.get()
-
-            docRef.get().get().toObject(Publicacion::class.java)!!
-        }
-            .subscribeOn(Schedulers.boundedElastic())
-            .map { toResponse(it) }
+        val docRef = firestore.collection(collectionName).document(publicacionId)
+        // El incremento es atómico en el servidor: no hace falta transacción
+        return monoOf { docRef.update("likes", FieldValue.increment(1)) }
+            .then(monoOf { docRef.get() })
+            .map { toResponse(it.toObject(Publicacion::class.java)!!) }
     }
 
     fun quitarLike(publicacionId: String): Mono<PublicacionResponse> {
-        return Mono.fromCallable {
-            val docRef = firestore.collection(collectionName).document(publicacionId)
-            firestore.runTransaction { transaction ->
-                val snapshot = transaction.get(docRef).get()
-                val likesActuales = snapshot.getLong("likes") ?: 0
-                if (likesActuales > 0) {
-                    transaction.update(docRef, "likes", likesActuales - 1)
-                }
-            }.get()
-
-            docRef.get().get().toObject(Publicacion::class.java)!!
+        val docRef = firestore.collection(collectionName).document(publicacionId)
+        return monoOf {
+            firestore.runAsyncTransaction { transaction ->
+                ApiFutures.transform(transaction.get(docRef), { snapshot ->
+                    val likesActuales = snapshot.getLong("likes") ?: 0
+                    if (likesActuales > 0) {
+                        transaction.update(docRef, "likes", likesActuales - 1)
+                    }
+                    likesActuales
+                }, MoreExecutors.directExecutor())
+            }
         }
-            .subscribeOn(Schedulers.boundedElastic())
-            .map { toResponse(it) }
+            .then(monoOf { docRef.get() })
+            .map { toResponse(it.toObject(Publicacion::class.java)!!) }
     }
 
     fun agregarComentario(publicacionId: String, comentario: String): Mono<PublicacionResponse> {
-        return Mono.fromCallable {
-            val docRef = firestore.collection(collectionName).document(publicacionId)
-            firestore.runTransaction { transaction ->
-                val snapshot = transaction.get(docRef).get()
-                val comentarios = snapshot.get("comentarios") as? MutableList<String> ?: mutableListOf()
-                comentarios.add(comentario)
-                transaction.update(docRef, "comentarios", comentarios)
-            }.get()
-
-            docRef.get().get().toObject(Publicacion::class.java)!!
+        val docRef = firestore.collection(collectionName).document(publicacionId)
+        return monoOf {
+            firestore.runAsyncTransaction { transaction ->
+                ApiFutures.transform(transaction.get(docRef), { snapshot ->
+                    @Suppress("UNCHECKED_CAST")
+                    val comentarios = snapshot.get("comentarios") as? MutableList<String> ?: mutableListOf()
+                    comentarios.add(comentario)
+                    transaction.update(docRef, "comentarios", comentarios)
+                    comentarios.size
+                }, MoreExecutors.directExecutor())
+            }
         }
-            .subscribeOn(Schedulers.boundedElastic())
-            .map { toResponse(it) }
+            .then(monoOf { docRef.get() })
+            .map { toResponse(it.toObject(Publicacion::class.java)!!) }
     }
 
     fun getPublicacionById(publicacionId: String): Mono<PublicacionResponse> {
-        return Mono.fromCallable {
-            val docRef = firestore.collection(collectionName).document(publicacionId)
-            val snapshot = docRef.get().get()
-
-            if (!snapshot.exists()) {
-                throw RuntimeException("Publicación no encontrada")
-            }
-
-            snapshot.toObject(Publicacion::class.java)!!
-        }
-            .subscribeOn(Schedulers.boundedElastic())
-            .map { toResponse(it) }
+        return monoOf { firestore.collection(collectionName).document(publicacionId).get() }
+            .map { toResponse(existing(it)) }
     }
 
     fun cambiarDescripcion(publicacionId: String, descripcion: String): Mono<PublicacionResponse> {
-        return Mono.fromCallable {
-            val docRef = firestore.collection(collectionName).document(publicacionId)
-            docRef.update("description", descripcion).get()
-            docRef.get().get().toObject(Publicacion::class.java)!!
-        }
-            .subscribeOn(Schedulers.boundedElastic())
-            .map { toResponse(it) }
+        val docRef = firestore.collection(collectionName).document(publicacionId)
+        return monoOf { docRef.update("description", descripcion) }
+            .then(monoOf { docRef.get() })
+            .map { toResponse(it.toObject(Publicacion::class.java)!!) }
     }
 
     fun eliminarPublicacion(publicacionId: String): Mono<Boolean> {
-        return Mono.fromCallable {
-            val docRef = firestore.collection(collectionName).document(publicacionId)
-            val snapshot = docRef.get().get()
-
-            if (!snapshot.exists()) {
-                throw RuntimeException("Publicación no encontrada")
-            }
-
-            val publicacion = snapshot.toObject(Publicacion::class.java)!!
-
-            // Eliminar imagen de Storage si existe
-            publicacion.imageUrl?.let {
-                storageService.deleteImage(it)
+        val docRef = firestore.collection(collectionName).document(publicacionId)
+        return monoOf { docRef.get() }
+            .map { existing(it) }
+            .flatMap { publicacion ->
+                // Eliminar imagen de Storage si existe (cliente bloqueante: boundedElastic)
+                val imagen = publicacion.imageUrl?.let { url ->
+                    Mono.fromCallable { storageService.deleteImage(url) }
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then()
+                } ?: Mono.empty()
+
+                // Eliminar documento
+                imagen.then(monoOf { docRef.delete() })
             }
+            .thenReturn(true)
+    }
 
-            // Eliminar documento
-            docRef.delete().get()
-            true
+    private fun existing(snapshot: DocumentSnapshot): Publicacion {
+        if (!snapshot.exists()) {
+            throw RuntimeException("Publicación no encontrada")
         }
-            .subscribeOn(Schedulers.boundedElastic())
+        return snapshot.toObject(Publicacion::class.java)!!
     }
 
     private fun toResponse(publicacion: Publicacion): PublicacionResponse {
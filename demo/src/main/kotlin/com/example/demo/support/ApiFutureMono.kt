@@ -0,0 +1,31 @@
+package com.example.demo.support
+
+import com.google.api.core.ApiFuture
+import com.google.api.core.ApiFutureCallback
+import com.google.api.core.ApiFutures
+import com.google.common.util.concurrent.MoreExecutors
+import reactor.core.publisher.Mono
+
+/**
+ * Puente sin bloqueo entre los [ApiFuture] de Firestore y Reactor: el Mono se
+ * completa desde el callback del futuro, sin un hilo esperando en `get()`.
+ * Un resultado `null` da un Mono vacío y cancelar el Mono cancela el futuro.
+ *
+ * El callback corre en el hilo de Firestore que completa el futuro, así que lo
+ * que venga detrás tiene que ser trabajo corto (mapear el documento, etc.).
+ */
+fun <T : Any> ApiFuture<T>.toMono(): Mono<T> = Mono.create { sink ->
+    ApiFutures.addCallback(this, object : ApiFutureCallback<T?> {
+        override fun onSuccess(result: T?) {
+            if (result == null) sink.success() else sink.success(result)
+        }
+
+        override fun onFailure(t: Throwable) {
+            sink.error(t)
+        }
+    }, MoreExecutors.directExecutor())
+    sink.onCancel { cancel(false) }
+}
+
+/** Como [toMono], pero la llamada se lanza al suscribirse (igual que `Mono.fromCallable`). */
+fun <T : Any> monoOf(call: () -> ApiFuture<T>): Mono<T> = Mono.defer { call().toMono() }
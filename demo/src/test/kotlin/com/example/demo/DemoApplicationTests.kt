@@ -3,7 +3,7 @@ package com.example.demo
 import org.junit.jupiter.api.Test
 import org.springframework.boot.test.context.SpringBootTest
 
-@SpringBootTest
+@SpringBootTest(properties = ["internal-token.secrets.v1=Qh4w7OLmmgE3f3LXqnrDLL69uOcw2is94iP7DgsQYdI="])
 class DemoApplicationTests {
 
 	@Test
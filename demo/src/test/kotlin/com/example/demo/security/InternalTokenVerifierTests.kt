@@ -0,0 +1,47 @@
+package com.example.demo.security
+
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNull
+
+class InternalTokenVerifierTests {
+
+	// Tokens con el formato del gateway (InternalTokenIssuer), exp 2100-01-01 y 2023-11-14
+	private val valid = "v1.dWlkLTEyMx9VU0VSH2FjYy05H2FuYUBleGFtcGxlLmNvbR9BbmEgUMOpcmV6HzQxMDI0NDQ4MDA" +
+		".QbO4OgUAHo6JGTqY96abau_AdQVE4LFGCFzz51kohto"
+	private val expired = "v1.dWlkLTEyMx9VU0VSH2FjYy05H2FuYUBleGFtcGxlLmNvbR9BbmEgUMOpcmV6HzE3MDAwMDAwMDA" +
+		".vqkxocM2y0zos-oyTdu6btQOOxUDeAhlck6T6CzPxAg"
+
+	private val verifier = InternalTokenVerifier(
+		InternalTokenProperties(secrets = mapOf("v1" to "pNr/yw7qzLACP3mgSaquuQr1vr85/q9AR1i4o0hiw1Q="))
+	)
+
+	@Test
+	fun acceptsGatewayToken() {
+		val identity = verifier.verify(valid)
+		assertEquals(InternalIdentity("uid-123", "USER", "acc-9", "ana@example.com", "Ana Pérez", 4102444800), identity)
+		// Segunda vez desde el cache
+		assertEquals(identity, verifier.verify(valid))
+	}
+
+	@Test
+	fun rejectsExpiredTamperedAndUnknownKey() {
+		assertNull(verifier.verify(expired))
+		assertNull(verifier.verify(valid.replace(".QbO4", ".QbO5")))
+		assertNull(verifier.verify(valid.replaceFirst("v1.", "v2.")))
+		assertNull(verifier.verify("basura"))
+	}
+
+	@Test
+	fun refusesMissingOrShortSecret() {
+		assertFailsWith<IllegalStateException> { InternalTokenVerifier(InternalTokenProperties()) }
+		assertFailsWith<IllegalStateException> {
+			InternalTokenVerifier(InternalTokenProperties(secrets = mapOf("v1" to "")))
+		}
+		// 16 bytes
+		assertFailsWith<IllegalStateException> {
+			InternalTokenVerifier(InternalTokenProperties(secrets = mapOf("v1" to "c2VjcmV0by1kZS0xNmJ5dA==")))
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.demo.support
+
+import com.google.api.core.ApiFuture
+import com.google.api.core.SettableApiFuture
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+import reactor.core.publisher.Flux
+import reactor.core.publisher.Mono
+import reactor.core.scheduler.Schedulers
+import reactor.test.StepVerifier
+import java.time.Duration
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class ApiFutureMonoTests {
+
+	private val firestoreThreads = Executors.newSingleThreadScheduledExecutor()
+
+	@AfterEach
+	fun tearDown() {
+		firestoreThreads.shutdownNow()
+	}
+
+	@Test
+	fun completesFromTheCallback() {
+		val future = SettableApiFuture.create<String>()
+		StepVerifier.create(future.toMono())
+			.then { future.set("ok") }
+			.expectNext("ok")
+			.verifyComplete()
+	}
+
+	@Test
+	fun nullIsEmptyAndFailuresPropagate() {
+		StepVerifier.create(SettableApiFuture.create<String>().apply { set(null) }.toMono())
+			.verifyComplete()
+		StepVerifier.create(SettableApiFuture.create<String>().apply { setException(IllegalStateException("x")) }.toMono())
+			.verifyError(IllegalStateException::class.java)
+	}
+
+	@Test
+	fun monoOfIsLazyAndCancellationCancelsTheFuture() {
+		val calls = AtomicInteger()
+		val future = SettableApiFuture.create<String>()
+		val mono = monoOf { calls.incrementAndGet(); future }
+		assertEquals(0, calls.get())
+
+		mono.subscribe().dispose()
+		assertEquals(1, calls.get())
+		assertTrue(future.isCancelled)
+	}
+
+	/**
+	 * Con `get()` en boundedElastic nunca hay más llamadas en vuelo que hilos
+	 * del pool (10 × núcleos); con el puente todas esperan a la vez.
+	 */
+	@Test
+	fun sustainsConcurrencyBeyondTheElasticPoolCap() {
+		val calls = 2_000
+		val latency = Duration.ofMillis(100)
+
+		val bridged = InFlight()
+		Flux.range(0, calls)
+			.flatMap({ monoOf { bridged.call(latency) } }, calls)
+			.blockLast(Duration.ofSeconds(30))
+
+		val blocking = InFlight()
+		Flux.range(0, Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE * 4)
+			.flatMap({ Mono.fromCallable { blocking.call(latency).get() }.subscribeOn(Schedulers.boundedElastic()) }, calls)
+			.blockLast(Duration.ofSeconds(30))
+
+		assertEquals(calls, bridged.max.get())
+		assertTrue(blocking.max.get() <= Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE)
+	}
+
+	/** Simula una llamada de Firestore que responde tras `latency` desde otro hilo. */
+	private inner class InFlight {
+		val current = AtomicInteger()
+		val max = AtomicInteger()
+
+		fun call(latency: Duration): ApiFuture<String> {
+			max.accumulateAndGet(current.incrementAndGet()) { a, b -> maxOf(a, b) }
+			val future = SettableApiFuture.create<String>()
+			firestoreThreads.schedule({
+				current.decrementAndGet()
+				future.set("doc")
+			}, latency.toMillis(), TimeUnit.MILLISECONDS)
+			return future
+		}
+	}
+}
@@ -1,22 +1,162 @@
 package com.compuinside.gateway.client;
 
-import lombok.RequiredArgsConstructor;
+import com.compuinside.gateway.config.DownstreamHttpClients;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cliente de /internal/tokens/check que agrupa las comprobaciones concurrentes.
+ *
+ * <p>Las peticiones se acumulan durante {@code batch-window} o hasta
+ * {@code max-batch-size} tokens y se resuelven con un único
+ * POST /internal/tokens/check/batch. Un token que ya está pendiente no se
+ * vuelve a encolar: todas las peticiones que lo esperan reciben el mismo
+ * resultado.
+ *
+ * <p>{@code base-url} es {@code lb://auth} (Eureka); las pruebas de carga con
+ * instancias de {@code spring.cloud.discovery.client.simple}, que no declaran
+ * esquema, lo cambian por {@code http://auth}.
+ */
 @Component
-@RequiredArgsConstructor
+@Slf4j
 public class AuthClientReactive {
-    private final WebClient.Builder webClientBuilder;
+
+    private static final ParameterizedTypeReference<Map<String, Boolean>> BATCH_RESULT =
+            new ParameterizedTypeReference<>() {};
+
+    private final WebClient webClient;
+    private final String batchUri;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+
+    private final Map<String, PendingCheck> inFlight = new ConcurrentHashMap<>();
+    private final Queue<PendingCheck> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final DistributionSummary batchSize;
+    private final Timer batchWait;
+    private final Counter coalesced;
+
+    public AuthClientReactive(
+            WebClient.Builder webClientBuilder,
+            DownstreamHttpClients downstreamHttpClients,
+            @Value("${auth.token-check.base-url:lb://auth}") String baseUrl,
+            @Value("${auth.token-check.batch-window:2ms}") Duration batchWindow,
+            @Value("${auth.token-check.max-batch-size:256}") int maxBatchSize,
+            MeterRegistry meterRegistry) {
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(downstreamHttpClients.connector("auth"))
+                .build();
+        this.batchUri = baseUrl + "/internal/tokens/check/batch";
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.maxBatchSize = maxBatchSize;
+
+        this.batchSize = DistributionSummary.builder("auth.token.check.batch.size")
+                .description("Tokens distintos por lote enviado a auth")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchWait = Timer.builder("auth.token.check.batch.wait")
+                .description("Espera de cada comprobación hasta que sale su lote")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("auth.token.check.coalesced")
+                .description("Comprobaciones resueltas por otra petición en curso con el mismo token")
+                .register(meterRegistry);
+    }
 
     public Mono<Boolean> isTokenValid(String token) {
-        return webClientBuilder.build()
-                .get()
-                .uri("lb://auth/internal/tokens/check?token={token}", token)
+        PendingCheck created = new PendingCheck(token);
+        PendingCheck pending = inFlight.putIfAbsent(token, created);
+        if (pending != null) {
+            coalesced.increment();
+            return pending.result.asMono();
+        }
+
+        queue.add(created);
+        if (queued.incrementAndGet() >= maxBatchSize) {
+            flush();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            Schedulers.parallel().schedule(this::flush, batchWindowNanos, TimeUnit.NANOSECONDS);
+        }
+        return created.result.asMono();
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        List<PendingCheck> batch = new ArrayList<>(Math.min(queued.get(), maxBatchSize));
+        PendingCheck next;
+        while (batch.size() < maxBatchSize && (next = queue.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (queued.addAndGet(-batch.size()) > 0 && flushScheduled.compareAndSet(false, true)) {
+            Schedulers.parallel().schedule(this::flush, batchWindowNanos, TimeUnit.NANOSECONDS);
+        }
+
+        long now = System.nanoTime();
+        List<String> tokens = new ArrayList<>(batch.size());
+        for (PendingCheck check : batch) {
+            batchWait.record(now - check.enqueuedAt, TimeUnit.NANOSECONDS);
+            tokens.add(check.token);
+        }
+        batchSize.record(batch.size());
+
+        webClient.post()
+                .uri(batchUri)
+                .bodyValue(tokens)
                 .retrieve()
-                .bodyToMono(Boolean.class);
+                .bodyToMono(BATCH_RESULT)
+                .defaultIfEmpty(Map.of())
+                .subscribe(
+                        result -> batch.forEach(check -> check.complete(result.getOrDefault(check.token, false))),
+                        error -> {
+                            log.error("❌ Error validando lote de {} tokens en auth: {}", batch.size(), error.getMessage());
+                            batch.forEach(check -> check.fail(error));
+                        });
     }
-}
 
+    private class PendingCheck {
+
+        private final String token;
+        private final long enqueuedAt = System.nanoTime();
+        private final Sinks.One<Boolean> result = Sinks.one();
 
+        private PendingCheck(String token) {
+            this.token = token;
+        }
+
+        private void complete(boolean valid) {
+            inFlight.remove(token, this);
+            result.tryEmitValue(valid);
+        }
+
+        private void fail(Throwable error) {
+            inFlight.remove(token, this);
+            result.tryEmitError(error);
+        }
+    }
+}
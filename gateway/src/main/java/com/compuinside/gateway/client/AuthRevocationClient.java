@@ -0,0 +1,195 @@
+package com.compuinside.gateway.client;
+
+import com.compuinside.gateway.config.DownstreamHttpClients;
+import com.compuinside.gateway.dto.TokenRevocation;
+import com.compuinside.gateway.service.TokenRevocationSet;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.retry.Retry;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Mantiene {@link TokenRevocationSet} al día con el stream SSE de auth.
+ *
+ * <p>Cada instancia de auth sólo emite las revocaciones que atiende ella, así
+ * que el gateway abre un stream con cada instancia que publica el
+ * {@link ReactiveDiscoveryClient} (sin balanceador: se habla con la URI de la
+ * instancia) y repasa la lista cada {@code discovery-interval}. Al conectar,
+ * la instancia envía "ready" y se descarga la lista completa; después cada
+ * evento "revoked" se aplica al momento. El conjunto sólo se da por
+ * sincronizado mientras todas las instancias conocidas tienen su stream
+ * activo; si una conexión cae se marca como no sincronizado y se reconecta con
+ * backoff. Si pasa {@code stream-timeout} sin recibir nada (ni el heartbeat)
+ * se da la conexión por muerta.
+ */
+@Component
+@Slf4j
+public class AuthRevocationClient {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> EVENT_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final WebClient webClient;
+    private final ReactiveDiscoveryClient discoveryClient;
+    private final TokenRevocationSet revocationSet;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final String serviceId;
+    private final Duration discoveryInterval;
+    private final Duration purgeInterval;
+    private final Duration streamTimeout;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    /** Stream abierto por URI de instancia. */
+    private final Map<URI, Disposable> streams = new ConcurrentHashMap<>();
+    /** Instancias cuyo stream está conectado y con la lista completa cargada. */
+    private final Set<URI> ready = ConcurrentHashMap.newKeySet();
+
+    public AuthRevocationClient(
+            DownstreamHttpClients downstreamHttpClients,
+            ReactiveDiscoveryClient discoveryClient,
+            TokenRevocationSet revocationSet,
+            ObjectMapper objectMapper,
+            @Value("${auth.revocation.enabled:true}") boolean enabled,
+            @Value("${auth.revocation.service-id:auth}") String serviceId,
+            @Value("${auth.revocation.discovery-interval:30s}") Duration discoveryInterval,
+            @Value("${auth.revocation.purge-interval:5m}") Duration purgeInterval,
+            @Value("${auth.revocation.stream-timeout:90s}") Duration streamTimeout) {
+        // Sin @LoadBalanced: cada stream va a una instancia concreta
+        this.webClient = WebClient.builder()
+                .clientConnector(downstreamHttpClients.connector("auth"))
+                .build();
+        this.discoveryClient = discoveryClient;
+        this.revocationSet = revocationSet;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.serviceId = serviceId;
+        this.discoveryInterval = discoveryInterval;
+        this.purgeInterval = purgeInterval;
+        this.streamTimeout = streamTimeout;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Revocaciones por SSE deshabilitadas, se consulta auth en cada petición");
+            return;
+        }
+
+        subscriptions.add(Flux.interval(Duration.ZERO, discoveryInterval)
+                .concatMap(tick -> discoveryClient.getInstances(serviceId)
+                        .collectList()
+                        .onErrorResume(e -> {
+                            log.warn("⚠️ No se pudieron listar las instancias de {}: {}", serviceId, e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe(this::reconcile));
+
+        subscriptions.add(Flux.interval(purgeInterval)
+                .subscribe(tick -> revocationSet.purgeExpired()));
+    }
+
+    /** Abre stream con las instancias nuevas y cierra el de las que ya no están. */
+    private synchronized void reconcile(List<ServiceInstance> instances) {
+        Set<URI> current = instances.stream()
+                .map(ServiceInstance::getUri)
+                .collect(Collectors.toSet());
+
+        streams.keySet().removeIf(uri -> {
+            if (current.contains(uri)) {
+                return false;
+            }
+            streams.get(uri).dispose();
+            ready.remove(uri);
+            log.info("🔌 Stream de revocaciones cerrado con {} (ya no está registrada)", uri);
+            return true;
+        });
+        for (URI uri : current) {
+            streams.computeIfAbsent(uri, this::connect);
+        }
+        updateSynced();
+    }
+
+    private Disposable connect(URI instance) {
+        log.info("🔌 Abriendo stream de revocaciones con {}", instance);
+        return webClient.get()
+                .uri(instance.resolve("/internal/tokens/revocations/stream"))
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .httpRequest(request -> request.<HttpClientRequest>getNativeRequest().responseTimeout(streamTimeout))
+                .retrieve()
+                .bodyToFlux(EVENT_TYPE)
+                .concatMap(event -> handle(instance, event))
+                .then(Mono.<Void>error(new IllegalStateException("auth cerró el stream de revocaciones")))
+                .doOnError(e -> {
+                    ready.remove(instance);
+                    updateSynced();
+                    log.warn("⚠️ Stream de revocaciones con {} desconectado: {}", instance, e.getMessage());
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .transientErrors(true))
+                .subscribe();
+    }
+
+    private Mono<Void> handle(URI instance, ServerSentEvent<String> event) {
+        if ("ready".equals(event.event())) {
+            return webClient.get()
+                    .uri(instance.resolve("/internal/tokens/revocations"))
+                    .retrieve()
+                    .bodyToFlux(TokenRevocation.class)
+                    .collectList()
+                    .doOnNext(revocations -> {
+                        revocationSet.load(revocations);
+                        ready.add(instance);
+                        updateSynced();
+                    })
+                    .then();
+        }
+        if ("revoked".equals(event.event()) && event.data() != null) {
+            try {
+                revocationSet.add(objectMapper.readValue(event.data(), TokenRevocation.class));
+            } catch (JsonProcessingException e) {
+                return Mono.error(e);
+            }
+        }
+        return Mono.empty();
+    }
+
+    private synchronized void updateSynced() {
+        if (!streams.isEmpty() && ready.containsAll(streams.keySet())) {
+            revocationSet.markSynced();
+        } else {
+            revocationSet.markOutOfSync();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscriptions.dispose();
+        streams.values().forEach(Disposable::dispose);
+    }
+}
@@ -0,0 +1,40 @@
+package com.compuinside.gateway.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pools de conexiones salientes por servicio ({@code gateway.downstream.<nombre>}).
+ * Un servicio sin entrada propia usa los valores por defecto de {@link Pool}.
+ */
+@ConfigurationProperties(prefix = "gateway")
+@Getter
+@Setter
+public class DownstreamClientProperties {
+
+    private Map<String, Pool> downstream = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Pool {
+
+        private int maxConnections = 100;
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictionInterval = Duration.ofSeconds(15);
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        /** Tiempo máximo sin recibir datos de la respuesta; {@code null} lo desactiva. */
+        private Duration responseTimeout = Duration.ofSeconds(5);
+        /** TCP keep-alive en las conexiones del pool. */
+        private boolean keepAlive = true;
+        /** HTTP/2 sin TLS (con fallback a HTTP/1.1); el servicio debe aceptarlo. */
+        private boolean h2c = false;
+    }
+}
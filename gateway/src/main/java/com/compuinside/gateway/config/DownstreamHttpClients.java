@@ -0,0 +1,79 @@
+package com.compuinside.gateway.config;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Un {@link ConnectionProvider} con nombre por servicio destino, creado una
+ * sola vez y compartido por todos los WebClient que hablan con ese servicio.
+ *
+ * <p>Los pools publican sus métricas en Micrometer
+ * ({@code reactor.netty.connection.provider.*}: conexiones activas, ociosas,
+ * pendientes y tiempo de adquisición), etiquetadas con el nombre del servicio.
+ */
+@Component
+@Slf4j
+public class DownstreamHttpClients implements DisposableBean {
+
+    private final DownstreamClientProperties properties;
+    private final NettyTransport transport;
+    private final Map<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+    private final Map<String, ReactorClientHttpConnector> connectors = new ConcurrentHashMap<>();
+
+    public DownstreamHttpClients(DownstreamClientProperties properties, NettyTransport transport) {
+        this.properties = properties;
+        this.transport = transport;
+        properties.getDownstream().keySet().forEach(this::connector);
+    }
+
+    /** Conector para el servicio {@code name}; se crea en la primera llamada. */
+    public ReactorClientHttpConnector connector(String name) {
+        return connectors.computeIfAbsent(name, key -> new ReactorClientHttpConnector(create(key)));
+    }
+
+    private HttpClient create(String name) {
+        DownstreamClientProperties.Pool pool = properties.getDownstream()
+                .getOrDefault(name, new DownstreamClientProperties.Pool());
+
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .metrics(true)
+                .build();
+        providers.put(name, provider);
+
+        HttpClient client = HttpClient.create(provider)
+                .runOn(transport.loops(), transport.preferNative())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, pool.isKeepAlive())
+                .keepAlive(true);
+        if (pool.getResponseTimeout() != null) {
+            client = client.responseTimeout(pool.getResponseTimeout());
+        }
+        if (pool.isH2c()) {
+            client = client.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        log.info("🔌 Pool '{}': max {} conexiones, {} en espera, h2c={}",
+                name, pool.getMaxConnections(), pool.getPendingAcquireMaxCount(), pool.isH2c());
+        return client;
+    }
+
+    @Override
+    public void destroy() {
+        providers.values().forEach(ConnectionProvider::dispose);
+    }
+}
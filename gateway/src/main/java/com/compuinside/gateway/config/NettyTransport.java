@@ -0,0 +1,49 @@
+package com.compuinside.gateway.config;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Transporte de red de reactor-netty para el servidor y para todos los
+ * clientes salientes (rutas proxy y {@link DownstreamHttpClients}).
+ *
+ * <p>Con {@code gateway.transport.native=true} se usa io_uring si el kernel lo
+ * permite y si no epoll; fuera de Linux, o si la librería nativa no carga, se
+ * sigue con NIO sin fallar. El orden lo decide reactor-netty. Por defecto NIO.
+ * Todos usan los event loops compartidos de {@link HttpResources}.
+ */
+@Component
+@Slf4j
+public class NettyTransport {
+
+    private final boolean preferNative;
+
+    public NettyTransport(@Value("${gateway.transport.native:false}") boolean preferNative) {
+        this.preferNative = preferNative;
+    }
+
+    public boolean preferNative() {
+        return preferNative;
+    }
+
+    public LoopResources loops() {
+        return HttpResources.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logTransport() {
+        EventLoopGroup server = loops().onServer(preferNative);
+        EventLoopGroup client = loops().onClient(preferNative);
+        log.info("🚀 Transporte de red (native={}): servidor {}, clientes {}", preferNative,
+                loops().onChannelClass(ServerSocketChannel.class, server).getSimpleName(),
+                loops().onChannelClass(SocketChannel.class, client).getSimpleName());
+    }
+}
@@ -0,0 +1,55 @@
+package com.compuinside.gateway.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class ResilienceConfig {
+
+    /**
+     * Cuenta las transiciones de estado de cada circuit breaker
+     * ({@code resilience4j.circuitbreaker.transitions} con tags from/to); el
+     * estado actual ya lo publica resilience4j como {@code resilience4j.circuitbreaker.state}.
+     */
+    @Bean
+    public RegistryEventConsumer<CircuitBreaker> circuitBreakerTransitionMetrics(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<CircuitBreaker> event) {
+                countTransitions(event.getAddedEntry(), meterRegistry);
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<CircuitBreaker> event) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<CircuitBreaker> event) {
+                countTransitions(event.getNewEntry(), meterRegistry);
+            }
+        };
+    }
+
+    private static void countTransitions(CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        circuitBreaker.getEventPublisher().onStateTransition(transition -> {
+            CircuitBreaker.StateTransition stateTransition = transition.getStateTransition();
+            log.warn("⚡ Circuit breaker {}: {}", circuitBreaker.getName(), stateTransition);
+            Counter.builder("resilience4j.circuitbreaker.transitions")
+                    .description("Transiciones de estado del circuit breaker")
+                    .tag("name", circuitBreaker.getName())
+                    .tag("from", stateTransition.getFromState().name())
+                    .tag("to", stateTransition.getToState().name())
+                    .register(meterRegistry)
+                    .increment();
+        });
+    }
+}
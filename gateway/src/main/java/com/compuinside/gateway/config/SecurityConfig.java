@@ -18,6 +18,8 @@ public class SecurityConfig {
                 .authorizeExchange(exchange -> exchange
                         .pathMatchers("/auth/**").permitAll()  // Permite autenticación sin token
                         .pathMatchers("/app/**").permitAll()
+                        // Sólo health es público; metrics/prometheus/gateway quedan detrás de autenticación
+                        .pathMatchers("/actuator/health/**").permitAll()
                         // Requiere autenticación
                         .anyExchange().authenticated()  // Cualquier otra ruta necesita autenticación
                 )
@@ -1,15 +1,49 @@
 package com.compuinside.gateway.config;
 
+import com.compuinside.gateway.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
 
+/**
+ * Todos los servicios {@code lb://} (rutas del gateway y este WebClient
+ * {@code @LoadBalanced}) usan el balanceador P2C por latencia en lugar del
+ * round robin por defecto.
+ */
 @Configuration
+@EnableConfigurationProperties(DownstreamClientProperties.class)
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
 public class WebClientConfig {
     @Bean
     @LoadBalanced
     public WebClient.Builder loadBalancedWebClientBuilder() {
         return WebClient.builder();
     }
+
+    /**
+     * Cliente de las rutas proxy (pool en spring.cloud.gateway.httpclient):
+     * TCP keep-alive para que las conexiones ociosas no las corte un NAT.
+     */
+    @Bean
+    public HttpClientCustomizer proxyKeepAliveCustomizer() {
+        return httpClient -> httpClient.option(ChannelOption.SO_KEEPALIVE, true);
+    }
+
+    /** Rutas proxy sobre el transporte elegido en gateway.transport.native. */
+    @Bean
+    public HttpClientCustomizer proxyTransportCustomizer(NettyTransport transport) {
+        return httpClient -> httpClient.runOn(transport.loops(), transport.preferNative());
+    }
+
+    /** El servidor del gateway, sobre el mismo transporte que los clientes. */
+    @Bean
+    public NettyServerCustomizer serverTransportCustomizer(NettyTransport transport) {
+        return httpServer -> httpServer.runOn(transport.loops(), transport.preferNative());
+    }
 }
@@ -0,0 +1,42 @@
+package com.compuinside.gateway.controller;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Destino de los {@code fallbackUri: forward:/fallback/<servicio>} de los
+ * circuit breakers: responde al momento en vez de dejar la conexión colgada.
+ * 503 si el circuito está abierto o el servicio falló, 504 si se agotó el tiempo.
+ */
+@RestController
+@RequestMapping("/fallback")
+public class FallbackController {
+
+    @RequestMapping("/{service}")
+    public ResponseEntity<Map<String, String>> fallback(@PathVariable String service, ServerWebExchange exchange) {
+        Throwable cause = exchange.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR);
+
+        HttpStatus status = cause instanceof TimeoutException ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.SERVICE_UNAVAILABLE;
+        String message = cause instanceof CallNotPermittedException
+                ? "Servicio " + service + " no disponible temporalmente"
+                : cause instanceof TimeoutException
+                ? "Servicio " + service + " no respondió a tiempo"
+                : "Servicio " + service + " con errores";
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (cause instanceof CallNotPermittedException) {
+            response.header(HttpHeaders.RETRY_AFTER, "10");
+        }
+        return response.body(Map.of("error", message, "service", service));
+    }
+}
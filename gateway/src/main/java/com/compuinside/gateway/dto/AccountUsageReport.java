@@ -0,0 +1,20 @@
+package com.compuinside.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Consumo de una cuenta en una ventana de medición, tal como se publica en el sink. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountUsageReport {
+    private String accountId;
+    private String plan;
+    /** Inicio y fin de la ventana en milisegundos epoch. */
+    private long windowStart;
+    private long windowEnd;
+    private long requests;
+    private long uploadedBytes;
+    private long filterInvocations;
+}
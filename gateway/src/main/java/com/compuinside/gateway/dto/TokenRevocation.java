@@ -0,0 +1,14 @@
+package com.compuinside.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Revocación publicada por auth en /internal/tokens/revocations. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocation {
+    private String digest;
+    private long expiresAt;
+}
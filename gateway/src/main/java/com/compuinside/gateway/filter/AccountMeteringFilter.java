@@ -0,0 +1,82 @@
+package com.compuinside.gateway.filter;
+
+import com.compuinside.gateway.jwt.FirebasePrincipal;
+import com.compuinside.gateway.metering.AccountMeter;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Cuenta en {@link AccountMeter} cada petición que pasa el límite de tasa,
+ * por accountId del principal de Firebase. Sin principal o sin accountId
+ * (rutas abiertas) no se mide nada.
+ *
+ * <p>Los bytes subidos salen de {@code Content-Length}; si el cuerpo va por
+ * chunks se cuentan a medida que se leen. Con {@code filter-invocations: true}
+ * cada petición de la ruta cuenta además como una invocación de filtro (las
+ * rutas de procesado de imágenes en GPU).
+ */
+@Component
+public class AccountMeteringFilter extends AbstractGatewayFilterFactory<AccountMeteringFilter.Config> {
+
+    /** Tras el límite de tasa: las peticiones rechazadas con 429 no se cobran. */
+    public static final int ORDER = PrincipalRateLimitFilter.ORDER + 1;
+
+    private final AccountMeter meter;
+
+    public AccountMeteringFilter(AccountMeter meter) {
+        super(Config.class);
+        this.meter = meter;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("filterInvocations");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        boolean filterInvocation = config.isFilterInvocations();
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            FirebasePrincipal principal = exchange.getAttribute(FirebasePrincipal.EXCHANGE_ATTRIBUTE);
+            String accountId = principal != null ? principal.getAccountId() : null;
+            if (accountId == null || accountId.isEmpty()) {
+                return chain.filter(exchange);
+            }
+
+            ServerHttpRequest request = exchange.getRequest();
+            HttpHeaders headers = request.getHeaders();
+            long contentLength = headers.getContentLength();
+            meter.record(accountId, principal.getPlan(), contentLength, filterInvocation);
+            if (contentLength >= 0 || !headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+                return chain.filter(exchange);
+            }
+
+            ServerHttpRequest counted = new ServerHttpRequestDecorator(request) {
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    return super.getBody().doOnNext(buffer ->
+                            meter.addUploadedBytes(accountId, principal.getPlan(), buffer.readableByteCount()));
+                }
+            };
+            return chain.filter(exchange.mutate().request(counted).build());
+        }, ORDER);
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+
+        private boolean filterInvocations;
+    }
+}
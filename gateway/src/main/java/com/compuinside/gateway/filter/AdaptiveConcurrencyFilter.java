@@ -0,0 +1,116 @@
+package com.compuinside.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limita las peticiones en curso hacia el servicio de la ruta con un
+ * {@link GradientLimit} que se ajusta solo según el RTT observado. Al superar
+ * el límite responde 503 al momento, antes de que se forme cola en el servicio.
+ *
+ * <p>Sólo las respuestas que no son 5xx aportan muestras de RTT; las
+ * cancelaciones del cliente y los errores liberan la plaza sin más.
+ * Métricas por {@code name}: {@code gateway.concurrency.limit},
+ * {@code gateway.concurrency.inflight} y {@code gateway.concurrency.rejected}.
+ *
+ * <p>El límite de cada {@code name} vive en la factoría: SCG vuelve a llamar a
+ * {@link #apply} en cada refresco de rutas y el límite aprendido y las
+ * peticiones en curso tienen que sobrevivir. Cambiar sus parámetros exige
+ * reiniciar el gateway.
+ */
+@Component
+@Slf4j
+public class AdaptiveConcurrencyFilter extends AbstractGatewayFilterFactory<AdaptiveConcurrencyFilter.Config> {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, GradientLimit> limits = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyFilter(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("name");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        GradientLimit limit = limits.computeIfAbsent(config.getName(), name -> create(config));
+        Counter rejected = Counter.builder("gateway.concurrency.rejected")
+                .description("Peticiones rechazadas con 503 por el límite adaptativo")
+                .tag("name", config.getName())
+                .register(meterRegistry);
+
+        return (exchange, chain) -> {
+            int inFlight = limit.tryAcquire();
+            if (inFlight < 0) {
+                rejected.increment();
+                log.warn("🚦 Límite de concurrencia de {} alcanzado ({}), rechazando {}",
+                        config.getName(), limit.getLimit(), exchange.getRequest().getPath());
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                return exchange.getResponse().setComplete();
+            }
+
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                if (signal == SignalType.ON_COMPLETE && (status == null || !status.is5xxServerError())) {
+                    limit.release(System.nanoTime() - start, inFlight);
+                } else {
+                    limit.release();
+                }
+            });
+        };
+    }
+
+    private GradientLimit create(Config config) {
+        GradientLimit limit = new GradientLimit(config.getInitialLimit(), config.getMinLimit(), config.getMaxLimit(),
+                config.getWindowSize(), config.getProbeWindows(), config.getTolerance(), config.getSmoothing());
+
+        Gauge.builder("gateway.concurrency.limit", limit, GradientLimit::getLimit)
+                .description("Peticiones simultáneas permitidas hacia el servicio")
+                .tag("name", config.getName())
+                .register(meterRegistry);
+        Gauge.builder("gateway.concurrency.inflight", limit, GradientLimit::getInFlight)
+                .description("Peticiones en curso hacia el servicio")
+                .tag("name", config.getName())
+                .register(meterRegistry);
+        return limit;
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+
+        private String name;
+        /** Conviene que empiece por debajo de la capacidad real: el RTT sin cola se mide con poca carga. */
+        private int initialLimit = 10;
+        private int minLimit = 2;
+        private int maxLimit = 500;
+        /** Muestras por ventana de RTT corto. */
+        private int windowSize = 10;
+        /** Cada cuántas ventanas se vuelve a medir el RTT sin cola. */
+        private int probeWindows = 1000;
+        /** Cuánto puede crecer el RTT sobre la referencia antes de reducir el límite. */
+        private double tolerance = 2.0;
+        private double smoothing = 0.2;
+    }
+}
@@ -0,0 +1,60 @@
+package com.compuinside.gateway.filter;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Bulkhead de semáforo por ruta ({@code resilience4j.bulkhead.instances.<name>}).
+ * Limita las peticiones simultáneas hacia el servicio; si no queda hueco
+ * responde 503 de inmediato en lugar de esperar.
+ *
+ * <p>{@code max-wait-duration} debe ser 0: la espera del semáforo bloquearía
+ * el event loop.
+ */
+@Component
+@Slf4j
+public class BulkheadFilter extends AbstractGatewayFilterFactory<BulkheadFilter.Config> {
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public BulkheadFilter(BulkheadRegistry bulkheadRegistry) {
+        super(Config.class);
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("name");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(config.getName());
+        return (exchange, chain) -> chain.filter(exchange)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .onErrorResume(BulkheadFullException.class, e -> {
+                    log.warn("🚧 Bulkhead {} lleno, rechazando {}", config.getName(), exchange.getRequest().getPath());
+                    exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                    exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                    return exchange.getResponse().setComplete();
+                });
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+        private String name;
+    }
+}
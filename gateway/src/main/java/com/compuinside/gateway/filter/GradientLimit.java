@@ -0,0 +1,109 @@
+package com.compuinside.gateway.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Límite de concurrencia adaptativo por gradiente de RTT (estilo Gradient2 de
+ * Netflix concurrency-limits).
+ *
+ * <p>Las muestras se agrupan en ventanas de {@code windowSize} peticiones. El
+ * RTT medio de cada ventana se compara con el mínimo de las ventanas
+ * anteriores (la latencia "sin cola", como en Vegas): si lo supera en más de
+ * {@code tolerance} veces, el gradiente baja de 1 y el límite se reduce; si no,
+ * el límite crece en {@code sqrt(límite)} (la cola admitida). El resultado se
+ * suaviza y se acota a [{@code minLimit}, {@code maxLimit}]. No crece si la
+ * ventana no llegó a usar la mitad del límite.
+ *
+ * <p>El mínimo se vuelve a aprender cada {@code probeWindows} ventanas para
+ * seguir cambios reales del servicio. Una media del RTT como referencia no
+ * sirve: si el servicio ya está saturado, la media sube con la cola y el
+ * límite no deja de crecer.
+ */
+final class GradientLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+    private final double tolerance;
+    private final double smoothing;
+    private final int probeWindows;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Estado de la ventana, protegido por this
+    private double estimatedLimit;
+    private long windowRttSum;
+    private int windowCount;
+    private int windowMaxInFlight;
+    private double noLoadRtt;
+    private int windowsSinceProbe;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit, int windowSize,
+                  int probeWindows, double tolerance, double smoothing) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowSize = windowSize;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.probeWindows = probeWindows;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /** @return el número de peticiones en curso incluyendo ésta, o -1 si se superó el límite */
+    int tryAcquire() {
+        int current = inFlight.incrementAndGet();
+        if (current > limit) {
+            inFlight.decrementAndGet();
+            return -1;
+        }
+        return current;
+    }
+
+    /** Libera la plaza sin aportar muestra (errores, cancelaciones). */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /** Libera la plaza y registra el RTT de una petición que entró con {@code inFlightAtStart} en curso. */
+    void release(long rttNanos, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        onSample(rttNanos, inFlightAtStart);
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        windowRttSum += rttNanos;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        if (++windowCount < windowSize) {
+            return;
+        }
+
+        double shortRtt = (double) windowRttSum / windowCount;
+        int maxInFlight = windowMaxInFlight;
+        windowRttSum = 0;
+        windowCount = 0;
+        windowMaxInFlight = 0;
+
+        if (windowsSinceProbe++ % probeWindows == 0 || shortRtt < noLoadRtt) {
+            noLoadRtt = shortRtt;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * noLoadRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        if (newLimit > estimatedLimit && maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
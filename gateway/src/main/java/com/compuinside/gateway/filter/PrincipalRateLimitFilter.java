@@ -0,0 +1,142 @@
+package com.compuinside.gateway.filter;
+
+import com.compuinside.gateway.jwt.FirebaseAuthFilter;
+import com.compuinside.gateway.jwt.FirebasePrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita las peticiones por usuario ({@code key: uid}) o por cuenta
+ * ({@code key: account}) con un {@link TokenBucket} por principal. Debe ir
+ * después de FirebaseAuthFilter en la ruta; sin principal (rutas abiertas) se
+ * limita por IP.
+ *
+ * <p>{@code capacity} y {@code refill-per-second} se configuran por ruta y
+ * {@code roles.<ROL>} los sustituye para ese rol. Los buckets viven en un
+ * cache de Caffeine por ruta y se descartan tras {@code idle-timeout} sin uso
+ * (nunca antes de que un bucket vacío haya tenido tiempo de rellenarse). El
+ * cache vive en la factoría y sobrevive a los refrescos de rutas, así que un
+ * cambio de límites sólo afecta a los buckets nuevos. Al superar el límite
+ * responde 429 con {@code Retry-After}.
+ *
+ * <p>Con {@code key: account} toda la cuenta comparte un bucket, con el límite
+ * del rol de quien lo creó; con {@code key: uid} (o por IP) el bucket va por
+ * rol y principal para que un cambio de rol empiece con su propio límite.
+ */
+@Component
+@Slf4j
+public class PrincipalRateLimitFilter extends AbstractGatewayFilterFactory<PrincipalRateLimitFilter.Config> {
+
+    /** Justo después de la autenticación y antes del cache de respuestas. */
+    public static final int ORDER = FirebaseAuthFilter.ORDER + 1;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Buckets por ruta. SCG vuelve a llamar a {@link #apply} en cada refresco
+     * de rutas (Eureka lo lanza cada 30s) y no deben perderse.
+     */
+    private final Map<String, Cache<String, TokenBucket>> routeBuckets = new ConcurrentHashMap<>();
+
+    public PrincipalRateLimitFilter(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Duration refillTime = config.getRoles().values().stream()
+                .map(Limit::refillTime)
+                .reduce(config.refillTime(), (a, b) -> a.compareTo(b) >= 0 ? a : b);
+        Duration idleTimeout = config.getIdleTimeout().compareTo(refillTime) >= 0 ? config.getIdleTimeout() : refillTime;
+
+        Cache<String, TokenBucket> buckets = routeBuckets.computeIfAbsent(config.getRouteId(), route -> Caffeine.newBuilder()
+                .maximumSize(config.getMaxKeys())
+                .expireAfterAccess(idleTimeout)
+                .build());
+        buckets.policy().eviction().ifPresent(eviction -> eviction.setMaximum(config.getMaxKeys()));
+        buckets.policy().expireAfterAccess().ifPresent(expiration -> expiration.setExpiresAfter(idleTimeout));
+        Counter rejected = Counter.builder("gateway.ratelimit.rejected")
+                .description("Peticiones rechazadas con 429 por límite de tasa")
+                .tag("key", config.getKey())
+                .register(meterRegistry);
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            FirebasePrincipal principal = exchange.getAttribute(FirebasePrincipal.EXCHANGE_ATTRIBUTE);
+            String role = principal != null ? principal.getRole() : null;
+            Limit limit = role != null ? config.getRoles().getOrDefault(role, config) : config;
+
+            String key = principalKey(config, principal, role, exchange);
+            long now = System.nanoTime();
+            long waitNanos = buckets.get(key, k -> new TokenBucket(limit.getCapacity(), limit.getRefillPerSecond(), now))
+                    .tryAcquire(now);
+            if (waitNanos == 0) {
+                return chain.filter(exchange);
+            }
+
+            rejected.increment();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            log.warn("🚦 Límite de tasa superado para {} en {}", key, exchange.getRequest().getPath());
+            exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            return exchange.getResponse().setComplete();
+        }, ORDER);
+    }
+
+    private static String principalKey(Config config, FirebasePrincipal principal, String role, ServerWebExchange exchange) {
+        if (principal != null) {
+            String accountId = principal.getAccountId();
+            if ("account".equals(config.getKey()) && accountId != null && !accountId.isEmpty()) {
+                return accountId;
+            }
+            return role + '|' + principal.getUid();
+        }
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return remote != null ? remote.getAddress().getHostAddress() : "anonymous";
+    }
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        private long capacity = 20;
+        private double refillPerSecond = 10;
+
+        /** Tiempo que tarda un bucket vacío en llenarse del todo. */
+        Duration refillTime() {
+            return Duration.ofNanos((long) (capacity / refillPerSecond * 1_000_000_000L));
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Config extends Limit implements HasRouteId {
+
+        /** {@code uid} o {@code account}. */
+        private String key = "uid";
+        private Map<String, Limit> roles = new HashMap<>();
+        private Duration idleTimeout = Duration.ofMinutes(10);
+        private long maxKeys = 100_000;
+        private String routeId;
+    }
+}
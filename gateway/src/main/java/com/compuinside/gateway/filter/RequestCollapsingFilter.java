@@ -0,0 +1,196 @@
+package com.compuinside.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Agrupa los GET idénticos que llegan mientras otro igual está en curso: sólo
+ * el primero (líder) llega al servicio y los demás reciben una copia de su
+ * respuesta, ya acumulada en memoria.
+ *
+ * <p>Dos peticiones son idénticas si coinciden ruta, query, los headers de
+ * {@code vary-headers} y, con {@code vary-by-principal}, el uid. Sólo se
+ * agrupan las rutas de {@code paths}. La respuesta no se comparte si trae
+ * {@code Set-Cookie}, es un 304 o supera {@code max-body-bytes}; en ese caso, o
+ * si el líder falla o se cancela, cada petición en espera sigue por su cuenta.
+ * Los headers que la petición en espera ya tenga (CORS, por ejemplo) no se
+ * sobrescriben con los del líder.
+ *
+ * <p>Va justo después de {@link ResponseCacheFilter}. Métricas:
+ * {@code gateway.collapse.requests} (result = leader, collapsed, fallback) y
+ * {@code gateway.collapse.fanout} (peticiones servidas por cada líder).
+ */
+@Component
+public class RequestCollapsingFilter extends AbstractGatewayFilterFactory<RequestCollapsingFilter.Config> {
+
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    /** El líder no pudo compartir su respuesta. */
+    private static final SharedResponse NOT_SHARED = new SharedResponse(null, null, null);
+
+    private final MeterRegistry meterRegistry;
+
+    public RequestCollapsingFilter(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<PathPattern> patterns = new ArrayList<>();
+        for (String path : config.getPaths()) {
+            patterns.add(PathPatternParser.defaultInstance.parse(path));
+        }
+        Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+        Counter leaders = requestCounter(config, "leader");
+        Counter collapsed = requestCounter(config, "collapsed");
+        Counter fallbacks = requestCounter(config, "fallback");
+        DistributionSummary fanout = DistributionSummary.builder("gateway.collapse.fanout")
+                .description("Peticiones servidas con una sola llamada al servicio")
+                .tag("name", config.getName())
+                .register(meterRegistry);
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!HttpMethod.GET.equals(request.getMethod())
+                    || patterns.stream().noneMatch(pattern -> pattern.matches(request.getPath().pathWithinApplication()))) {
+                return chain.filter(exchange);
+            }
+
+            String key = ResponseCacheFilter.requestKey(exchange, config.getVaryHeaders(), config.isVaryByPrincipal());
+            InFlight created = new InFlight();
+            InFlight leader = inFlight.putIfAbsent(key, created);
+
+            if (leader != null && leader.followers.getAndIncrement() >= 0) {
+                return leader.response.asMono().flatMap(shared -> {
+                    if (shared == NOT_SHARED) {
+                        fallbacks.increment();
+                        return chain.filter(exchange);
+                    }
+                    collapsed.increment();
+                    return write(exchange.getResponse(), shared);
+                });
+            }
+            if (leader != null) {
+                // El líder ya publicó su respuesta y se está retirando
+                return chain.filter(exchange);
+            }
+
+            leaders.increment();
+            CollapsingResponse response = new CollapsingResponse(exchange.getResponse(), config);
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> {
+                        inFlight.remove(key, created);
+                        // A partir de aquí nadie más se apunta a este líder
+                        int followers = created.followers.getAndSet(Integer.MIN_VALUE);
+                        fanout.record(followers + 1);
+                        created.response.tryEmitValue(response.shared != null ? response.shared : NOT_SHARED);
+                    });
+        }, ORDER);
+    }
+
+    private Counter requestCounter(Config config, String result) {
+        return Counter.builder("gateway.collapse.requests")
+                .description("GET agrupados: líderes que van al servicio, copias servidas y peticiones que siguieron por su cuenta")
+                .tag("name", config.getName())
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(shared.status());
+        HttpHeaders headers = response.getHeaders();
+        shared.headers().forEach(headers::putIfAbsent);
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        headers.setContentLength(shared.body().length);
+        headers.set("X-Collapsed", "true");
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    /** Líder en curso; {@code followers} pasa a negativo cuando ya no admite más. */
+    private static class InFlight {
+
+        private final AtomicInteger followers = new AtomicInteger();
+        private final Sinks.One<SharedResponse> response = Sinks.one();
+    }
+
+    /** Acumula la respuesta del líder para repartirla; el cliente del líder la recibe igual. */
+    private static class CollapsingResponse extends ServerHttpResponseDecorator {
+
+        private final Config config;
+        private volatile SharedResponse shared;
+
+        private CollapsingResponse(ServerHttpResponse delegate, Config config) {
+            super(delegate);
+            this.config = config;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            if (status == null || status.value() == HttpStatus.NOT_MODIFIED.value()
+                    || getHeaders().containsKey(HttpHeaders.SET_COOKIE)
+                    || getHeaders().getContentLength() > config.getMaxBodyBytes()) {
+                return super.writeWith(body);
+            }
+
+            return DataBufferUtils.join(body).flatMap(buffer -> {
+                byte[] bytes = new byte[buffer.readableByteCount()];
+                buffer.read(bytes);
+                DataBufferUtils.release(buffer);
+                if (bytes.length <= config.getMaxBodyBytes()) {
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.addAll(getHeaders());
+                    shared = new SharedResponse(status, headers, bytes);
+                }
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+
+        /** Nombre en las métricas. */
+        private String name = "collapse";
+        /** Patrones de ruta que se agrupan (sintaxis de PathPattern). */
+        private List<String> paths = new ArrayList<>();
+        private List<String> varyHeaders = new ArrayList<>();
+        private boolean varyByPrincipal = false;
+        private int maxBodyBytes = 1024 * 1024;
+    }
+}
@@ -0,0 +1,413 @@
+package com.compuinside.gateway.filter;
+
+import com.compuinside.gateway.jwt.FirebasePrincipal;
+import com.compuinside.gateway.util.TokenDigest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.Setter;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache en memoria de respuestas GET con ETag fuerte (SHA-256 del cuerpo) y
+ * soporte de {@code If-None-Match} → 304.
+ *
+ * <p>Sólo se cachean las rutas de {@code paths} con respuesta 200 sin
+ * {@code Set-Cookie} ni {@code Cache-Control: no-store/private}. La clave es
+ * la ruta con su query, más los headers de {@code vary-headers} y, con
+ * {@code vary-by-principal}, el uid. Un PUT/POST/PATCH/DELETE con éxito
+ * invalida las entradas de ese recurso, de sus subrecursos y de las rutas que
+ * lo contienen (los listados); el resto caduca con {@code ttl}.
+ *
+ * <p>Las escrituras que no comparten ruta con lo que cambian (dar like a
+ * {@code /obtener/{id}} por {@code /add/like?publicacionId=}) se declaran en
+ * {@code invalidations}: cada regla une un patrón de la escritura con un patrón
+ * cacheado, y se borran las entradas de este cuyas variables coinciden por
+ * nombre con las de la escritura (de la ruta o, si no, de la query). Una
+ * variable que la escritura no trae no restringe nada.
+ *
+ * <p>Un cuerpo sin {@code Content-Length} se acumula sólo hasta
+ * {@code max-entry-bytes}; si lo pasa se reenvía tal cual, sin ETag ni cache.
+ *
+ * <p>Tiene que decorar la respuesta antes que NettyWriteResponseFilter, así
+ * que va por delante de los filtros posicionales; la autenticación y el límite
+ * de tasa tienen un orden explícito anterior para no servir nada sin ellos.
+ * Métricas: {@code cache.*} con {@code cache=gateway.responses.<name>} (ratio
+ * de aciertos) y {@code gateway.response.cache.saved} en bytes.
+ *
+ * <p>El cache de cada {@code name} vive en la factoría: SCG vuelve a llamar a
+ * {@link #apply} en cada refresco de rutas y no debe vaciarse ni registrar
+ * otra vez sus métricas. Un refresco sólo ajusta {@code ttl} y
+ * {@code max-bytes} del cache existente.
+ */
+@Component
+public class ResponseCacheFilter extends AbstractGatewayFilterFactory<ResponseCacheFilter.Config> {
+
+    /** Antes que {@link RequestCollapsingFilter}: un acierto no necesita agrupar nada. */
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Cache<String, CachedResponse>> caches = new ConcurrentHashMap<>();
+
+    public ResponseCacheFilter(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<PathPattern> patterns = new ArrayList<>();
+        for (String path : config.getPaths()) {
+            patterns.add(PathPatternParser.defaultInstance.parse(path));
+        }
+        List<InvalidationRule> rules = new ArrayList<>();
+        for (Invalidation invalidation : config.getInvalidations()) {
+            rules.add(new InvalidationRule(
+                    invalidation.getMethod() != null ? HttpMethod.valueOf(invalidation.getMethod()) : null,
+                    PathPatternParser.defaultInstance.parse(invalidation.getPath()),
+                    PathPatternParser.defaultInstance.parse(invalidation.getEvicts())));
+        }
+
+        Cache<String, CachedResponse> cache = caches.computeIfAbsent(config.getName(), name -> create(config));
+        cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(config.getMaxBytes()));
+        cache.policy().expireAfterWrite().ifPresent(expiration -> expiration.setExpiresAfter(config.getTtl()));
+        Counter downstreamSaved = savedCounter(config, "downstream");
+        Counter clientSaved = savedCounter(config, "client");
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpMethod method = request.getMethod();
+
+            if (HttpMethod.GET.equals(method)) {
+                if (patterns.stream().noneMatch(pattern -> pattern.matches(request.getPath().pathWithinApplication()))) {
+                    return chain.filter(exchange);
+                }
+                String key = requestKey(exchange, config.getVaryHeaders(), config.isVaryByPrincipal());
+                CachedResponse cached = cache.getIfPresent(key);
+                if (cached != null) {
+                    downstreamSaved.increment(cached.body().length);
+                    return writeCached(exchange, cached, clientSaved);
+                }
+                CapturingResponse response = new CapturingResponse(exchange, key, cache, config, clientSaved);
+                return chain.filter(exchange.mutate().response(response).build());
+            }
+
+            if (HttpMethod.PUT.equals(method) || HttpMethod.POST.equals(method)
+                    || HttpMethod.PATCH.equals(method) || HttpMethod.DELETE.equals(method)) {
+                return chain.filter(exchange).doOnSuccess(done -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (status != null && status.is2xxSuccessful()) {
+                        String path = request.getPath().value();
+                        List<Eviction> evictions = evictions(rules, request);
+                        cache.asMap().keySet().removeIf(key -> {
+                            String cachedPath = keyPath(key);
+                            return related(cachedPath, path)
+                                    || evictions.stream().anyMatch(eviction -> eviction.matches(cachedPath));
+                        });
+                    }
+                });
+            }
+            return chain.filter(exchange);
+        }, ORDER);
+    }
+
+    private Cache<String, CachedResponse> create(Config config) {
+        Cache<String, CachedResponse> cache = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxBytes())
+                .weigher((String key, CachedResponse response) -> key.length() + response.body().length)
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.responses." + config.getName());
+        return cache;
+    }
+
+    private Counter savedCounter(Config config, String source) {
+        return Counter.builder("gateway.response.cache.saved")
+                .description("Bytes de respuesta que no hubo que pedir al servicio (downstream) o enviar al cliente (client, 304)")
+                .baseUnit("bytes")
+                .tag("cache", config.getName())
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /** Ruta con su query, más los headers indicados y, opcionalmente, el uid. */
+    static String requestKey(ServerWebExchange exchange, List<String> varyHeaders, boolean varyByPrincipal) {
+        ServerHttpRequest request = exchange.getRequest();
+        StringBuilder key = new StringBuilder(request.getPath().value());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        for (String header : varyHeaders) {
+            key.append('|').append(request.getHeaders().getFirst(header));
+        }
+        if (varyByPrincipal) {
+            FirebasePrincipal principal = exchange.getAttribute(FirebasePrincipal.EXCHANGE_ATTRIBUTE);
+            key.append('|').append(principal != null ? principal.getUid() : "");
+        }
+        return key.toString();
+    }
+
+    /** La ruta de una clave de {@link #requestKey}, sin query ni headers. */
+    private static String keyPath(String key) {
+        int end = key.length();
+        int query = key.indexOf('?');
+        int header = key.indexOf('|');
+        if (query >= 0) {
+            end = query;
+        }
+        if (header >= 0 && header < end) {
+            end = header;
+        }
+        return key.substring(0, end);
+    }
+
+    /** Misma ruta, o una contiene a la otra ({@code /a} y {@code /a/1}, pero no {@code /a1}). */
+    static boolean related(String cachedPath, String mutatedPath) {
+        return cachedPath.equals(mutatedPath) || within(mutatedPath, cachedPath) || within(cachedPath, mutatedPath);
+    }
+
+    private static boolean within(String path, String parent) {
+        String prefix = parent.endsWith("/") ? parent : parent + '/';
+        return path.startsWith(prefix);
+    }
+
+    /** Reglas de {@code invalidations} que casan con la escritura, con sus variables ya resueltas. */
+    private static List<Eviction> evictions(List<InvalidationRule> rules, ServerHttpRequest request) {
+        List<Eviction> evictions = new ArrayList<>();
+        for (InvalidationRule rule : rules) {
+            if (rule.method() != null && !rule.method().equals(request.getMethod())) {
+                continue;
+            }
+            PathPattern.PathMatchInfo match = rule.path().matchAndExtract(request.getPath().pathWithinApplication());
+            if (match == null) {
+                continue;
+            }
+            Map<String, String> variables = new HashMap<>(match.getUriVariables());
+            request.getQueryParams().forEach((name, values) -> {
+                if (!values.isEmpty()) {
+                    variables.putIfAbsent(name, values.get(0));
+                }
+            });
+            evictions.add(new Eviction(rule.evicts(), variables));
+        }
+        return evictions;
+    }
+
+    private static Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached, Counter clientSaved) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().setETag(cached.etag());
+        response.getHeaders().set("X-Cache", "HIT");
+        if (notModified(exchange.getRequest(), cached.etag())) {
+            clientSaved.increment(cached.body().length);
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        if (cached.contentType() != null) {
+            response.getHeaders().set(HttpHeaders.CONTENT_TYPE, cached.contentType());
+        }
+        if (cached.contentEncoding() != null) {
+            response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, cached.contentEncoding());
+        }
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    /** {@code If-None-Match} usa comparación débil: se ignora el prefijo {@code W/}. */
+    static boolean notModified(ServerHttpRequest request, String etag) {
+        List<String> values = request.getHeaders().get(HttpHeaders.IF_NONE_MATCH);
+        if (values == null) {
+            return false;
+        }
+        for (String value : values) {
+            for (String candidate : value.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*")) {
+                    return true;
+                }
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static String etag(byte[] body) {
+        try {
+            return '"' + TokenDigest.encode(MessageDigest.getInstance("SHA-256").digest(body)) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static boolean cacheable(HttpHeaders headers) {
+        if (headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        return cacheControl == null || !(cacheControl.contains("no-store") || cacheControl.contains("private"));
+    }
+
+    private record CachedResponse(byte[] body, String etag, String contentType, String contentEncoding) {
+    }
+
+    private record InvalidationRule(HttpMethod method, PathPattern path, PathPattern evicts) {
+    }
+
+    /** Entradas de {@code evicts} cuyas variables coinciden con las de la escritura. */
+    private record Eviction(PathPattern evicts, Map<String, String> variables) {
+
+        boolean matches(String cachedPath) {
+            PathPattern.PathMatchInfo match = evicts.matchAndExtract(PathContainer.parsePath(cachedPath));
+            if (match == null) {
+                return false;
+            }
+            for (Map.Entry<String, String> variable : match.getUriVariables().entrySet()) {
+                String value = variables.get(variable.getKey());
+                if (value != null && !value.equals(variable.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Acumula el cuerpo de la respuesta del servicio para calcular el ETag y cachearlo. */
+    private static class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String key;
+        private final Cache<String, CachedResponse> cache;
+        private final Config config;
+        private final Counter clientSaved;
+
+        private CapturingResponse(ServerWebExchange exchange, String key, Cache<String, CachedResponse> cache,
+                                  Config config, Counter clientSaved) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.cache = cache;
+            this.config = config;
+            this.clientSaved = clientSaved;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            if (status == null || status.value() != HttpStatus.OK.value()) {
+                return super.writeWith(body);
+            }
+            long contentLength = getHeaders().getContentLength();
+            if (contentLength > config.getMaxEntryBytes()) {
+                return super.writeWith(body);
+            }
+
+            // Sin Content-Length: se acumula hasta max-entry-bytes; el primer lote es el cuerpo entero o lo
+            // recibido hasta pasarse, y en ese caso se reenvía todo sin cachear
+            AtomicLong received = new AtomicLong();
+            return Flux.<DataBuffer>from(body)
+                    .bufferUntil(buffer -> received.addAndGet(buffer.readableByteCount()) > config.getMaxEntryBytes())
+                    .switchOnFirst((first, chunks) -> {
+                        if (!first.hasValue() || received.get() > config.getMaxEntryBytes()) {
+                            return super.writeWith(chunks.flatMapIterable(buffers -> buffers));
+                        }
+                        return chunks.next().flatMap(this::writeCaptured);
+                    })
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .then();
+        }
+
+        private Mono<Void> writeCaptured(List<DataBuffer> buffers) {
+            DataBuffer buffer = bufferFactory().join(buffers);
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            DataBufferUtils.release(buffer);
+
+            String etag = etag(bytes);
+            HttpHeaders headers = getHeaders();
+            headers.setETag(etag);
+            if (cacheable(headers)) {
+                cache.put(key, new CachedResponse(bytes, etag,
+                        headers.getFirst(HttpHeaders.CONTENT_TYPE), headers.getFirst(HttpHeaders.CONTENT_ENCODING)));
+            }
+            headers.set("X-Cache", "MISS");
+
+            if (notModified(exchange.getRequest(), etag)) {
+                clientSaved.increment(bytes.length);
+                setStatusCode(HttpStatus.NOT_MODIFIED);
+                headers.remove(HttpHeaders.CONTENT_LENGTH);
+                headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                return getDelegate().setComplete();
+            }
+            return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Config {
+
+        /** Nombre del cache en las métricas. */
+        private String name = "responses";
+        /** Patrones de ruta cacheables (sintaxis de PathPattern). */
+        private List<String> paths = new ArrayList<>();
+        private Duration ttl = Duration.ofSeconds(30);
+        private long maxBytes = 16 * 1024 * 1024;
+        private int maxEntryBytes = 256 * 1024;
+        private List<String> varyHeaders = new ArrayList<>();
+        private boolean varyByPrincipal = false;
+        /** Escrituras que invalidan rutas cacheadas distintas de la suya. */
+        private List<Invalidation> invalidations = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Invalidation {
+
+        /** Método de la escritura; sin valor vale cualquiera. */
+        private String method;
+        /** Patrón de la escritura (sintaxis de PathPattern). */
+        private String path;
+        /** Patrón cacheado que invalida; comparte variables por nombre con {@code path} o la query. */
+        private String evicts;
+    }
+}
@@ -0,0 +1,45 @@
+package com.compuinside.gateway.filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket sin locks, implementado como GCRA: el estado es un único
+ * {@code long} (el instante teórico en que el bucket vuelve a estar vacío de
+ * deuda) que se actualiza con CAS. El relleno es perezoso: no hay tareas de
+ * fondo, cada intento calcula cuántos tokens se han repuesto desde el último.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param capacity       ráfaga máxima (tokens con el bucket lleno)
+     * @param refillPerSecond tokens repuestos por segundo
+     */
+    TokenBucket(long capacity, double refillPerSecond, long now) {
+        this.intervalNanos = Math.max(1L, (long) (1_000_000_000L / refillPerSecond));
+        this.toleranceNanos = (capacity - 1) * intervalNanos;
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    /**
+     * Consume un token si hay disponible.
+     *
+     * @return 0 si se concedió, o los nanosegundos hasta que habrá uno
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long base = Math.max(current, now);
+            long wait = base - now - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(current, base + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
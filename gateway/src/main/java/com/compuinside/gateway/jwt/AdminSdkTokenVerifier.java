@@ -0,0 +1,38 @@
+package com.compuinside.gateway.jwt;
+
+import com.google.firebase.auth.AuthErrorCode;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verificación mediante el Admin SDK de Firebase. Bloquea: puede descargar
+ * los certificados de Google dentro de la propia petición.
+ */
+@Component
+@ConditionalOnProperty(name = "firebase.verifier", havingValue = "admin-sdk", matchIfMissing = true)
+@RequiredArgsConstructor
+public class AdminSdkTokenVerifier implements FirebaseTokenVerifier {
+
+    private final FirebaseAuth firebaseAuth;
+
+    @Override
+    public FirebasePrincipal verify(String token) {
+        try {
+            return FirebasePrincipal.from(firebaseAuth.verifyIdToken(token));
+        } catch (FirebaseAuthException e) {
+            // Si no se pudieron descargar los certificados el token puede ser válido: no se cachea
+            if (e.getAuthErrorCode() == AuthErrorCode.CERTIFICATE_FETCH_FAILED) {
+                throw new RuntimeException("No se pudo verificar el token: " + e.getMessage());
+            }
+            throw new InvalidTokenException("Token inválido o expirado: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+}
@@ -1,11 +1,13 @@
 package com.compuinside.gateway.jwt;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.FirebaseToken;
+import com.compuinside.gateway.metrics.GatewayMetrics;
+import com.compuinside.gateway.metrics.GatewayMetrics.Stage;
+import com.compuinside.gateway.metrics.GatewayMetrics.StageOutcome;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -18,11 +20,30 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class FirebaseAuthFilter extends AbstractGatewayFilterFactory<FirebaseAuthFilter.Config> {
 
+    /**
+     * Antes que cualquier filtro que pueda responder sin llegar al servicio
+     * (límite de tasa, cache de respuestas), que también van antes de
+     * NettyWriteResponseFilter.
+     */
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 20;
+
+    @Autowired
+    private FirebaseTokenVerifier tokenVerifier;
+
+    @Autowired
+    private RouteAuthorizationTable routeTable;
+
     @Autowired
-    private FirebaseAuth firebaseAuth;
+    private FirebaseTokenCache tokenCache;
 
     @Autowired
-    private RouteValidator routeValidator;
+    private TokenVerificationExecutor verificationExecutor;
+
+    @Autowired
+    private GatewayMetrics metrics;
+
+    @Autowired
+    private InternalTokenIssuer internalTokenIssuer;
 
     public FirebaseAuthFilter() {
         super(Config.class);
@@ -30,7 +51,7 @@ public class FirebaseAuthFilter extends AbstractGatewayFilterFactory<FirebaseAut
 
     @Override
     public GatewayFilter apply(Config config) {
-        return (exchange, chain) -> {
+        return new OrderedGatewayFilter((exchange, chain) -> {
             log.info(" Petición recibida en Gateway: {}", exchange.getRequest().getPath());
 
             // Permitir OPTIONS (CORS preflight)
@@ -40,7 +61,10 @@ public class FirebaseAuthFilter extends AbstractGatewayFilterFactory<FirebaseAut
             }
 
             // Verificar si la ruta requiere autenticación
-            if (routeValidator.isSecured.test(exchange.getRequest())) {
+            long authorizationStart = System.nanoTime();
+            RouteRule rule = routeTable.match(exchange.getRequest().getPath().value());
+            long authorizationNanos = System.nanoTime() - authorizationStart;
+            if (!rule.isOpen()) {
                 log.info("🔒 Ruta segura detectada: {}", exchange.getRequest().getPath());
 
                 String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
@@ -53,16 +77,21 @@ public class FirebaseAuthFilter extends AbstractGatewayFilterFactory<FirebaseAut
 
                 String token = authHeader.substring(7);
 
-                // Validar token de Firebase de forma reactiva
-                return validateFirebaseToken(token)
-                        .flatMap(firebaseToken -> {
-                            String uid = firebaseToken.getUid();
-                            String email = firebaseToken.getEmail();
-                            String name = firebaseToken.getName();
-
-                            // Extraer claims personalizados si existen
-                            String role = (String) firebaseToken.getClaims().getOrDefault("role", "USER");
-                            String accountId = (String) firebaseToken.getClaims().getOrDefault("accountId", "");
+                // Validar token de Firebase (primero contra el cache local)
+                long verificationStart = System.nanoTime();
+                return tokenCache.resolve(token, () -> validateFirebaseToken(token))
+                        .doOnSuccess(principal -> metrics.recordStage(exchange, Stage.FIREBASE_VERIFICATION,
+                                StageOutcome.SUCCESS, System.nanoTime() - verificationStart))
+                        .doOnError(e -> metrics.recordStage(exchange, Stage.FIREBASE_VERIFICATION,
+                                e instanceof TokenVerificationExecutor.VerificationRejectedException
+                                        ? StageOutcome.REJECTED : StageOutcome.UNAUTHORIZED,
+                                System.nanoTime() - verificationStart))
+                        .flatMap(principal -> {
+                            String uid = principal.getUid();
+                            String email = principal.getEmail();
+                            String name = principal.getName();
+                            String role = principal.getRole();
+                            String accountId = principal.getAccountId();
 
                             log.info("✅ Token válido para usuario: {}", email);
                             log.info("👤 UID: {}", uid);
@@ -76,15 +105,27 @@ public class FirebaseAuthFilter extends AbstractGatewayFilterFactory<FirebaseAut
                                     .header("X-User-Name", name != null ? name : "")
                                     .header("X-User-Role", role)
                                     .header("X-Account-Id", accountId)
+                                    // Identidad firmada: los servicios la verifican sin volver a Firebase
+                                    .headers(headers -> headers.set(InternalTokenIssuer.HEADER, internalTokenIssuer.issue(principal)))
                                     .build();
 
                             ServerWebExchange mutatedExchange = exchange.mutate()
                                     .request(mutatedRequest)
                                     .build();
+                            mutatedExchange.getAttributes().put(FirebasePrincipal.EXCHANGE_ATTRIBUTE, principal);
 
                             // Validar permisos de ruta según rol
-                            return validateRoutePermissions(mutatedExchange, role)
-                                    .then(chain.filter(mutatedExchange));
+                            if (!rule.allowsRole(role)) {
+                                metrics.recordStage(exchange, Stage.ROUTE_AUTHORIZATION, StageOutcome.FORBIDDEN, authorizationNanos);
+                                return forbidden(exchange, role);
+                            }
+                            metrics.recordStage(exchange, Stage.ROUTE_AUTHORIZATION, StageOutcome.SUCCESS, authorizationNanos);
+                            return chain.filter(mutatedExchange);
+                        })
+                        .onErrorResume(TokenVerificationExecutor.VerificationRejectedException.class, e -> {
+                            log.warn("⚠️ Verificación de tokens saturada, rechazando petición");
+                            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                            return exchange.getResponse().setComplete();
                         })
                         .onErrorResume(e -> {
                             log.error("❌ Error validando token: {}", e.getMessage());
@@ -94,41 +135,31 @@ public class FirebaseAuthFilter extends AbstractGatewayFilterFactory<FirebaseAut
             }
 
             // Ruta no protegida, continuar sin validación
+            metrics.recordStage(exchange, Stage.ROUTE_AUTHORIZATION, StageOutcome.SUCCESS, authorizationNanos);
             log.info("🔓 Ruta pública, continuando sin autenticación");
-            return chain.filter(exchange);
-        };
-    }
-
-
-    private Mono<FirebaseToken> validateFirebaseToken(String token) {
-        return Mono.fromCallable(() -> {
-            try {
-                return firebaseAuth.verifyIdToken(token);
-            } catch (FirebaseAuthException e) {
-                throw new RuntimeException("Token inválido o expirado: " + e.getMessage());
+            if (exchange.getRequest().getHeaders().containsKey(InternalTokenIssuer.HEADER)) {
+                // Sólo el gateway puede enviar identidad interna
+                return chain.filter(exchange.mutate()
+                        .request(r -> r.headers(headers -> headers.remove(InternalTokenIssuer.HEADER)))
+                        .build());
             }
-        });
+            return chain.filter(exchange);
+        }, ORDER);
     }
 
-    private Mono<Void> validateRoutePermissions(ServerWebExchange exchange, String role) {
-        String path = exchange.getRequest().getPath().toString();
 
-        // Ejemplo: Solo ADMIN puede acceder a rutas /admin/*
-        if (path.startsWith("/admin/") && !role.equals("ADMIN")) {
-            log.warn(" Acceso denegado: Usuario con rol {} intentó acceder a {}", role, path);
-            exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
-            return exchange.getResponse().setComplete();
-        }
-
-        // Ejemplo: Solo MODERATOR o ADMIN pueden eliminar publicaciones
-        if (path.matches(".*/publicacion/.*/delete") &&
-                !role.equals("ADMIN") && !role.equals("MODERATOR")) {
-            log.warn(" Acceso denegado: Rol {} no puede eliminar publicaciones", role);
-            exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
-            return exchange.getResponse().setComplete();
+    private Mono<FirebasePrincipal> validateFirebaseToken(String token) {
+        if (tokenVerifier.isBlocking()) {
+            // verifyIdToken bloquea (y puede descargar certificados): nunca en el event loop
+            return verificationExecutor.submit(() -> tokenVerifier.verify(token));
         }
+        return Mono.fromCallable(() -> tokenVerifier.verify(token));
+    }
 
-        return Mono.empty();
+    private Mono<Void> forbidden(ServerWebExchange exchange, String role) {
+        log.warn(" Acceso denegado: Usuario con rol {} intentó acceder a {}", role, exchange.getRequest().getPath());
+        exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+        return exchange.getResponse().setComplete();
     }
 
     public static class Config {
@@ -0,0 +1,170 @@
+package com.compuinside.gateway.jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Claves públicas con las que Google firma los ID tokens de Firebase
+ * (kid → PublicKey), descargadas en formato JWK.
+ *
+ * <p>Se cargan al arrancar y se refrescan en segundo plano según el
+ * {@code Cache-Control: max-age} de la respuesta, de modo que la verificación
+ * nunca hace I/O. Un {@code kid} desconocido dispara un refresco asíncrono
+ * (como mucho uno cada {@code min-refresh-interval}).
+ */
+@Component
+@ConditionalOnProperty(name = "firebase.verifier", havingValue = "local")
+@Slf4j
+public class FirebaseKeyStore implements DisposableBean {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final URI keysUri;
+    private final Duration minRefreshInterval;
+    private final Duration retryInterval;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "firebase-keys-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private final AtomicLong lastRefreshAttempt = new AtomicLong();
+
+    public FirebaseKeyStore(
+            @Value("${firebase.keys.url:https://www.googleapis.com/service_accounts/v1/jwk/securetoken@system.gserviceaccount.com}") String keysUrl,
+            @Value("${firebase.keys.min-refresh-interval:60s}") Duration minRefreshInterval,
+            @Value("${firebase.keys.retry-interval:30s}") Duration retryInterval) {
+        this.keysUri = URI.create(keysUrl);
+        this.minRefreshInterval = minRefreshInterval;
+        this.retryInterval = retryInterval;
+    }
+
+    /** Carga inicial síncrona; si falla, se reintenta en segundo plano sin impedir el arranque. */
+    @PostConstruct
+    public void start() {
+        scheduleNext(refreshQuietly());
+    }
+
+    public PublicKey getKey(String kid) {
+        PublicKey key = keys.get(kid);
+        if (key == null) {
+            long now = System.nanoTime();
+            long last = lastRefreshAttempt.get();
+            if (now - last >= minRefreshInterval.toNanos() && lastRefreshAttempt.compareAndSet(last, now)) {
+                log.info("🔑 kid desconocido {}, refrescando claves de Firebase", kid);
+                scheduler.execute(this::refreshQuietly);
+            }
+        }
+        return key;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Descarga las claves y reemplaza el mapa completo.
+     *
+     * @return el max-age anunciado por el servidor
+     */
+    public Duration refresh() throws IOException, InterruptedException {
+        lastRefreshAttempt.set(System.nanoTime());
+        HttpRequest request = HttpRequest.newBuilder(keysUri)
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Respuesta " + response.statusCode() + " al descargar claves de " + keysUri);
+        }
+
+        Map<String, PublicKey> parsed = parseJwks(response.body());
+        if (parsed.isEmpty()) {
+            throw new IOException("No se recibieron claves RSA desde " + keysUri);
+        }
+        keys = Map.copyOf(parsed);
+        log.info("🔑 {} claves de Firebase cargadas", parsed.size());
+
+        return response.headers().firstValue("Cache-Control")
+                .map(MAX_AGE::matcher)
+                .filter(Matcher::find)
+                .map(m -> Duration.ofSeconds(Long.parseLong(m.group(1))))
+                .orElse(minRefreshInterval);
+    }
+
+    private Duration refreshQuietly() {
+        try {
+            return refresh();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            log.error("❌ Error descargando claves de Firebase: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void scheduleNext(Duration maxAge) {
+        Duration delay = maxAge == null ? retryInterval
+                : maxAge.compareTo(minRefreshInterval) < 0 ? minRefreshInterval : maxAge;
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(() -> scheduleNext(refreshQuietly()), delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Map<String, PublicKey> parseJwks(String body) throws IOException {
+        Map<String, PublicKey> parsed = new HashMap<>();
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            for (JsonNode jwk : objectMapper.readTree(body).path("keys")) {
+                if (!"RSA".equals(jwk.path("kty").asText()) || !jwk.hasNonNull("kid")) {
+                    continue;
+                }
+                BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("n").asText()));
+                BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("e").asText()));
+                parsed.put(jwk.get("kid").asText(), keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IOException("JWK inválido: " + e.getMessage(), e);
+        }
+        return parsed;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,48 @@
+package com.compuinside.gateway.jwt;
+
+import com.google.firebase.auth.FirebaseToken;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * Datos ya verificados de un ID token de Firebase. Es inmutable para poder
+ * compartirse entre peticiones desde el cache de tokens.
+ */
+@Getter
+@Builder
+@ToString
+public class FirebasePrincipal {
+
+    /** Atributo del exchange donde FirebaseAuthFilter deja el principal verificado. */
+    public static final String EXCHANGE_ATTRIBUTE = FirebasePrincipal.class.getName();
+
+    private final String uid;
+    private final String email;
+    private final String name;
+    private final String role;
+    private final String accountId;
+
+    /** Plan de la cuenta (claim {@code userPlan}: BASIC, STANDARD o PREMIUM); vacío si el token no lo trae. */
+    private final String plan;
+
+    /** Instante de expiración del token (claim {@code exp}) en milisegundos epoch. */
+    private final long expiresAt;
+
+    public static FirebasePrincipal from(FirebaseToken firebaseToken) {
+        Map<String, Object> claims = firebaseToken.getClaims();
+        Object exp = claims.get("exp");
+
+        return FirebasePrincipal.builder()
+                .uid(firebaseToken.getUid())
+                .email(firebaseToken.getEmail())
+                .name(firebaseToken.getName())
+                .role((String) claims.getOrDefault("role", "USER"))
+                .accountId((String) claims.getOrDefault("accountId", ""))
+                .plan((String) claims.getOrDefault("userPlan", ""))
+                .expiresAt(exp instanceof Number number ? number.longValue() * 1000L : 0L)
+                .build();
+    }
+}
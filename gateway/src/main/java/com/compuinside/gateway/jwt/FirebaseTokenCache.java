@@ -0,0 +1,96 @@
+package com.compuinside.gateway.jwt;
+
+import com.compuinside.gateway.util.TokenDigest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cache de ID tokens de Firebase ya verificados, indexado por el SHA-256 del
+ * token (nunca se guarda el token en claro).
+ *
+ * <p>Las entradas positivas viven hasta el {@code exp} del token; las negativas
+ * (tokens rechazados) sólo un tiempo corto para frenar reintentos con el mismo
+ * token malo. Las métricas se publican como {@code cache.*} con
+ * {@code cache=firebase.tokens.verified|firebase.tokens.rejected}.
+ */
+@Component
+public class FirebaseTokenCache {
+
+    private final Cache<String, FirebasePrincipal> verified;
+    private final Cache<String, String> rejected;
+
+    public FirebaseTokenCache(
+            @Value("${firebase.token-cache.max-size:50000}") long maxSize,
+            @Value("${firebase.token-cache.negative-max-size:10000}") long negativeMaxSize,
+            @Value("${firebase.token-cache.negative-ttl:30s}") Duration negativeTtl,
+            MeterRegistry meterRegistry) {
+
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+
+        this.rejected = Caffeine.newBuilder()
+                .maximumSize(negativeMaxSize)
+                .expireAfterWrite(negativeTtl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "firebase.tokens.verified");
+        CaffeineCacheMetrics.monitor(meterRegistry, rejected, "firebase.tokens.rejected");
+    }
+
+    /**
+     * Devuelve el principal cacheado del token o ejecuta {@code verification}
+     * y guarda su resultado. Sólo los {@link InvalidTokenException} se cachean
+     * como negativos; los errores transitorios se propagan sin cachear.
+     */
+    public Mono<FirebasePrincipal> resolve(String token, Supplier<Mono<FirebasePrincipal>> verification) {
+        String key = TokenDigest.of(token);
+
+        FirebasePrincipal cached = verified.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        String rejection = rejected.getIfPresent(key);
+        if (rejection != null) {
+            return Mono.error(new InvalidTokenException(rejection));
+        }
+
+        return verification.get()
+                .doOnNext(principal -> verified.put(key, principal))
+                .doOnError(InvalidTokenException.class, e -> rejected.put(key, e.getMessage()));
+    }
+
+    /** Cada entrada expira exactamente en el {@code exp} del token que representa. */
+    private static class UntilTokenExpiry implements Expiry<String, FirebasePrincipal> {
+
+        @Override
+        public long expireAfterCreate(String key, FirebasePrincipal principal, long currentTime) {
+            long remainingMillis = principal.getExpiresAt() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0L));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, FirebasePrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, FirebasePrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.compuinside.gateway.jwt;
+
+/**
+ * Verifica un ID token de Firebase y devuelve sus datos. Los tokens rechazados
+ * por su contenido lanzan {@link InvalidTokenException}; cualquier otra
+ * excepción se considera transitoria y no se cachea.
+ */
+public interface FirebaseTokenVerifier {
+
+    FirebasePrincipal verify(String token);
+
+    /**
+     * Indica si {@link #verify(String)} puede bloquear (I/O). Los verificadores
+     * bloqueantes se ejecutan en {@link TokenVerificationExecutor}.
+     */
+    boolean isBlocking();
+}
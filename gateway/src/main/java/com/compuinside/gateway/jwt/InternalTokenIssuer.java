@@ -0,0 +1,121 @@
+package com.compuinside.gateway.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Emite el token interno de identidad que el gateway añade a las peticiones
+ * ya autenticadas ({@value #HEADER}), para que los servicios no tengan que
+ * volver a verificar el token de Firebase.
+ *
+ * <p>Formato: {@code kid.payload.firma}, con el payload y la firma en
+ * base64url sin padding. El payload son los campos uid, role, accountId,
+ * email, name y exp (segundos epoch) separados por {@code U+001F}; la firma es
+ * HMAC-SHA256 de {@code kid.payload} con el secreto compartido. El token dura
+ * {@code ttl} (nunca más que el de Firebase) y se reutiliza por principal
+ * mientras le quede al menos la mitad.
+ *
+ * <p>No hay secreto por defecto: sin {@code INTERNAL_TOKEN_SECRET}, o con menos
+ * de {@value #MIN_SECRET_BYTES} bytes, el gateway no arranca.
+ */
+@Component
+public class InternalTokenIssuer {
+
+    public static final String HEADER = "X-Internal-Identity";
+
+    static final char SEPARATOR = '\u001F';
+
+    /** Lo que pide HMAC-SHA256 para no debilitar la firma (RFC 2104). */
+    static final int MIN_SECRET_BYTES = 32;
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+
+    private final String keyId;
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+    private final ThreadLocal<Mac> mac;
+    private final Cache<String, IssuedToken> issued;
+
+    public InternalTokenIssuer(
+            @Value("${gateway.internal-token.key-id:v1}") String keyId,
+            @Value("${gateway.internal-token.secret:}") String secret,
+            @Value("${gateway.internal-token.ttl:60s}") Duration ttl,
+            @Value("${gateway.internal-token.cache.max-size:20000}") long cacheMaxSize) {
+        this.keyId = keyId;
+        this.key = new SecretKeySpec(decodeSecret(secret), "HmacSHA256");
+        this.ttlMillis = ttl.toMillis();
+        this.mac = ThreadLocal.withInitial(this::newMac);
+        this.issued = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(ttl.dividedBy(2))
+                .build();
+    }
+
+    public String issue(FirebasePrincipal principal) {
+        String cacheKey = principal.getUid() + SEPARATOR + principal.getRole() + SEPARATOR + principal.getAccountId();
+        long now = System.currentTimeMillis();
+        IssuedToken cached = issued.getIfPresent(cacheKey);
+        if (cached != null && cached.expiresAt() - now > ttlMillis / 2) {
+            return cached.token();
+        }
+
+        long expiresAt = now + ttlMillis;
+        if (principal.getExpiresAt() > 0) {
+            expiresAt = Math.min(expiresAt, principal.getExpiresAt());
+        }
+        String payload = BASE64.encodeToString((clean(principal.getUid()) + SEPARATOR
+                + clean(principal.getRole()) + SEPARATOR
+                + clean(principal.getAccountId()) + SEPARATOR
+                + clean(principal.getEmail()) + SEPARATOR
+                + clean(principal.getName()) + SEPARATOR
+                + expiresAt / 1000).getBytes(StandardCharsets.UTF_8));
+        String signed = keyId + '.' + payload;
+        String token = signed + '.' + BASE64.encodeToString(mac.get().doFinal(signed.getBytes(StandardCharsets.US_ASCII)));
+
+        issued.put(cacheKey, new IssuedToken(token, expiresAt));
+        return token;
+    }
+
+    private static byte[] decodeSecret(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("Falta gateway.internal-token.secret (INTERNAL_TOKEN_SECRET)");
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(secret.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("gateway.internal-token.secret no es base64 válido", e);
+        }
+        if (bytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("gateway.internal-token.secret tiene " + bytes.length
+                    + " bytes; se necesitan al menos " + MIN_SECRET_BYTES);
+        }
+        return bytes;
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace(SEPARATOR, ' ');
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance("HmacSHA256");
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+
+    private record IssuedToken(String token, long expiresAt) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.compuinside.gateway.jwt;
+
+/**
+ * El token fue rechazado por su contenido (firma, expiración, emisor...). A
+ * diferencia de un fallo transitorio, volver a verificarlo daría el mismo
+ * resultado, por lo que puede guardarse en el cache negativo.
+ */
+public class InvalidTokenException extends RuntimeException {
+
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
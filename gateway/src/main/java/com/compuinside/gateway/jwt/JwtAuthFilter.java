@@ -1,6 +1,10 @@
 package com.compuinside.gateway.jwt;
 
+import com.compuinside.gateway.metrics.GatewayMetrics;
+import com.compuinside.gateway.metrics.GatewayMetrics.Stage;
+import com.compuinside.gateway.metrics.GatewayMetrics.StageOutcome;
 import com.compuinside.gateway.service.TokenValidationService;
+import com.compuinside.gateway.util.JwtPrincipal;
 import com.compuinside.gateway.util.JwtUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,7 +27,10 @@ public class JwtAuthFilter extends AbstractGatewayFilterFactory<JwtAuthFilter.Co
     private JwtUtil jwtUtil;
 
     @Autowired
-    private RouteValidator routeValidator;
+    private RouteAuthorizationTable routeTable;
+
+    @Autowired
+    private GatewayMetrics metrics;
 
     private final TokenValidationService authClient;
 
@@ -43,7 +50,10 @@ public class JwtAuthFilter extends AbstractGatewayFilterFactory<JwtAuthFilter.Co
                 return chain.filter(exchange);
             }
 
-            if (routeValidator.isSecured.test(exchange.getRequest())) {
+            long authorizationStart = System.nanoTime();
+            RouteRule rule = routeTable.match(exchange.getRequest().getPath().value());
+            long authorizationNanos = System.nanoTime() - authorizationStart;
+            if (!rule.isOpen()) {
                 log.info("🔒 Ruta segura detectada: " + exchange.getRequest().getPath());
 
                 String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
@@ -54,12 +64,24 @@ public class JwtAuthFilter extends AbstractGatewayFilterFactory<JwtAuthFilter.Co
                 }
 
                 String token = authHeader.substring(7);
-                if (!jwtUtil.validateToken(token)) {
+                // Una sola verificación de firma para todos los claims
+                long verificationStart = System.nanoTime();
+                JwtPrincipal principal = jwtUtil.verify(token).orElse(null);
+                metrics.recordStage(exchange, Stage.JWT_VERIFICATION,
+                        principal != null ? StageOutcome.SUCCESS : StageOutcome.UNAUTHORIZED,
+                        System.nanoTime() - verificationStart);
+                if (principal == null) {
                     log.info("❌ Token inválido");
                     exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
                     return exchange.getResponse().setComplete();
                 }
+                long checkStart = System.nanoTime();
                 return authClient.isTokenValid(token)
+                        .doOnSuccess(isValid -> metrics.recordStage(exchange, Stage.TOKEN_CHECK,
+                                Boolean.TRUE.equals(isValid) ? StageOutcome.SUCCESS : StageOutcome.UNAUTHORIZED,
+                                System.nanoTime() - checkStart))
+                        .doOnError(e -> metrics.recordStage(exchange, Stage.TOKEN_CHECK,
+                                StageOutcome.ERROR, System.nanoTime() - checkStart))
                         .flatMap(isValid -> {
                             if (!isValid) {
                                 log.info("❌ Token inválido, expirado o revocado en Auth-Service");
@@ -69,11 +91,11 @@ public class JwtAuthFilter extends AbstractGatewayFilterFactory<JwtAuthFilter.Co
 
                             log.info("✅ Token válido: " + token);
 
-                            String username = jwtUtil.getUsernameFromToken(token);
-                            String role = jwtUtil.getRoleFromToken(token);
-                            String module = jwtUtil.getModuleFromToken(token);
-                            UUID userId = jwtUtil.getUserIdFromToken(token);
-                            UUID accountId = jwtUtil.getAccountIdFromToken(token);
+                            String username = principal.getUsername();
+                            String role = principal.getRole();
+                            String module = principal.getModule();
+                            UUID userId = principal.getUserId();
+                            UUID accountId = principal.getAccountId();
                             ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
                                     .header("loggedInUser", username)
                                     .header("role", role)
@@ -90,26 +112,28 @@ public class JwtAuthFilter extends AbstractGatewayFilterFactory<JwtAuthFilter.Co
                             log.info("👤 ID de la cuenta: " + accountId);
 
                             // 🔒 Verificar a qué microservicio pertenece y si tiene permiso
-                            return validateRoute(mutatedExchange, module)
-                                    .then(Mono.defer(() -> {
-                                        // Continuar con la cadena de filtros si la validación es exitosa
-                                        return chain.filter(mutatedExchange)
-                                                .doOnSuccess(aVoid -> {
-                                                    if (!exchange.getResponse().isCommitted()) {
-                                                        log.info("📝 Modificando la respuesta...");
-                                                        exchange.getResponse().getHeaders().add("loggedInUser", username);
-                                                        exchange.getResponse().getHeaders().add("role", role);
-                                                        exchange.getResponse().getHeaders().add("module", module);
-                                                        log.info("👤 Encabezados de la respuesta: " + exchange.getResponse().getHeaders());
-                                                    } else {
-                                                        log.info("⚠️ La respuesta ya ha sido enviada, no se puede modificar.");
-                                                    }
-                                                });
-                                    }));
+                            if (!rule.allowsModule(module) || !rule.allowsRole(role)) {
+                                metrics.recordStage(exchange, Stage.ROUTE_AUTHORIZATION, StageOutcome.FORBIDDEN, authorizationNanos);
+                                return forbidden(exchange, role, module);
+                            }
+                            metrics.recordStage(exchange, Stage.ROUTE_AUTHORIZATION, StageOutcome.SUCCESS, authorizationNanos);
+                            return chain.filter(mutatedExchange)
+                                    .doOnSuccess(aVoid -> {
+                                        if (!exchange.getResponse().isCommitted()) {
+                                            log.info("📝 Modificando la respuesta...");
+                                            exchange.getResponse().getHeaders().add("loggedInUser", username);
+                                            exchange.getResponse().getHeaders().add("role", role);
+                                            exchange.getResponse().getHeaders().add("module", module);
+                                            log.info("👤 Encabezados de la respuesta: " + exchange.getResponse().getHeaders());
+                                        } else {
+                                            log.info("⚠️ La respuesta ya ha sido enviada, no se puede modificar.");
+                                        }
+                                    });
                         });
             }
 
             // Continuar con el request original si la ruta no es protegida
+            metrics.recordStage(exchange, Stage.ROUTE_AUTHORIZATION, StageOutcome.SUCCESS, authorizationNanos);
             return chain.filter(exchange);
         };
     }
@@ -118,12 +142,10 @@ public class JwtAuthFilter extends AbstractGatewayFilterFactory<JwtAuthFilter.Co
         // Por ahora no tocar xd
     }
 
-    private Mono<Void> validateRoute(ServerWebExchange exchange, String module) {
-        if (exchange.getRequest().getPath().toString().startsWith("/med/") && !module.equals("DOCTOR_MODULE")) {
-            log.info("🚫 Acceso denegado: Usuario no pertenece al módulo médico.");
-            exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
-            return exchange.getResponse().setComplete();
-        }
-        return Mono.empty();
+    private Mono<Void> forbidden(ServerWebExchange exchange, String role, String module) {
+        log.info("🚫 Acceso denegado: rol {} / módulo {} sin permiso para {}",
+                role, module, exchange.getRequest().getPath());
+        exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+        return exchange.getResponse().setComplete();
     }
 }
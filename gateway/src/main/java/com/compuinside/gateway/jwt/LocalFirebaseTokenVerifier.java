@@ -0,0 +1,113 @@
+package com.compuinside.gateway.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Verificación local de ID tokens de Firebase (RS256) con las claves de
+ * {@link FirebaseKeyStore}: firma, {@code iss}, {@code aud}, {@code exp},
+ * {@code iat} y {@code sub}, tal como documenta Firebase. No hace I/O, así que
+ * corre directamente en el hilo de la petición.
+ */
+@Component
+@ConditionalOnProperty(name = "firebase.verifier", havingValue = "local")
+public class LocalFirebaseTokenVerifier implements FirebaseTokenVerifier {
+
+    private final FirebaseKeyStore keyStore;
+    private final JwtParser parser;
+    private final long clockSkewMillis;
+
+    public LocalFirebaseTokenVerifier(
+            FirebaseKeyStore keyStore,
+            @Value("${firebase.project-id:proyecto-cparalela}") String projectId,
+            @Value("${firebase.clock-skew:30s}") Duration clockSkew) {
+        this.keyStore = keyStore;
+        this.clockSkewMillis = clockSkew.toMillis();
+        this.parser = Jwts.parserBuilder()
+                .requireIssuer("https://securetoken.google.com/" + projectId)
+                .requireAudience(projectId)
+                .setAllowedClockSkewSeconds(clockSkew.toSeconds())
+                .setSigningKeyResolver(new KeyStoreResolver())
+                .build();
+    }
+
+    @Override
+    public FirebasePrincipal verify(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (UnknownKeyException e) {
+            throw e;
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Token inválido o expirado: " + e.getMessage());
+        }
+
+        String uid = claims.getSubject();
+        if (uid == null || uid.isEmpty() || uid.length() > 128) {
+            throw new InvalidTokenException("Token sin sub válido");
+        }
+        Date issuedAt = claims.getIssuedAt();
+        if (issuedAt == null || issuedAt.getTime() > System.currentTimeMillis() + clockSkewMillis) {
+            throw new InvalidTokenException("Token con iat en el futuro");
+        }
+
+        Object role = claims.get("role");
+        Object accountId = claims.get("accountId");
+        Object plan = claims.get("userPlan");
+        return FirebasePrincipal.builder()
+                .uid(uid)
+                .email(claims.get("email", String.class))
+                .name(claims.get("name", String.class))
+                .role(role instanceof String value ? value : "USER")
+                .accountId(accountId instanceof String value ? value : "")
+                .plan(plan instanceof String value ? value : "")
+                .expiresAt(claims.getExpiration().getTime())
+                .build();
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return false;
+    }
+
+    private class KeyStoreResolver extends SigningKeyResolverAdapter {
+
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            if (!"RS256".equals(header.getAlgorithm())) {
+                throw new InvalidTokenException("Algoritmo no permitido: " + header.getAlgorithm());
+            }
+            String kid = header.getKeyId();
+            if (kid == null) {
+                throw new InvalidTokenException("Token sin kid");
+            }
+            Key key = keyStore.getKey(kid);
+            if (key == null) {
+                throw new UnknownKeyException(kid);
+            }
+            return key;
+        }
+    }
+
+    /**
+     * El {@code kid} aún no está en el key store (p. ej. rotación reciente).
+     * Es transitorio: no se cachea como token inválido.
+     */
+    static class UnknownKeyException extends RuntimeException {
+
+        UnknownKeyException(String kid) {
+            super("Clave de firma desconocida: " + kid);
+        }
+    }
+}
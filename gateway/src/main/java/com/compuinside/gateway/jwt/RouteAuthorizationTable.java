@@ -0,0 +1,64 @@
+package com.compuinside.gateway.jwt;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reglas de {@code gateway.authorization.rules} compiladas en un {@link RouteTrie}.
+ *
+ * <p>Cuando cambia alguna propiedad bajo ese prefijo ({@link EnvironmentChangeEvent},
+ * p. ej. tras un refresh de configuración) se recompila y se reemplaza el árbol
+ * de golpe. Si las reglas nuevas no son válidas se mantiene el árbol anterior.
+ */
+@Component
+@Slf4j
+public class RouteAuthorizationTable {
+
+    private static final String PREFIX = "gateway.authorization";
+    private static final Bindable<List<RouteRule>> RULES = Bindable.listOf(RouteRule.class);
+
+    private final Environment environment;
+    private volatile RouteTrie trie;
+
+    public RouteAuthorizationTable(Environment environment) {
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    public void load() {
+        trie = compile();
+        log.info("🗺️ {} reglas de autorización de rutas cargadas", trie.size());
+    }
+
+    public RouteRule match(String path) {
+        return trie.match(path);
+    }
+
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().noneMatch(key -> key.startsWith(PREFIX))) {
+            return;
+        }
+        try {
+            trie = compile();
+            log.info("🗺️ Reglas de autorización recargadas: {}", trie.size());
+        } catch (RuntimeException e) {
+            log.error("❌ Reglas de autorización inválidas, se mantienen las anteriores: {}", e.getMessage());
+        }
+    }
+
+    private RouteTrie compile() {
+        List<RouteRule> rules = Binder.get(environment)
+                .bind(PREFIX + ".rules", RULES)
+                .orElse(List.of());
+        return RouteTrie.compile(rules);
+    }
+}
@@ -0,0 +1,39 @@
+package com.compuinside.gateway.jwt;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Regla de autorización para un patrón de ruta ({@code gateway.authorization.rules}).
+ *
+ * <p>El patrón se compone de segmentos literales, {@code *} (un segmento) y un
+ * {@code **} final (cero o más segmentos). {@code roles} y {@code modules}
+ * vacíos significan "cualquiera".
+ */
+@Data
+@NoArgsConstructor
+public class RouteRule {
+
+    /** Ruta sin regla: requiere token, sin restricción de rol ni módulo. */
+    public static final RouteRule AUTHENTICATED = new RouteRule("/**");
+
+    private String path;
+    /** Ruta pública, no se exige token. */
+    private boolean open;
+    private Set<String> roles = Set.of();
+    private Set<String> modules = Set.of();
+
+    public RouteRule(String path) {
+        this.path = path;
+    }
+
+    public boolean allowsRole(String role) {
+        return roles.isEmpty() || roles.contains(role);
+    }
+
+    public boolean allowsModule(String module) {
+        return modules.isEmpty() || modules.contains(module);
+    }
+}
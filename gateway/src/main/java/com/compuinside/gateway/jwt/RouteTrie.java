@@ -0,0 +1,191 @@
+package com.compuinside.gateway.jwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Árbol de segmentos de ruta compilado a partir de {@link RouteRule}s.
+ *
+ * <p>{@link #match(String)} recorre la ruta una vez sin crear objetos: cada
+ * segmento se busca por hash (mismo cálculo que {@link String#hashCode()})
+ * con búsqueda binaria y se confirma con {@code regionMatches}. Ante varias
+ * reglas posibles gana la más específica: segmento literal, luego {@code *},
+ * luego {@code **}.
+ */
+public final class RouteTrie {
+
+    private static final String WILDCARD = "*";
+    private static final String CATCH_ALL = "**";
+
+    private final Node root;
+    private final int size;
+
+    private RouteTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static RouteTrie compile(List<RouteRule> rules) {
+        Builder root = new Builder();
+        for (RouteRule rule : rules) {
+            root.insert(rule);
+        }
+        return new RouteTrie(root.freeze(), rules.size());
+    }
+
+    /** Regla más específica para {@code path}, o {@link RouteRule#AUTHENTICATED}. */
+    public RouteRule match(String path) {
+        RouteRule rule = match(root, path, 0);
+        return rule != null ? rule : RouteRule.AUTHENTICATED;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static RouteRule match(Node node, String path, int from) {
+        int length = path.length();
+        int start = from;
+        while (start < length && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start == length) {
+            return node.exact != null ? node.exact : node.catchAll;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+
+        Node literal = node.child(path, start, end);
+        if (literal != null) {
+            RouteRule rule = match(literal, path, end);
+            if (rule != null) {
+                return rule;
+            }
+        }
+        if (node.wildcard != null) {
+            RouteRule rule = match(node.wildcard, path, end);
+            if (rule != null) {
+                return rule;
+            }
+        }
+        return node.catchAll;
+    }
+
+    private static int hash(String value, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + value.charAt(i);
+        }
+        return hash;
+    }
+
+    private static final class Node {
+
+        private final int[] hashes;
+        private final String[] segments;
+        private final Node[] children;
+        private final Node wildcard;
+        private final RouteRule exact;
+        private final RouteRule catchAll;
+
+        private Node(int[] hashes, String[] segments, Node[] children,
+                     Node wildcard, RouteRule exact, RouteRule catchAll) {
+            this.hashes = hashes;
+            this.segments = segments;
+            this.children = children;
+            this.wildcard = wildcard;
+            this.exact = exact;
+            this.catchAll = catchAll;
+        }
+
+        private Node child(String path, int start, int end) {
+            int hash = hash(path, start, end);
+            int low = 0;
+            int high = hashes.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (hashes[mid] < hash) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            int segmentLength = end - start;
+            for (int i = low; i < hashes.length && hashes[i] == hash; i++) {
+                String segment = segments[i];
+                if (segment.length() == segmentLength && path.regionMatches(start, segment, 0, segmentLength)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Builder {
+
+        private final Map<String, Builder> children = new LinkedHashMap<>();
+        private Builder wildcard;
+        private RouteRule exact;
+        private RouteRule catchAll;
+
+        private void insert(RouteRule rule) {
+            String path = rule.getPath();
+            if (path == null || !path.startsWith("/")) {
+                throw new IllegalArgumentException("Patrón de ruta inválido: " + path);
+            }
+            String[] parts = Arrays.stream(path.split("/"))
+                    .filter(part -> !part.isEmpty())
+                    .toArray(String[]::new);
+
+            Builder node = this;
+            for (int i = 0; i < parts.length; i++) {
+                String part = parts[i];
+                if (CATCH_ALL.equals(part)) {
+                    if (i != parts.length - 1) {
+                        throw new IllegalArgumentException("'**' sólo se admite al final: " + path);
+                    }
+                    node.catchAll = unique(node.catchAll, rule);
+                    return;
+                }
+                if (WILDCARD.equals(part)) {
+                    if (node.wildcard == null) {
+                        node.wildcard = new Builder();
+                    }
+                    node = node.wildcard;
+                } else {
+                    node = node.children.computeIfAbsent(part, key -> new Builder());
+                }
+            }
+            node.exact = unique(node.exact, rule);
+        }
+
+        private static RouteRule unique(RouteRule existing, RouteRule rule) {
+            if (existing != null) {
+                throw new IllegalArgumentException("Patrón de ruta duplicado: " + rule.getPath());
+            }
+            return rule;
+        }
+
+        private Node freeze() {
+            List<Map.Entry<String, Builder>> entries = new ArrayList<>(children.entrySet());
+            entries.sort(Comparator.comparingInt(entry -> entry.getKey().hashCode()));
+
+            int[] hashes = new int[entries.size()];
+            String[] segments = new String[entries.size()];
+            Node[] nodes = new Node[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                hashes[i] = entries.get(i).getKey().hashCode();
+                segments[i] = entries.get(i).getKey();
+                nodes[i] = entries.get(i).getValue().freeze();
+            }
+            return new Node(hashes, segments, nodes,
+                    wildcard != null ? wildcard.freeze() : null, exact, catchAll);
+        }
+    }
+}
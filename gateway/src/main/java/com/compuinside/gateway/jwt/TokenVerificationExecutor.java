@@ -0,0 +1,161 @@
+package com.compuinside.gateway.jwt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecutor dedicado para la verificación bloqueante de tokens (Admin SDK y
+ * descarga de certificados), para que nunca corra en los hilos de reactor-netty.
+ *
+ * <p>La cola es acotada: cuando está llena la petición falla de inmediato con
+ * {@link VerificationRejectedException} (503) en lugar de acumular trabajo.
+ * Con {@code firebase.verification.virtual-threads=true} y Java 21+ cada
+ * verificación corre en un hilo virtual, limitando igualmente la concurrencia
+ * a {@code threads} y las esperas a {@code queue-capacity}.
+ */
+@Component
+@Slf4j
+public class TokenVerificationExecutor implements DisposableBean {
+
+    private final ExecutorService executor;
+    /** Sólo en modo de hilos virtuales: limita las verificaciones simultáneas. */
+    private final Semaphore concurrency;
+    private final int capacity;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejections;
+
+    public TokenVerificationExecutor(
+            @Value("${firebase.verification.threads:8}") int threads,
+            @Value("${firebase.verification.queue-capacity:1000}") int queueCapacity,
+            @Value("${firebase.verification.virtual-threads:false}") boolean virtualThreads,
+            MeterRegistry meterRegistry) {
+
+        ExecutorService virtualExecutor = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.concurrency = new Semaphore(threads);
+            this.capacity = threads + queueCapacity;
+            log.info(" Verificación de tokens en hilos virtuales (concurrencia {})", threads);
+        } else {
+            if (virtualThreads) {
+                log.warn(" Hilos virtuales no disponibles en esta JVM, usando pool de {} hilos", threads);
+            }
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new VerificationThreadFactory(),
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.concurrency = null;
+            this.capacity = Integer.MAX_VALUE;
+        }
+
+        this.waitTimer = Timer.builder("firebase.verification.queue.wait")
+                .description("Tiempo en cola antes de empezar la verificación")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejections = Counter.builder("firebase.verification.rejected")
+                .description("Verificaciones rechazadas por cola llena")
+                .register(meterRegistry);
+        Gauge.builder("firebase.verification.queue.depth", pending, AtomicInteger::get)
+                .description("Verificaciones esperando un hilo")
+                .register(meterRegistry);
+        Gauge.builder("firebase.verification.active", active, AtomicInteger::get)
+                .description("Verificaciones en curso")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta {@code task} en el ejecutor de verificación. Si la cola está llena
+     * el Mono termina con {@link VerificationRejectedException}.
+     */
+    public <T> Mono<T> submit(Callable<T> task) {
+        return Mono.create(sink -> {
+            if (pending.incrementAndGet() > capacity) {
+                reject(sink);
+                return;
+            }
+            long enqueuedAt = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    try {
+                        if (concurrency != null) {
+                            concurrency.acquireUninterruptibly();
+                        }
+                        pending.decrementAndGet();
+                        active.incrementAndGet();
+                        waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                        sink.success(task.call());
+                    } catch (Throwable e) {
+                        sink.error(e);
+                    } finally {
+                        active.decrementAndGet();
+                        if (concurrency != null) {
+                            concurrency.release();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                reject(sink);
+            }
+        });
+    }
+
+    private void reject(MonoSink<?> sink) {
+        pending.decrementAndGet();
+        rejections.increment();
+        sink.error(new VerificationRejectedException());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static class VerificationThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "firebase-verify-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /** La cola de verificación está llena; el gateway responde 503. */
+    public static class VerificationRejectedException extends RuntimeException {
+
+        public VerificationRejectedException() {
+            super("Cola de verificación de tokens llena", null, false, false);
+        }
+    }
+}
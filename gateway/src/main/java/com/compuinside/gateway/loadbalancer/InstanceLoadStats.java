@@ -0,0 +1,151 @@
+package com.compuinside.gateway.loadbalancer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Carga observada de cada instancia (peticiones en curso y EWMA "de pico" del
+ * RTT, como el balanceador Peak EWMA de Finagle). La alimentan tanto las rutas
+ * {@code lb://} del gateway como el {@code WebClient} {@code @LoadBalanced},
+ * porque ambos avisan a los {@link LoadBalancerLifecycle} del contexto.
+ *
+ * <p>Un RTT mayor que la media la sustituye de golpe; los menores la bajan
+ * con peso {@code exp(-Δt / decay)}. Sin tráfico la media también decae, así
+ * que una instancia lenta vuelve a probarse pasado un tiempo. Las respuestas
+ * 5xx y los errores cuentan como {@code failure-penalty}.
+ */
+@Component
+public class InstanceLoadStats implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    /** Coste de una instancia sin muestras que ya tiene peticiones en curso. */
+    private static final double UNKNOWN_COST_NANOS = Duration.ofMillis(100).toNanos();
+
+    private final double decayNanos;
+    private final long failurePenaltyNanos;
+    private final LongSupplier clock;
+    private final Cache<String, InstanceLoad> loads;
+
+    @Autowired
+    public InstanceLoadStats(
+            @Value("${gateway.loadbalancer.decay:10s}") Duration decay,
+            @Value("${gateway.loadbalancer.failure-penalty:2s}") Duration failurePenalty) {
+        this(decay, failurePenalty, System::nanoTime);
+    }
+
+    InstanceLoadStats(Duration decay, Duration failurePenalty, LongSupplier clock) {
+        this.decayNanos = decay.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+        this.clock = clock;
+        this.loads = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+                && ResponseData.class.isAssignableFrom(responseClass)
+                && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    /**
+     * Coste esperado de mandar una petición más a la instancia: RTT medio por
+     * (peticiones en curso + 1).
+     */
+    public double score(ServiceInstance instance) {
+        InstanceLoad load = loads.getIfPresent(key(instance));
+        if (load == null) {
+            return 0;
+        }
+        int outstanding = load.outstanding.get();
+        double cost = load.cost(clock.getAsLong());
+        if (cost == 0 && outstanding > 0) {
+            return UNKNOWN_COST_NANOS + outstanding;
+        }
+        return cost * (outstanding + 1);
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer()) {
+            return;
+        }
+        request.getContext().setRequestStartTime(clock.getAsLong());
+        load(lbResponse.getServer()).outstanding.incrementAndGet();
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (completionContext.status() == CompletionContext.Status.DISCARD || lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        InstanceLoad load = load(lbResponse.getServer());
+        load.outstanding.decrementAndGet();
+
+        long now = clock.getAsLong();
+        long rtt = now - completionContext.getLoadBalancerRequest().getContext().getRequestStartTime();
+        ResponseData response = completionContext.getClientResponse();
+        boolean failed = completionContext.status() == CompletionContext.Status.FAILED
+                || response != null && response.getHttpStatus() != null && response.getHttpStatus().is5xxServerError();
+        load.observe(failed ? Math.max(rtt, failurePenaltyNanos) : rtt, now);
+    }
+
+    /** La petición se canceló después de elegir instancia y no habrá {@link #onComplete}. */
+    void onCancel(ServiceInstance instance) {
+        InstanceLoad load = loads.getIfPresent(key(instance));
+        if (load != null) {
+            load.outstanding.decrementAndGet();
+        }
+    }
+
+    private InstanceLoad load(ServiceInstance instance) {
+        return loads.get(key(instance), k -> new InstanceLoad());
+    }
+
+    static String key(ServiceInstance instance) {
+        String instanceId = instance.getInstanceId();
+        return instanceId != null ? instanceId
+                : instance.getServiceId() + "@" + instance.getHost() + ":" + instance.getPort();
+    }
+
+    private class InstanceLoad {
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile double cost;
+        private volatile long stamp = clock.getAsLong();
+
+        private synchronized void observe(long rttNanos, long now) {
+            double w = weight(now);
+            stamp = now;
+            cost = rttNanos > cost ? rttNanos : cost * w + rttNanos * (1 - w);
+        }
+
+        /** Media decaída hasta {@code now}, sin modificarla (lectura sin bloqueo). */
+        private double cost(long now) {
+            return cost * weight(now);
+        }
+
+        private double weight(long now) {
+            return Math.exp(-Math.max(now - stamp, 0) / decayNanos);
+        }
+    }
+}
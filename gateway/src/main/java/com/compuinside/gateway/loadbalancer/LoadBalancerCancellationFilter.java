@@ -0,0 +1,47 @@
+package com.compuinside.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * {@link ReactiveLoadBalancerClientFilter} no avisa a los lifecycle cuando el
+ * cliente cancela (cierra la conexión): sin esto la petición quedaría "en
+ * curso" para siempre en {@link InstanceLoadStats} y una petición de prueba
+ * de {@link OutlierDetector} nunca terminaría.
+ */
+@Component
+public class LoadBalancerCancellationFilter implements GlobalFilter, Ordered {
+
+    private final InstanceLoadStats stats;
+    private final OutlierDetector outlierDetector;
+
+    public LoadBalancerCancellationFilter(InstanceLoadStats stats, OutlierDetector outlierDetector) {
+        this.stats = stats;
+        this.outlierDetector = outlierDetector;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        return chain.filter(exchange).doOnCancel(() -> {
+            Response<ServiceInstance> response = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            if (response != null && response.hasServer()) {
+                stats.onCancel(response.getServer());
+                outlierDetector.onCancel(response.getServer());
+            }
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+}
@@ -0,0 +1,218 @@
+package com.compuinside.gateway.loadbalancer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Detección pasiva de instancias caídas a partir del tráfico real, sin
+ * esperar a que Eureka las dé de baja (hasta un minuto).
+ *
+ * <p>Una instancia se expulsa tras {@code consecutive-failures} fallos
+ * seguidos o si en una ventana de {@code window} peticiones falla al menos
+ * {@code failure-rate-threshold} %. Cuentan como fallo los errores de
+ * conexión, los timeouts de respuesta y los 5xx. La expulsión dura
+ * {@code base-ejection-time} × 2^(expulsiones previas), hasta
+ * {@code max-ejection-time}; al terminar, la instancia recibe una única
+ * petición de prueba: si va bien vuelve al reparto, si falla se expulsa de
+ * nuevo con el doble de tiempo. El contador de expulsiones se reinicia si la
+ * instancia pasa {@code max-ejection-time} sana.
+ */
+@Component
+@Slf4j
+public class OutlierDetector implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    private final int consecutiveFailures;
+    private final int window;
+    private final int failureRateThreshold;
+    private final long baseEjectionNanos;
+    private final long maxEjectionNanos;
+    private final int maxEjectionPercent;
+    private final LongSupplier clock;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, InstanceHealth> health;
+
+    @Autowired
+    public OutlierDetector(
+            @Value("${gateway.loadbalancer.outlier.consecutive-failures:5}") int consecutiveFailures,
+            @Value("${gateway.loadbalancer.outlier.window:20}") int window,
+            @Value("${gateway.loadbalancer.outlier.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${gateway.loadbalancer.outlier.base-ejection-time:10s}") Duration baseEjectionTime,
+            @Value("${gateway.loadbalancer.outlier.max-ejection-time:5m}") Duration maxEjectionTime,
+            @Value("${gateway.loadbalancer.outlier.max-ejection-percent:50}") int maxEjectionPercent,
+            MeterRegistry meterRegistry) {
+        this(consecutiveFailures, window, failureRateThreshold, baseEjectionTime, maxEjectionTime,
+                maxEjectionPercent, meterRegistry, System::nanoTime);
+    }
+
+    OutlierDetector(int consecutiveFailures, int window, int failureRateThreshold, Duration baseEjectionTime,
+                    Duration maxEjectionTime, int maxEjectionPercent, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.consecutiveFailures = consecutiveFailures;
+        this.window = window;
+        this.failureRateThreshold = failureRateThreshold;
+        this.baseEjectionNanos = baseEjectionTime.toNanos();
+        this.maxEjectionNanos = maxEjectionTime.toNanos();
+        this.maxEjectionPercent = maxEjectionPercent;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.health = Caffeine.newBuilder()
+                .expireAfterAccess(maxEjectionTime.multipliedBy(2))
+                .build();
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+                && ResponseData.class.isAssignableFrom(responseClass)
+                && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    /** Si la instancia puede recibir tráfico ahora (no expulsada, o libre para la petición de prueba). */
+    public boolean isAvailable(ServiceInstance instance) {
+        InstanceHealth instanceHealth = health.getIfPresent(InstanceLoadStats.key(instance));
+        return instanceHealth == null || instanceHealth.isAvailable(clock.getAsLong());
+    }
+
+    /** Porcentaje máximo de instancias de un servicio que pueden estar expulsadas a la vez. */
+    public int getMaxEjectionPercent() {
+        return maxEjectionPercent;
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer()) {
+            return;
+        }
+        InstanceHealth instanceHealth = health.getIfPresent(InstanceLoadStats.key(lbResponse.getServer()));
+        if (instanceHealth != null) {
+            instanceHealth.onStart(clock.getAsLong());
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (completionContext.status() == CompletionContext.Status.DISCARD || lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        ServiceInstance instance = lbResponse.getServer();
+        ResponseData response = completionContext.getClientResponse();
+        boolean failed = completionContext.status() == CompletionContext.Status.FAILED
+                || response != null && response.getHttpStatus() != null && response.getHttpStatus().is5xxServerError();
+
+        InstanceHealth instanceHealth = health.get(InstanceLoadStats.key(instance), k -> new InstanceHealth());
+        long ejectedFor = instanceHealth.record(failed, clock.getAsLong());
+        if (ejectedFor > 0) {
+            // La instancia sólo va al log: como tag crearía una serie por cada host:puerto efímero
+            log.warn("🚫 Instancia {} de {} expulsada durante {} ms", instance.getUri(), instance.getServiceId(),
+                    Duration.ofNanos(ejectedFor).toMillis());
+            Counter.builder("gateway.loadbalancer.ejections")
+                    .description("Expulsiones de instancias por fallos en el tráfico real")
+                    .tag("service", instance.getServiceId())
+                    .register(meterRegistry)
+                    .increment();
+        } else if (ejectedFor < 0) {
+            log.info("✅ Instancia {} de {} recuperada tras la petición de prueba", instance.getUri(), instance.getServiceId());
+        }
+    }
+
+    /** La petición se canceló; si era la de prueba, se deja otra. */
+    void onCancel(ServiceInstance instance) {
+        InstanceHealth instanceHealth = health.getIfPresent(InstanceLoadStats.key(instance));
+        if (instanceHealth != null) {
+            instanceHealth.onCancel();
+        }
+    }
+
+    private class InstanceHealth {
+
+        private int consecutive;
+        private int windowRequests;
+        private int windowFailures;
+        private int ejections;
+        private long ejectedUntil;
+        private long healthySince;
+        private boolean probing;
+        private boolean probeInFlight;
+
+        private synchronized boolean isAvailable(long now) {
+            return now - ejectedUntil >= 0 && !(probing && probeInFlight);
+        }
+
+        private synchronized void onStart(long now) {
+            if (probing && now - ejectedUntil >= 0) {
+                probeInFlight = true;
+            }
+        }
+
+        private synchronized void onCancel() {
+            probeInFlight = false;
+        }
+
+        /**
+         * @return nanos de expulsión si la instancia acaba de ser expulsada, -1 si
+         *         acaba de superar la prueba, 0 si no cambia nada
+         */
+        private synchronized long record(boolean failed, long now) {
+            if (probing) {
+                if (now - ejectedUntil < 0) {
+                    // Respuesta atrasada de antes de la expulsión
+                    return 0;
+                }
+                probeInFlight = false;
+                if (failed) {
+                    return eject(now);
+                }
+                probing = false;
+                healthySince = now;
+                return -1;
+            }
+
+            consecutive = failed ? consecutive + 1 : 0;
+            windowRequests++;
+            if (failed) {
+                windowFailures++;
+            }
+            boolean rateExceeded = windowRequests >= window && windowFailures * 100 >= failureRateThreshold * windowRequests;
+            if (windowRequests >= window) {
+                windowRequests = 0;
+                windowFailures = 0;
+            }
+            return consecutive >= consecutiveFailures || rateExceeded ? eject(now) : 0;
+        }
+
+        private long eject(long now) {
+            if (ejections > 0 && !probing && now - healthySince > maxEjectionNanos) {
+                ejections = 0;
+            }
+            long duration = Math.min(maxEjectionNanos, baseEjectionNanos << Math.min(ejections, 16));
+            ejections++;
+            ejectedUntil = now + duration;
+            probing = true;
+            probeInFlight = false;
+            consecutive = 0;
+            windowRequests = 0;
+            windowFailures = 0;
+            return duration;
+        }
+    }
+}
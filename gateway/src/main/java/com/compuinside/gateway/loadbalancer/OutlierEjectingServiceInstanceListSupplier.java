@@ -0,0 +1,56 @@
+package com.compuinside.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Quita de la lista las instancias expulsadas por {@link OutlierDetector} en
+ * cada elección, sin esperar al siguiente refresco del registro. Si hubiera
+ * que quitar más de {@code max-ejection-percent}, devuelve la lista completa:
+ * con medio servicio fallando es más probable un problema compartido que
+ * instancias rotas.
+ */
+public class OutlierEjectingServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+    private final OutlierDetector detector;
+
+    public OutlierEjectingServiceInstanceListSupplier(ServiceInstanceListSupplier delegate, OutlierDetector detector) {
+        super(delegate);
+        this.detector = detector;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return getDelegate().get().map(this::withoutEjected);
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get(Request request) {
+        return getDelegate().get(request).map(this::withoutEjected);
+    }
+
+    List<ServiceInstance> withoutEjected(List<ServiceInstance> instances) {
+        List<ServiceInstance> available = null;
+        for (int i = 0; i < instances.size(); i++) {
+            ServiceInstance instance = instances.get(i);
+            if (detector.isAvailable(instance)) {
+                if (available != null) {
+                    available.add(instance);
+                }
+            } else if (available == null) {
+                available = new ArrayList<>(instances.subList(0, i));
+            }
+        }
+        if (available == null) {
+            return instances;
+        }
+        int maxEjected = instances.size() * detector.getMaxEjectionPercent() / 100;
+        return instances.size() - available.size() > maxEjected ? instances : available;
+    }
+}
@@ -0,0 +1,41 @@
+package com.compuinside.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Configuración de cada contexto hijo de Spring Cloud LoadBalancer (uno por
+ * servicio): instancias del registro (cacheadas) sin las expulsadas por
+ * {@link OutlierDetector}, y elección P2C por latencia. No lleva
+ * {@code @Configuration} para que no la recoja el escaneo del contexto
+ * principal; se registra con {@code @LoadBalancerClients}.
+ */
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> peakEwmaLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory,
+            InstanceLoadStats stats) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new PeakEwmaLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId, stats);
+    }
+
+    @Bean
+    public ServiceInstanceListSupplier outlierEjectingServiceInstanceListSupplier(
+            ConfigurableApplicationContext context,
+            OutlierDetector outlierDetector) {
+        return ServiceInstanceListSupplier.builder()
+                .withDiscoveryClient()
+                .withCaching()
+                .with((ctx, delegate) -> new OutlierEjectingServiceInstanceListSupplier(delegate, outlierDetector))
+                .build(context);
+    }
+}
@@ -0,0 +1,211 @@
+package com.compuinside.gateway.metering;
+
+import com.compuinside.gateway.dto.AccountUsageReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contadores por cuenta (peticiones, bytes subidos e invocaciones de filtros)
+ * que alimenta AccountMeteringFilter y que se vuelcan al {@link UsageSink}
+ * cada {@code gateway.metering.flush-interval}.
+ *
+ * <p>En la petición sólo hay un lookup en el mapa, la marca de suma en curso
+ * de {@link AccountUsage} y unos {@code add} sobre
+ * {@link java.util.concurrent.atomic.LongAdder}; la única asignación es la
+ * primera petición de cada cuenta. Cada volcado publica la diferencia con el
+ * anterior y sólo la da por publicada si el sink no falla, así que un sink
+ * caído retrasa los datos pero no los pierde. Las cuentas sin actividad
+ * durante {@code idle-flushes} volcados salen del mapa.
+ */
+@Component
+@Slf4j
+public class AccountMeter implements DisposableBean {
+
+    private static final String UNKNOWN_PLAN = "UNKNOWN";
+
+    private final UsageSink sink;
+    private final Duration flushInterval;
+    private final int maxIdleFlushes;
+    private final Map<String, AccountUsage> accounts = new ConcurrentHashMap<>();
+    private final Counter flushFailures;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "account-metering-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long windowStart = System.currentTimeMillis();
+
+    public AccountMeter(UsageSink sink,
+                        @Value("${gateway.metering.flush-interval:60s}") Duration flushInterval,
+                        @Value("${gateway.metering.idle-flushes:10}") int maxIdleFlushes,
+                        MeterRegistry meterRegistry) {
+        this.sink = sink;
+        this.flushInterval = flushInterval;
+        this.maxIdleFlushes = maxIdleFlushes;
+        this.flushFailures = Counter.builder("gateway.metering.flush.failures")
+                .description("Volcados de consumo por cuenta que el sink no pudo publicar")
+                .register(meterRegistry);
+        Gauge.builder("gateway.metering.accounts", accounts, Map::size)
+                .description("Cuentas con contadores de consumo en memoria")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long millis = flushInterval.toMillis();
+        scheduler.scheduleAtFixedRate(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        log.info("📊 Medición por cuenta: volcado cada {} a {}", flushInterval, sink.getClass().getSimpleName());
+    }
+
+    public void record(String accountId, String plan, long uploadedBytes, boolean filterInvocation) {
+        AccountUsage usage = enter(accountId, plan);
+        try {
+            usage.requests.increment();
+            if (uploadedBytes > 0) {
+                usage.uploadedBytes.add(uploadedBytes);
+            }
+            if (filterInvocation) {
+                usage.filterInvocations.increment();
+            }
+        } finally {
+            usage.exit();
+        }
+    }
+
+    /** Para bytes que se conocen después de {@link #record} (cuerpos sin Content-Length). */
+    public void addUploadedBytes(String accountId, String plan, long bytes) {
+        AccountUsage usage = enter(accountId, plan);
+        try {
+            usage.uploadedBytes.add(bytes);
+        } finally {
+            usage.exit();
+        }
+    }
+
+    /** La entrada de la cuenta ya con {@link AccountUsage#enter()}; si estaba retirada, se cambia por una nueva. */
+    private AccountUsage enter(String accountId, String plan) {
+        String resolvedPlan = plan == null || plan.isEmpty() ? UNKNOWN_PLAN : plan;
+        AccountUsage usage = accounts.get(accountId);
+        while (usage == null || !usage.enter()) {
+            usage = accounts.compute(accountId, (key, current) ->
+                    current == null || current.isRetired() ? new AccountUsage(resolvedPlan) : current);
+        }
+        if (!resolvedPlan.equals(usage.plan)) {
+            usage.plan = resolvedPlan;
+        }
+        return usage;
+    }
+
+    /**
+     * Publica lo acumulado desde el último volcado correcto.
+     *
+     * @return los agregados publicados (vacío si no hubo actividad)
+     */
+    public synchronized List<AccountUsageReport> flush() throws Exception {
+        long windowEnd = System.currentTimeMillis();
+        List<AccountUsageReport> reports = new ArrayList<>();
+        List<AccountUsage> reported = new ArrayList<>();
+
+        for (Map.Entry<String, AccountUsage> entry : accounts.entrySet()) {
+            AccountUsage usage = entry.getValue();
+            long requests = usage.requests.sum();
+            long uploadedBytes = usage.uploadedBytes.sum();
+            long filterInvocations = usage.filterInvocations.sum();
+            if (requests == usage.flushedRequests && uploadedBytes == usage.flushedUploadedBytes
+                    && filterInvocations == usage.flushedFilterInvocations) {
+                if (++usage.idleFlushes >= maxIdleFlushes) {
+                    evict(entry.getKey(), usage);
+                }
+                continue;
+            }
+            usage.idleFlushes = 0;
+            reports.add(new AccountUsageReport(entry.getKey(), usage.plan, windowStart, windowEnd,
+                    requests - usage.flushedRequests,
+                    uploadedBytes - usage.flushedUploadedBytes,
+                    filterInvocations - usage.flushedFilterInvocations));
+            reported.add(usage);
+        }
+        if (reports.isEmpty()) {
+            windowStart = windowEnd;
+            return reports;
+        }
+
+        sink.publish(reports);
+        for (int i = 0; i < reports.size(); i++) {
+            AccountUsageReport report = reports.get(i);
+            AccountUsage usage = reported.get(i);
+            usage.flushedRequests += report.getRequests();
+            usage.flushedUploadedBytes += report.getUploadedBytes();
+            usage.flushedFilterInvocations += report.getFilterInvocations();
+        }
+        windowStart = windowEnd;
+        return reports;
+    }
+
+    /**
+     * Saca una cuenta inactiva. Una vez retirada nadie más suma en ella, así
+     * que lo contado entre la última lectura y la retirada es definitivo y se
+     * pasa a la entrada que la sustituya para publicarlo en el siguiente
+     * volcado. Si hay una suma en curso se deja para otro volcado.
+     */
+    private void evict(String accountId, AccountUsage usage) {
+        if (!usage.retire()) {
+            return;
+        }
+        long requests = usage.requests.sum() - usage.flushedRequests;
+        long uploadedBytes = usage.uploadedBytes.sum() - usage.flushedUploadedBytes;
+        long filterInvocations = usage.filterInvocations.sum() - usage.flushedFilterInvocations;
+        boolean pending = requests != 0 || uploadedBytes != 0 || filterInvocations != 0;
+        accounts.compute(accountId, (key, current) -> {
+            // Una petición puede haberla sustituido ya al encontrarla retirada
+            AccountUsage target = current == usage ? null : current;
+            if (!pending) {
+                return target;
+            }
+            if (target == null) {
+                target = new AccountUsage(usage.plan);
+            }
+            target.requests.add(requests);
+            target.uploadedBytes.add(uploadedBytes);
+            target.filterInvocations.add(filterInvocations);
+            return target;
+        });
+    }
+
+    private void flushQuietly() {
+        try {
+            List<AccountUsageReport> reports = flush();
+            log.debug("📊 Consumo de {} cuentas publicado", reports.size());
+        } catch (Exception e) {
+            flushFailures.increment();
+            log.warn("⚠️ No se pudo publicar el consumo por cuenta, se reintenta en el siguiente volcado: {}", e.getMessage());
+        }
+    }
+
+    int trackedAccounts() {
+        return accounts.size();
+    }
+
+    /** Último volcado al apagar, para no perder la ventana en curso. */
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        flushQuietly();
+    }
+}
@@ -0,0 +1,66 @@
+package com.compuinside.gateway.metering;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores acumulados de una cuenta. {@link LongAdder} reparte las sumas
+ * entre celdas cuando hay contención, así que varios event loops pueden contar
+ * la misma cuenta sin pelearse por una única línea de cache y sin asignar
+ * memoria una vez creada la celda.
+ *
+ * <p>Los contadores nunca se ponen a cero: {@link AccountMeter} publica la
+ * diferencia con lo último que volcó, que sólo toca su hilo.
+ *
+ * <p>Cada suma va entre {@link #enter()} y {@link #exit()} para que
+ * {@link #retire()} sólo pueda retirar la entrada cuando nadie está sumando:
+ * a partir de ahí sus contadores ya no cambian y se pueden traspasar enteros.
+ * Es un incremento atómico más por petición sobre una línea compartida; sólo
+ * se nota con muchos event loops contando a la vez la misma cuenta.
+ */
+final class AccountUsage {
+
+    final LongAdder requests = new LongAdder();
+    final LongAdder uploadedBytes = new LongAdder();
+    final LongAdder filterInvocations = new LongAdder();
+
+    /** Sumas en curso, o {@link #RETIRED} si la entrada ya salió del mapa. */
+    private final AtomicInteger writers = new AtomicInteger();
+    private static final int RETIRED = -1;
+
+    volatile String plan;
+
+    long flushedRequests;
+    long flushedUploadedBytes;
+    long flushedFilterInvocations;
+    int idleFlushes;
+
+    AccountUsage(String plan) {
+        this.plan = plan;
+    }
+
+    /** @return {@code false} si la entrada está retirada y hay que sumar en otra */
+    boolean enter() {
+        int current;
+        do {
+            current = writers.get();
+            if (current == RETIRED) {
+                return false;
+            }
+        } while (!writers.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    void exit() {
+        writers.decrementAndGet();
+    }
+
+    /** Sólo la retira si no hay ninguna suma en curso; si la hay, se intenta en otro volcado. */
+    boolean retire() {
+        return writers.compareAndSet(0, RETIRED);
+    }
+
+    boolean isRetired() {
+        return writers.get() == RETIRED;
+    }
+}
@@ -0,0 +1,47 @@
+package com.compuinside.gateway.metering;
+
+import com.compuinside.gateway.dto.AccountUsageReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Añade cada volcado a {@code gateway.metering.file.path} como JSON por línea
+ * (un {@link AccountUsageReport} por cuenta). Es el sink por defecto.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.metering.sink", havingValue = "file", matchIfMissing = true)
+public class FileUsageSink implements UsageSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public FileUsageSink(@Value("${gateway.metering.file.path:metering/account-usage.ndjson}") String path) {
+        this.path = Path.of(path);
+    }
+
+    @Override
+    public void publish(List<AccountUsageReport> reports) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        StringBuilder lines = new StringBuilder(reports.size() * 160);
+        for (AccountUsageReport report : reports) {
+            lines.append(objectMapper.writeValueAsString(report)).append('\n');
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(lines.toString());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.compuinside.gateway.metering;
+
+import com.compuinside.gateway.dto.AccountUsageReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publica cada agregado en {@code gateway.metering.kafka.topic} con el
+ * accountId como clave, así los de una misma cuenta caen en la misma
+ * partición. Espera la confirmación de todo el lote para que un fallo haga
+ * reintentar el volcado entero; los que sí llegaron se repiten con el mismo
+ * {@code windowStart} y un {@code windowEnd} mayor, y el consumidor se queda
+ * con el último de cada cuenta y ventana.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.metering.sink", havingValue = "kafka")
+public class KafkaUsageSink implements UsageSink {
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final String topic;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public KafkaUsageSink(KafkaTemplate<String, String> kafkaTemplate,
+                          @Value("${gateway.metering.kafka.topic:account-usage}") String topic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = topic;
+    }
+
+    @Override
+    public void publish(List<AccountUsageReport> reports) throws Exception {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[reports.size()];
+        for (int i = 0; i < reports.size(); i++) {
+            AccountUsageReport report = reports.get(i);
+            sends[i] = kafkaTemplate.send(topic, report.getAccountId(), objectMapper.writeValueAsString(report));
+        }
+        CompletableFuture.allOf(sends).get(30, TimeUnit.SECONDS);
+    }
+}
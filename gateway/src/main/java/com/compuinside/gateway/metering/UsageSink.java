@@ -0,0 +1,15 @@
+package com.compuinside.gateway.metering;
+
+import com.compuinside.gateway.dto.AccountUsageReport;
+
+import java.util.List;
+
+/**
+ * Destino de los agregados de {@link AccountMeter}. Se llama desde un único
+ * hilo; si lanza excepción, la ventana se vuelve a publicar sumada a la
+ * siguiente.
+ */
+public interface UsageSink {
+
+    void publish(List<AccountUsageReport> reports) throws Exception;
+}
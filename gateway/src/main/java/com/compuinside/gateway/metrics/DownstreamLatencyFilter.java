@@ -0,0 +1,40 @@
+package com.compuinside.gateway.metrics;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Mide sólo el tramo del servicio destino: se ejecuta justo antes de
+ * {@link NettyRoutingFilter}, cuando la autenticación y el resto de filtros
+ * ya terminaron.
+ */
+@Component
+public class DownstreamLatencyFilter implements GlobalFilter, Ordered {
+
+    private final GatewayMetrics metrics;
+
+    public DownstreamLatencyFilter(GatewayMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    metrics.recordDownstream(exchange, status != null ? status.value() : 0, System.nanoTime() - start);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 1;
+    }
+}
@@ -0,0 +1,90 @@
+package com.compuinside.gateway.metrics;
+
+import com.compuinside.gateway.config.NettyTransport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.concurrent.EventExecutor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retraso de los event loops de reactor-netty ({@code gateway.eventloop.lag}).
+ *
+ * <p>Cada event loop del servidor ejecuta una tarea cada {@code interval};
+ * la diferencia entre cuándo debía correr y cuándo corrió es el tiempo que el
+ * loop estuvo ocupado con otra cosa (trabajo bloqueante, GC, CPU saturada).
+ */
+@Component
+@Slf4j
+public class EventLoopLagMonitor {
+
+    private final MeterRegistry meterRegistry;
+    private final NettyTransport transport;
+    private final long intervalNanos;
+    private volatile boolean running;
+
+    public EventLoopLagMonitor(
+            MeterRegistry meterRegistry,
+            NettyTransport transport,
+            @Value("${gateway.metrics.event-loop-lag.interval:500ms}") Duration interval) {
+        this.meterRegistry = meterRegistry;
+        this.transport = transport;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        int index = 0;
+        for (EventExecutor loop : transport.loops().onServer(transport.preferNative())) {
+            Probe probe = new Probe(loop);
+            Gauge.builder("gateway.eventloop.lag", probe, Probe::lagMillis)
+                    .description("Retraso de la última tarea programada en el event loop")
+                    .baseUnit("milliseconds")
+                    .tag("loop", String.valueOf(index++))
+                    .register(meterRegistry);
+            probe.schedule();
+        }
+        log.info("⏱️ Midiendo el retraso de {} event loops", index);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    private class Probe implements Runnable {
+
+        private final EventExecutor loop;
+        private long expectedAt;
+        private volatile long lagNanos;
+
+        private Probe(EventExecutor loop) {
+            this.loop = loop;
+        }
+
+        private void schedule() {
+            expectedAt = System.nanoTime() + intervalNanos;
+            loop.schedule(this, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run() {
+            lagNanos = Math.max(0, System.nanoTime() - expectedAt);
+            if (running && !loop.isShuttingDown()) {
+                schedule();
+            }
+        }
+
+        private double lagMillis() {
+            return lagNanos / 1_000_000.0;
+        }
+    }
+}
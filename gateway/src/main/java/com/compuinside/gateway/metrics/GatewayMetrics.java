@@ -0,0 +1,88 @@
+package com.compuinside.gateway.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers de las etapas de los filtros de autenticación
+ * ({@code gateway.filter.stage}) y de la latencia del servicio destino
+ * ({@code gateway.downstream}), etiquetados por ruta y resultado.
+ *
+ * <p>Cada timer se crea la primera vez que se usa su combinación de ruta,
+ * etapa y resultado; después se resuelve con un lookup en el mapa y un acceso
+ * a array, sin crear tags por petición.
+ */
+@Component
+public class GatewayMetrics {
+
+    private static final String UNKNOWN_ROUTE = "unknown";
+    private static final Outcome[] HTTP_OUTCOMES = Outcome.values();
+    private static final StageOutcome[] STAGE_OUTCOMES = StageOutcome.values();
+    private static final int STAGE_TIMERS = Stage.values().length * STAGE_OUTCOMES.length;
+
+    public enum Stage {
+        ROUTE_AUTHORIZATION, FIREBASE_VERIFICATION, JWT_VERIFICATION, TOKEN_CHECK
+    }
+
+    public enum StageOutcome {
+        SUCCESS, UNAUTHORIZED, FORBIDDEN, REJECTED, ERROR
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer[]> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer[]> downstreamTimers = new ConcurrentHashMap<>();
+
+    public GatewayMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordStage(ServerWebExchange exchange, Stage stage, StageOutcome outcome, long nanos) {
+        String routeId = routeId(exchange);
+        Timer[] timers = stageTimers.computeIfAbsent(routeId, key -> new Timer[STAGE_TIMERS]);
+        int slot = stage.ordinal() * STAGE_OUTCOMES.length + outcome.ordinal();
+        Timer timer = timers[slot];
+        if (timer == null) {
+            // El registro devuelve el mismo Timer para los mismos tags: una carrera aquí es inocua
+            timer = Timer.builder("gateway.filter.stage")
+                    .description("Duración de cada etapa de los filtros de autenticación")
+                    .tag("route", routeId)
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .tag("outcome", outcome.name())
+                    .register(meterRegistry);
+            timers[slot] = timer;
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDownstream(ServerWebExchange exchange, int status, long nanos) {
+        String routeId = routeId(exchange);
+        Timer[] timers = downstreamTimers.computeIfAbsent(routeId, key -> new Timer[HTTP_OUTCOMES.length]);
+        Outcome outcome = status > 0 ? Outcome.forStatus(status) : Outcome.UNKNOWN;
+        Timer timer = timers[outcome.ordinal()];
+        if (timer == null) {
+            timer = Timer.builder("gateway.downstream")
+                    .description("Latencia del servicio destino, desde que sale la petición hasta la respuesta")
+                    .tag("route", routeId)
+                    .tag("outcome", outcome.name())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            timers[outcome.ordinal()] = timer;
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : UNKNOWN_ROUTE;
+    }
+}
@@ -0,0 +1,98 @@
+package com.compuinside.gateway.service;
+
+import com.compuinside.gateway.dto.TokenRevocation;
+import com.compuinside.gateway.util.BloomFilter;
+import com.compuinside.gateway.util.TokenDigest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copia local de los tokens revocados en auth.
+ *
+ * <p>Un filtro de Bloom responde en memoria "seguro que no está revocado" para
+ * casi todas las peticiones; el conjunto exacto (digest → expiración) permite
+ * olvidar los tokens ya expirados y reconstruir el filtro sin ellos. Mientras
+ * no se haya sincronizado con auth, {@link #isSynced()} es falso y se sigue
+ * consultando a auth en cada petición.
+ */
+@Component
+@Slf4j
+public class TokenRevocationSet {
+
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloom;
+    private volatile boolean synced;
+
+    public TokenRevocationSet(
+            @Value("${auth.revocation.expected-insertions:100000}") long expectedInsertions,
+            @Value("${auth.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+            MeterRegistry meterRegistry) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloom = new BloomFilter(expectedInsertions, falsePositiveRate);
+
+        Gauge.builder("auth.revocations.size", revoked, Map::size)
+                .description("Tokens revocados no expirados conocidos por el gateway")
+                .register(meterRegistry);
+        Gauge.builder("auth.revocations.synced", this, set -> set.synced ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    public boolean isSynced() {
+        return synced;
+    }
+
+    /** Falso si el token seguro no está revocado; verdadero si puede estarlo. */
+    public boolean mightBeRevoked(String token) {
+        return bloom.mightContain(TokenDigest.sha256(token));
+    }
+
+    public void add(TokenRevocation revocation) {
+        if (revocation.getExpiresAt() <= System.currentTimeMillis()) {
+            return;
+        }
+        revoked.put(revocation.getDigest(), revocation.getExpiresAt());
+        bloom.put(TokenDigest.decode(revocation.getDigest()));
+    }
+
+    /**
+     * Carga la lista completa de una instancia de auth. No marca el conjunto
+     * como sincronizado: eso depende de que estén conectadas todas las
+     * instancias (ver {@link #markSynced()}).
+     */
+    public void load(Collection<TokenRevocation> revocations) {
+        revocations.forEach(this::add);
+        purgeExpired();
+        log.info("🔄 Revocaciones cargadas: {} tokens", revoked.size());
+    }
+
+    public void markSynced() {
+        synced = true;
+    }
+
+    public void markOutOfSync() {
+        synced = false;
+    }
+
+    /** Olvida los tokens expirados y reconstruye el filtro de Bloom sin ellos. */
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, revoked.size() * 2L), falsePositiveRate);
+        revoked.keySet().forEach(digest -> rebuilt.put(TokenDigest.decode(digest)));
+        bloom = rebuilt;
+        // Segunda pasada: revocaciones que llegaron al filtro anterior durante la reconstrucción
+        revoked.keySet().forEach(digest -> rebuilt.put(TokenDigest.decode(digest)));
+    }
+}
@@ -9,8 +9,13 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class TokenValidationService {
     private final AuthClientReactive authClient;
+    private final TokenRevocationSet revocationSet;
 
     public Mono<Boolean> isTokenValid(String token) {
+        // Con el conjunto de revocaciones sincronizado sólo se consulta auth ante un posible positivo
+        if (revocationSet.isSynced() && !revocationSet.mightBeRevoked(token)) {
+            return Mono.just(true);
+        }
         return authClient.isTokenValid(token);
     }
 }
@@ -0,0 +1,26 @@
+package com.compuinside.gateway.util;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.UUID;
+
+/**
+ * Claims de un JWT propio ya verificado. Inmutable: se comparte desde el cache
+ * de {@link JwtUtil} entre peticiones con el mismo token.
+ */
+@Getter
+@Builder
+@ToString
+public class JwtPrincipal {
+
+    private final String username;
+    private final String role;
+    private final String module;
+    private final UUID userId;
+    private final UUID accountId;
+
+    /** Instante de expiración (claim {@code exp}) en milisegundos epoch. */
+    private final long expiresAt;
+}
@@ -1,72 +1,97 @@
 package com.compuinside.gateway.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.security.Key;
+import java.util.Date;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
 
 @Component
+@Slf4j
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String SECRET_KEY;
+    // La clave y el parser se construyen una sola vez
+    private final JwtParser parser;
 
-    public boolean validateToken(final String token) {
+    // Tokens ya verificados, hasta su expiración; la clave es el SHA-256 del token (no se guarda en claro)
+    private final Cache<String, JwtPrincipal> verified;
+
+    public JwtUtil(@Value("${jwt.secret}") String secretKey,
+                   @Value("${jwt.cache.max-size:20000}") long cacheMaxSize) {
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey)))
+                .build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+    }
+
+    /**
+     * Verifica el token (firma y expiración) y devuelve todos sus claims de una
+     * vez. Los tokens vistos recientemente no se vuelven a verificar.
+     */
+    public Optional<JwtPrincipal> verify(String token) {
+        String key = TokenDigest.of(token);
+        JwtPrincipal cached = verified.getIfPresent(key);
+        if (cached != null && cached.getExpiresAt() > System.currentTimeMillis()) {
+            return Optional.of(cached);
+        }
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            JwtPrincipal principal = parse(token);
+            verified.put(key, principal);
+            return Optional.of(principal);
         } catch (Exception e) {
-            System.out.println("🔴 Token inválido" + e.getMessage());
-            return false;
+            log.debug("Token inválido: {}", e.getMessage());
+            return Optional.empty();
         }
     }
 
-    private Key getKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /** Verifica y extrae los claims sin pasar por el cache. */
+    public JwtPrincipal parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Date expiration = claims.getExpiration();
+        return JwtPrincipal.builder()
+                .username(claims.getSubject())
+                .role(claims.get("role", String.class))
+                .module(claims.get("module", String.class))
+                .userId(toUuid(claims.get("userId", String.class)))
+                .accountId(toUuid(claims.get("accountId", String.class)))
+                .expiresAt(expiration != null ? expiration.getTime() : Long.MAX_VALUE)
+                .build();
     }
 
-    public String getUsernameFromToken(String token) {
-        return extractClaim(token, Claims::getSubject);
+    private static UUID toUuid(String value) {
+        return value != null ? UUID.fromString(value) : null;
     }
 
-    private <T> T extractClaim (String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
+    private static class UntilTokenExpiry implements Expiry<String, JwtPrincipal> {
 
-    public String getRoleFromToken(String token) {
-        return extractClaim(token, claims -> claims.get("role", String.class));
-    }
-
-    public String getModuleFromToken(String token) {
-        return extractClaim(token, claims -> claims.get("module", String.class));
-    }
+        @Override
+        public long expireAfterCreate(String digest, JwtPrincipal principal, long currentTime) {
+            long remainingMillis = principal.getExpiresAt() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0L));
+        }
 
-    public UUID getUserIdFromToken(String token) {
-        return extractClaim(token, claims -> UUID.fromString(claims.get("userId", String.class)));
-    }
+        @Override
+        public long expireAfterUpdate(String digest, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, principal, currentTime);
+        }
 
-    public UUID getAccountIdFromToken(String token) {
-        Claims claims = extractAllClaims(token);
-        return UUID.fromString(claims.get("accountId", String.class));
+        @Override
+        public long expireAfterRead(String digest, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-
 }
@@ -0,0 +1,36 @@
+package com.compuinside.gateway.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 de un token, para indexarlo sin guardarlo en claro. El servicio auth
+ * publica las revocaciones con este mismo formato (base64url sin padding).
+ */
+public final class TokenDigest {
+
+    private TokenDigest() {
+    }
+
+    public static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    public static String encode(byte[] digest) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    public static byte[] decode(String digest) {
+        return Base64.getUrlDecoder().decode(digest);
+    }
+
+    public static String of(String token) {
+        return encode(sha256(token));
+    }
+}
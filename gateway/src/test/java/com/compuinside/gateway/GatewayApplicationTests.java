@@ -3,7 +3,7 @@ package com.compuinside.gateway;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "gateway.internal-token.secret=Qh4w7OLmmgE3f3LXqnrDLL69uOcw2is94iP7DgsQYdI=")
 class GatewayApplicationTests {
 
 	@Test
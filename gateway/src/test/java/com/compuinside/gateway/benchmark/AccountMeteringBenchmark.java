@@ -0,0 +1,100 @@
+package com.compuinside.gateway.benchmark;
+
+import com.compuinside.gateway.filter.AccountMeteringFilter;
+import com.compuinside.gateway.jwt.FirebasePrincipal;
+import com.compuinside.gateway.metering.AccountMeter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de medir una petición con AccountMeteringFilter, sin crear el exchange
+ * en cada operación (se reutiliza uno por cuenta):
+ * <ul>
+ *     <li>{@code record}: sólo {@link AccountMeter#record} sobre 1024 cuentas.</li>
+ *     <li>{@code hotAccount}: todos los hilos contando la misma cuenta.</li>
+ *     <li>{@code filter}: el filtro completo con un principal ya verificado.</li>
+ * </ul>
+ * Un volcado cada segundo corre en paralelo, como en el gateway.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.include="AccountMeteringBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class AccountMeteringBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+    private static final GatewayFilterChain CHAIN = exchange -> Mono.empty();
+
+    private AccountMeter meter;
+    private GatewayFilter filter;
+    private String[] accountIds;
+    private MockServerWebExchange[] exchanges;
+
+    @Setup
+    public void setUp() {
+        meter = new AccountMeter(reports -> { }, Duration.ofSeconds(1), 10, new SimpleMeterRegistry());
+        meter.start();
+        filter = new AccountMeteringFilter(meter).apply(new AccountMeteringFilter.Config());
+
+        accountIds = new String[ACCOUNTS];
+        exchanges = new MockServerWebExchange[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = "acc-" + i;
+            exchanges[i] = MockServerWebExchange.from(MockServerHttpRequest.post("/app/publicacion")
+                    .header(HttpHeaders.CONTENT_LENGTH, "524288"));
+            exchanges[i].getAttributes().put(FirebasePrincipal.EXCHANGE_ATTRIBUTE, FirebasePrincipal.builder()
+                    .uid("uid-" + i)
+                    .role("USER")
+                    .accountId(accountIds[i])
+                    .plan(i % 2 == 0 ? "BASIC" : "PREMIUM")
+                    .build());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        meter.destroy();
+    }
+
+    @Benchmark
+    public void record() {
+        meter.record(accountIds[ThreadLocalRandom.current().nextInt(ACCOUNTS)], "BASIC", 524288, false);
+    }
+
+    @Benchmark
+    public void hotAccount() {
+        meter.record("acc-0", "BASIC", 524288, false);
+    }
+
+    @Benchmark
+    public Mono<Void> filter() {
+        return filter.filter(exchanges[ThreadLocalRandom.current().nextInt(ACCOUNTS)], CHAIN);
+    }
+}
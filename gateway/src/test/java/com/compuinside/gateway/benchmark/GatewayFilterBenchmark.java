@@ -0,0 +1,255 @@
+package com.compuinside.gateway.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.compuinside.gateway.jwt.FirebaseAuthFilter;
+import com.compuinside.gateway.jwt.FirebaseKeyStore;
+import com.compuinside.gateway.jwt.FirebasePrincipal;
+import com.compuinside.gateway.jwt.FirebaseTokenCache;
+import com.compuinside.gateway.jwt.FirebaseTokenVerifier;
+import com.compuinside.gateway.jwt.InternalTokenIssuer;
+import com.compuinside.gateway.jwt.JwtAuthFilter;
+import com.compuinside.gateway.jwt.LocalFirebaseKeyServer;
+import com.compuinside.gateway.jwt.LocalFirebaseTokenVerifier;
+import com.compuinside.gateway.jwt.RouteAuthorizationTable;
+import com.compuinside.gateway.jwt.TokenVerificationExecutor;
+import com.compuinside.gateway.metrics.GatewayMetrics;
+import com.compuinside.gateway.service.TokenValidationService;
+import com.compuinside.gateway.util.JwtUtil;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por petición de los filtros de autenticación, con sustitutos locales
+ * en lugar de Firebase y de auth:
+ * <ul>
+ *     <li>{@code publicRoute}: ruta abierta, sólo la decisión de
+ *     {@link RouteAuthorizationTable} (lo que hacía RouteValidator).</li>
+ *     <li>{@code firebaseCached}: FirebaseAuthFilter con el token ya en
+ *     {@link FirebaseTokenCache}; el caso normal.</li>
+ *     <li>{@code firebaseLocalVerify}: sin cache, verificación RS256 con
+ *     {@link LocalFirebaseTokenVerifier} contra {@link LocalFirebaseKeyServer}.</li>
+ *     <li>{@code firebaseAdminSdk}: sin cache, verificador bloqueante como el
+ *     del Admin SDK (respuesta fija), que pasa por {@link TokenVerificationExecutor}.</li>
+ *     <li>{@code jwt}: JwtAuthFilter con un {@link TokenValidationService} que
+ *     responde como /internal/tokens/check sin red.</li>
+ * </ul>
+ * Cada operación incluye crear el exchange de prueba ({@code publicRoute} da esa
+ * base). Usa todos los núcleos ({@code -t} lo cambia); con {@code -prof gc}
+ * se ve la memoria asignada por petición ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.include="GatewayFilterBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class GatewayFilterBenchmark {
+
+    private static final String PROJECT_ID = "proyecto-cparalela";
+    private static final String JWT_SECRET = "586Z3272357538782A413F4428911A1B7241635358566B597033733676397124";
+    private static final String INTERNAL_SECRET = "pNr/yw7qzLACP3mgSaquuQr1vr85/q9AR1i4o0hiw1Q=";
+    private static final int USERS = 1024;
+
+    private static final GatewayFilterChain CHAIN = exchange -> Mono.empty();
+
+    private LocalFirebaseKeyServer keyServer;
+    private FirebaseKeyStore keyStore;
+    private TokenVerificationExecutor verificationExecutor;
+
+    private GatewayFilter firebaseCached;
+    private GatewayFilter firebaseLocalVerify;
+    private GatewayFilter firebaseAdminSdk;
+    private GatewayFilter jwt;
+
+    private String[] firebaseTokens;
+    private String[] jwtTokens;
+
+    @Setup
+    public void setUp() throws Exception {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GatewayMetrics metrics = new GatewayMetrics(meterRegistry);
+        RouteAuthorizationTable routeTable = new RouteAuthorizationTable(new MockEnvironment()
+                .withProperty("gateway.authorization.rules[0].path", "/app/bench/open/**")
+                .withProperty("gateway.authorization.rules[0].open", "true"));
+        routeTable.load();
+        InternalTokenIssuer issuer = new InternalTokenIssuer("v1", INTERNAL_SECRET, Duration.ofSeconds(60), 20_000);
+        verificationExecutor = new TokenVerificationExecutor(8, 1000, false, meterRegistry);
+
+        keyServer = new LocalFirebaseKeyServer();
+        String kid = keyServer.addKey();
+        keyStore = new FirebaseKeyStore(keyServer.url(), Duration.ZERO, Duration.ofSeconds(30));
+        keyStore.refresh();
+        LocalFirebaseTokenVerifier localVerifier = new LocalFirebaseTokenVerifier(keyStore, PROJECT_ID, Duration.ofSeconds(30));
+
+        firebaseTokens = new String[USERS];
+        jwtTokens = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            firebaseTokens[i] = keyServer.mint(kid, PROJECT_ID, "uid-" + i,
+                    Map.of("email", "user" + i + "@ups.edu.ec", "role", "USER", "accountId", "acc-" + i),
+                    Duration.ofHours(1));
+            jwtTokens[i] = jwtToken(i);
+        }
+
+        firebaseCached = firebaseFilter(localVerifier, new FirebaseTokenCache(USERS * 2L, 1000, Duration.ofSeconds(30), meterRegistry),
+                routeTable, metrics, issuer);
+        firebaseLocalVerify = firebaseFilter(localVerifier, new FirebaseTokenCache(0, 0, Duration.ofSeconds(30), meterRegistry),
+                routeTable, metrics, issuer);
+        firebaseAdminSdk = firebaseFilter(new StubAdminSdkVerifier(), new FirebaseTokenCache(0, 0, Duration.ofSeconds(30), meterRegistry),
+                routeTable, metrics, issuer);
+        jwt = jwtFilter(routeTable, metrics);
+
+        for (String token : firebaseTokens) {
+            firebaseCached.filter(exchange("/app/bench/firebase/warm", token), CHAIN).block();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        verificationExecutor.destroy();
+        keyStore.destroy();
+        keyServer.close();
+    }
+
+    @Benchmark
+    public MockServerWebExchange publicRoute() {
+        return run(firebaseCached, exchange("/app/bench/open/publicaciones", null));
+    }
+
+    @Benchmark
+    public MockServerWebExchange firebaseCached() {
+        return run(firebaseCached, exchange("/app/bench/firebase/publicaciones", next(firebaseTokens)));
+    }
+
+    @Benchmark
+    public MockServerWebExchange firebaseLocalVerify() {
+        return run(firebaseLocalVerify, exchange("/app/bench/firebase/publicaciones", next(firebaseTokens)));
+    }
+
+    @Benchmark
+    public MockServerWebExchange firebaseAdminSdk() {
+        return run(firebaseAdminSdk, exchange("/app/bench/firebase/publicaciones", next(firebaseTokens)));
+    }
+
+    @Benchmark
+    public MockServerWebExchange jwt() {
+        return run(jwt, exchange("/app/bench/jwt/publicaciones", next(jwtTokens)));
+    }
+
+    private static MockServerWebExchange run(GatewayFilter filter, MockServerWebExchange exchange) {
+        filter.filter(exchange, CHAIN).block();
+        if (exchange.getResponse().getStatusCode() != null) {
+            throw new IllegalStateException("Petición rechazada: " + exchange.getResponse().getStatusCode());
+        }
+        return exchange;
+    }
+
+    private static MockServerWebExchange exchange(String path, String token) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path);
+        if (token != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static String next(String[] tokens) {
+        return tokens[ThreadLocalRandom.current().nextInt(tokens.length)];
+    }
+
+    private GatewayFilter firebaseFilter(FirebaseTokenVerifier verifier, FirebaseTokenCache cache,
+                                         RouteAuthorizationTable routeTable, GatewayMetrics metrics,
+                                         InternalTokenIssuer issuer) {
+        FirebaseAuthFilter filter = new FirebaseAuthFilter();
+        ReflectionTestUtils.setField(filter, "tokenVerifier", verifier);
+        ReflectionTestUtils.setField(filter, "routeTable", routeTable);
+        ReflectionTestUtils.setField(filter, "tokenCache", cache);
+        ReflectionTestUtils.setField(filter, "verificationExecutor", verificationExecutor);
+        ReflectionTestUtils.setField(filter, "metrics", metrics);
+        ReflectionTestUtils.setField(filter, "internalTokenIssuer", issuer);
+        return filter.apply(new FirebaseAuthFilter.Config());
+    }
+
+    private static GatewayFilter jwtFilter(RouteAuthorizationTable routeTable, GatewayMetrics metrics) {
+        JwtAuthFilter filter = new JwtAuthFilter(new TokenValidationService(null, null) {
+            @Override
+            public Mono<Boolean> isTokenValid(String token) {
+                return Mono.just(true);
+            }
+        });
+        ReflectionTestUtils.setField(filter, "jwtUtil", new JwtUtil(JWT_SECRET, 20_000));
+        ReflectionTestUtils.setField(filter, "routeTable", routeTable);
+        ReflectionTestUtils.setField(filter, "metrics", metrics);
+        return filter.apply(new JwtAuthFilter.Config());
+    }
+
+    private static String jwtToken(int user) {
+        return Jwts.builder()
+                .setSubject("user" + user + "@ups.edu.ec")
+                .claim("role", "USER")
+                .claim("module", "DOCTOR_MODULE")
+                .claim("userId", UUID.randomUUID().toString())
+                .claim("accountId", UUID.randomUUID().toString())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(JWT_SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /** Sustituye a FirebaseAuth.verifyIdToken: bloqueante y con un principal fijo. */
+    private static class StubAdminSdkVerifier implements FirebaseTokenVerifier {
+
+        @Override
+        public FirebasePrincipal verify(String token) {
+            return FirebasePrincipal.builder()
+                    .uid("uid-admin-sdk")
+                    .email("admin-sdk@ups.edu.ec")
+                    .role("USER")
+                    .accountId("acc-admin-sdk")
+                    .expiresAt(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1))
+                    .build();
+        }
+
+        @Override
+        public boolean isBlocking() {
+            return true;
+        }
+    }
+}
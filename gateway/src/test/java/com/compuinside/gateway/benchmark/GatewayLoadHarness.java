@@ -0,0 +1,177 @@
+package com.compuinside.gateway.benchmark;
+
+import com.compuinside.gateway.GatewayApplication;
+import com.compuinside.gateway.jwt.LocalFirebaseKeyServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de carga de punta a punta sin Firebase ni auth reales: arranca en
+ * este proceso el gateway, {@link LocalFirebaseKeyServer} como endpoint JWK de
+ * Google y el stub de {@link LoadDriver} como auth (/internal/tokens/check) y
+ * como servicio destino, y mide tres rutas:
+ * <ul>
+ *     <li>{@code open}: ruta pública con FirebaseAuthFilter (proxy puro).</li>
+ *     <li>{@code firebase}: FirebaseAuthFilter con {@code users} ID tokens RS256.</li>
+ *     <li>{@code jwt}: JwtAuthFilter con {@code users} tokens HS256; la revocación
+ *     por SSE está desactivada, así que cada token pasa por el lote de
+ *     /internal/tokens/check.</li>
+ * </ul>
+ * Tras calentar todas las rutas, imprime para cada una peticiones por segundo,
+ * percentiles y la memoria que asignan los hilos del gateway (todos salvo los
+ * del driver) por segundo y por petición.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Dbenchmark.main=com.compuinside.gateway.benchmark.GatewayLoadHarness \
+ *     -Dbenchmark.args="connections=64 duration=30s scenarios=open,firebase,jwt"
+ * </pre>
+ */
+public final class GatewayLoadHarness {
+
+    private static final String PROJECT_ID = "proyecto-cparalela";
+    private static final String JWT_SECRET = "586Z3272357538782A413F4428911A1B7241635358566B597033733676397124";
+
+    private GatewayLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadDriver.parse(args);
+        int connections = Integer.parseInt(options.getOrDefault("connections", "64"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "30s"));
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "30s"));
+        boolean preferNative = Boolean.parseBoolean(options.getOrDefault("native", "false"));
+        int gatewayPort = Integer.parseInt(options.getOrDefault("port", "18080"));
+        int stubPort = Integer.parseInt(options.getOrDefault("stub-port", "15055"));
+        Duration stubDelay = Duration.parse("PT" + options.getOrDefault("stub-delay", "0s"));
+        List<String> scenarios = List.of(options.getOrDefault("scenarios", "open,firebase,jwt").split(","));
+
+        LoopResources loops = LoadDriver.loops();
+        DisposableServer stub = LoadDriver.startStub(loops, preferNative, stubPort, stubDelay);
+        ConnectionProvider provider = LoadDriver.provider(connections);
+        HttpClient client = LoadDriver.client(provider, loops, preferNative);
+
+        try (LocalFirebaseKeyServer keyServer = new LocalFirebaseKeyServer()) {
+            String kid = keyServer.addKey();
+            List<String> firebaseTokens = new ArrayList<>(users);
+            List<String> jwtTokens = new ArrayList<>(users);
+            for (int i = 0; i < users; i++) {
+                firebaseTokens.add("Bearer " + keyServer.mint(kid, PROJECT_ID, "uid-" + i,
+                        Map.of("email", "user" + i + "@ups.edu.ec", "role", "USER", "accountId", "acc-" + i),
+                        Duration.ofHours(2)));
+                jwtTokens.add("Bearer " + jwtToken(i));
+            }
+
+            try (ConfigurableApplicationContext gateway = startGateway(keyServer.url(), gatewayPort, stubPort, preferNative)) {
+                String base = "http://localhost:" + gatewayPort;
+                Map<String, List<String>> authorizations = Map.of(
+                        "open", List.of(), "firebase", firebaseTokens, "jwt", jwtTokens);
+                // Primero se calientan todas las rutas, para que la primera no se mida con el JIT a medias
+                for (String scenario : scenarios) {
+                    LoadDriver.run(client, url(base, scenario), authorizations.getOrDefault(scenario, List.of()), connections, warmup);
+                }
+                for (String scenario : scenarios) {
+                    long allocatedBefore = gatewayAllocatedBytes();
+                    LoadDriver.Result result = LoadDriver.run(client, url(base, scenario),
+                            authorizations.getOrDefault(scenario, List.of()), connections, duration);
+                    long allocated = gatewayAllocatedBytes() - allocatedBefore;
+
+                    double seconds = result.elapsedNanos() / 1e9;
+                    System.out.printf("%-9s %s | asignado %.1f MB/s, %.1f KB/petición%n", scenario, result,
+                            allocated / seconds / (1024 * 1024),
+                            result.requests() > 0 ? allocated / 1024.0 / result.requests() : 0);
+                }
+            }
+        } finally {
+            provider.disposeLater().block();
+            stub.disposeNow();
+            loops.disposeLater().block();
+        }
+    }
+
+    private static String url(String base, String scenario) {
+        return base + "/app/bench/" + scenario + "/publicaciones";
+    }
+
+    private static ConfigurableApplicationContext startGateway(String keysUrl, int port, int stubPort, boolean preferNative) {
+        String stub = "http://localhost:" + stubPort;
+        // Argumentos de línea de comandos: sustituyen por completo rutas y reglas de application.yaml
+        return new SpringApplicationBuilder(GatewayApplication.class).run(
+                "--server.port=" + port,
+                "--gateway.transport.native=" + preferNative,
+                "--eureka.client.enabled=false",
+                "--auth.revocation.enabled=false",
+                // Las instancias de simple discovery no declaran esquema: lb:// llegaría tal cual a reactor-netty
+                "--auth.token-check.base-url=http://auth",
+                "--gateway.internal-token.secret=Qh4w7OLmmgE3f3LXqnrDLL69uOcw2is94iP7DgsQYdI=",
+                "--spring.devtools.restart.enabled=false",
+                "--logging.level.root=WARN",
+                "--firebase.verifier=local",
+                "--firebase.keys.url=" + keysUrl,
+                "--firebase.keys.min-refresh-interval=0s",
+                "--spring.cloud.discovery.client.simple.instances.app-module[0].uri=" + stub,
+                "--spring.cloud.discovery.client.simple.instances.auth[0].uri=" + stub,
+                "--gateway.authorization.rules[0].path=/app/bench/open/**",
+                "--gateway.authorization.rules[0].open=true",
+                "--spring.cloud.gateway.routes[0].id=bench-open",
+                "--spring.cloud.gateway.routes[0].uri=lb://app-module",
+                "--spring.cloud.gateway.routes[0].predicates[0]=Path=/app/bench/open/**",
+                "--spring.cloud.gateway.routes[0].filters[0]=FirebaseAuthFilter",
+                "--spring.cloud.gateway.routes[1].id=bench-firebase",
+                "--spring.cloud.gateway.routes[1].uri=lb://app-module",
+                "--spring.cloud.gateway.routes[1].predicates[0]=Path=/app/bench/firebase/**",
+                "--spring.cloud.gateway.routes[1].filters[0]=FirebaseAuthFilter",
+                "--spring.cloud.gateway.routes[2].id=bench-jwt",
+                "--spring.cloud.gateway.routes[2].uri=lb://app-module",
+                "--spring.cloud.gateway.routes[2].predicates[0]=Path=/app/bench/jwt/**",
+                "--spring.cloud.gateway.routes[2].filters[0]=JwtAuthFilter");
+    }
+
+    /** Bytes asignados hasta ahora por los hilos vivos que no son del driver ({@code load-}) ni {@code main}. */
+    private static long gatewayAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info == null || info.getThreadName().startsWith("load-") || info.getThreadName().equals("main")) {
+                continue;
+            }
+            long allocated = threads.getThreadAllocatedBytes(info.getThreadId());
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+
+    private static String jwtToken(int user) {
+        return Jwts.builder()
+                .setSubject("user" + user + "@ups.edu.ec")
+                .claim("role", "USER")
+                .claim("module", "DOCTOR_MODULE")
+                .claim("userId", UUID.randomUUID().toString())
+                .claim("accountId", UUID.randomUUID().toString())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(JWT_SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
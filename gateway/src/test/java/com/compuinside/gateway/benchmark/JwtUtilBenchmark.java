@@ -0,0 +1,95 @@
+package com.compuinside.gateway.benchmark;
+
+import com.compuinside.gateway.util.JwtPrincipal;
+import com.compuinside.gateway.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por petición de extraer los claims que necesita JwtAuthFilter:
+ * <ul>
+ *     <li>{@code legacy}: lo que hacía el filtro antes, reconstruir la clave y
+ *     verificar el token seis veces (validate + cinco getters).</li>
+ *     <li>{@code singleParse}: una sola verificación con el parser compartido.</li>
+ *     <li>{@code cached}: token repetido, resuelto desde el cache de JwtUtil.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "586Z3272357538782A413F4428911A1B7241635358566B597033733676397124";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 20_000);
+        token = Jwts.builder()
+                .setSubject("usuario@ups.edu.ec")
+                .claim("role", "ADMIN")
+                .claim("module", "DOCTOR_MODULE")
+                .claim("userId", UUID.randomUUID().toString())
+                .claim("accountId", UUID.randomUUID().toString())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(legacyKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        legacyClaims(token);
+        blackhole.consume(legacyClaims(token).getSubject());
+        blackhole.consume(legacyClaims(token).get("role", String.class));
+        blackhole.consume(legacyClaims(token).get("module", String.class));
+        blackhole.consume(UUID.fromString(legacyClaims(token).get("userId", String.class)));
+        blackhole.consume(UUID.fromString(legacyClaims(token).get("accountId", String.class)));
+    }
+
+    @Benchmark
+    public JwtPrincipal singleParse() {
+        return jwtUtil.parse(token);
+    }
+
+    @Benchmark
+    public JwtPrincipal cached() {
+        return jwtUtil.verify(token).orElseThrow();
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(legacyKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static Key legacyKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+}
@@ -0,0 +1,224 @@
+package com.compuinside.gateway.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carga HTTP contra un gateway ya arrancado: {@code connections} conexiones
+ * que repiten la petición en cuanto reciben la respuesta (lazo cerrado).
+ * Tras el calentamiento imprime peticiones por segundo, percentiles de latencia
+ * y errores (excepciones y respuestas que no son 2xx).
+ *
+ * <p>Con {@code stub-port} levanta además un servicio de prueba en ese puerto
+ * (ver {@link #startStub}); el gateway se arranca con la instancia de
+ * app-module apuntando a él. {@code native} elige el transporte del propio
+ * driver y del stub, igual que {@code gateway.transport.native} en el gateway.
+ * {@link GatewayLoadHarness} usa estas mismas piezas con el gateway en proceso.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Dbenchmark.main=com.compuinside.gateway.benchmark.LoadDriver \
+ *     -Dbenchmark.args="url=http://localhost:8080/app/publicacion/lista connections=64 duration=30s stub-port=5055"
+ * </pre>
+ */
+public final class LoadDriver {
+
+    private static final String STUB_BODY = "{\"ok\":true}";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private LoadDriver() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = parse(args);
+        String url = options.getOrDefault("url", "http://localhost:8080/app/publicacion/lista");
+        int connections = Integer.parseInt(options.getOrDefault("connections", "64"));
+        Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "10s"));
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "30s"));
+        boolean preferNative = Boolean.parseBoolean(options.getOrDefault("native", "true"));
+        int stubPort = Integer.parseInt(options.getOrDefault("stub-port", "0"));
+        Duration stubDelay = Duration.parse("PT" + options.getOrDefault("stub-delay", "0s"));
+        String authorization = options.get("authorization");
+
+        LoopResources loops = loops();
+        DisposableServer stub = stubPort > 0 ? startStub(loops, preferNative, stubPort, stubDelay) : null;
+        ConnectionProvider provider = provider(connections);
+        HttpClient client = client(provider, loops, preferNative);
+        List<String> authorizations = authorization != null ? List.of(authorization) : List.of();
+
+        try {
+            System.out.printf("Driver: %s, %d conexiones, transporte %s%n", url, connections,
+                    loops.onChannelClass(SocketChannel.class, loops.onClient(preferNative)).getSimpleName());
+            run(client, url, authorizations, connections, warmup);
+            Result result = run(client, url, authorizations, connections, duration);
+            System.out.println(result);
+        } finally {
+            provider.disposeLater().block();
+            if (stub != null) {
+                stub.disposeNow();
+            }
+            loops.disposeLater().block();
+        }
+    }
+
+    /** Event loops del driver y del stub; sus hilos empiezan por {@code load-}. */
+    static LoopResources loops() {
+        return LoopResources.create("load", 1, Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    static ConnectionProvider provider(int connections) {
+        return ConnectionProvider.builder("load")
+                .maxConnections(connections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+    }
+
+    static HttpClient client(ConnectionProvider provider, LoopResources loops, boolean preferNative) {
+        return HttpClient.create(provider).runOn(loops, preferNative);
+    }
+
+    /**
+     * Lanza GET a {@code url} durante {@code duration}. Cada petición lleva como
+     * {@code Authorization} el siguiente valor de {@code authorizations} (ninguno
+     * si la lista está vacía).
+     */
+    static Result run(HttpClient client, String url, List<String> authorizations, int connections, Duration duration) {
+        Recorder recorder = new Recorder();
+        AtomicInteger next = new AtomicInteger();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+
+        Mono<Void> request = Mono.defer(() -> {
+            long sent = System.nanoTime();
+            HttpClient requestClient = authorizations.isEmpty() ? client : client.headers(headers -> headers.set(
+                    HttpHeaderNames.AUTHORIZATION,
+                    authorizations.get(Math.floorMod(next.getAndIncrement(), authorizations.size()))));
+            return requestClient.get().uri(url)
+                    .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                    .doOnNext(status -> recorder.record(System.nanoTime() - sent, status < 200 || status >= 300))
+                    .onErrorResume(e -> {
+                        recorder.record(System.nanoTime() - sent, true);
+                        return Mono.empty();
+                    })
+                    .then();
+        });
+        Flux.range(0, connections)
+                .flatMap(connection -> request.repeat(() -> System.nanoTime() < deadline), connections)
+                .blockLast();
+
+        return recorder.result(System.nanoTime() - start);
+    }
+
+    /**
+     * Servicio de prueba en {@code port}: hace de auth en
+     * {@code POST /internal/tokens/check/batch} (todos los tokens válidos) y
+     * responde {@code {"ok":true}} tras {@code delay} a cualquier otra ruta.
+     */
+    static DisposableServer startStub(LoopResources loops, boolean preferNative, int port, Duration delay) {
+        return HttpServer.create()
+                .port(port)
+                .runOn(loops, preferNative)
+                .handle((request, response) -> {
+                    if (request.uri().startsWith("/internal/tokens/check/batch")) {
+                        return response.header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                                .sendString(request.receive().aggregate().asString().map(LoadDriver::allValid));
+                    }
+                    Mono<String> body = Mono.just(STUB_BODY);
+                    if (!delay.isZero()) {
+                        body = body.delayElement(delay);
+                    }
+                    return response.header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                            .sendString(body);
+                })
+                .bindNow();
+    }
+
+    private static String allValid(String tokens) {
+        try {
+            Map<String, Boolean> result = new HashMap<>();
+            for (String token : JSON.readValue(tokens, String[].class)) {
+                result.put(token, true);
+            }
+            return JSON.writeValueAsString(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Admite {@code clave=valor} sueltos o varios separados por espacios en un mismo argumento. */
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            for (String option : arg.trim().split("\\s+")) {
+                int separator = option.indexOf('=');
+                if (separator > 0) {
+                    options.put(option.substring(0, separator), option.substring(separator + 1));
+                }
+            }
+        }
+        return options;
+    }
+
+    /** Latencias de todas las peticiones, en nanosegundos. */
+    private static class Recorder {
+
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[1 << 16];
+        private int size;
+
+        private synchronized void record(long nanos, boolean error) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            if (error) {
+                errors.incrementAndGet();
+            }
+        }
+
+        private synchronized Result result(long elapsedNanos) {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return new Result(size, errors.get(), elapsedNanos, sorted);
+        }
+    }
+
+    record Result(int requests, long errors, long elapsedNanos, long[] sorted) {
+
+        double percentileMillis(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d peticiones (%d errores) en %.1fs: %.0f req/s | "
+                            + "p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms",
+                    requests, errors, elapsedNanos / 1e9, requests / (elapsedNanos / 1e9),
+                    percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                    percentileMillis(100));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.compuinside.gateway.benchmark;
+
+import com.compuinside.gateway.jwt.RouteRule;
+import com.compuinside.gateway.jwt.RouteTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de decidir la regla de una ruta con {@code rules} reglas configuradas:
+ * <ul>
+ *     <li>{@code legacy}: recorrer prefijos con {@code startsWith} y evaluar
+ *     patrones con {@code String.matches}, como RouteValidator y los filtros.</li>
+ *     <li>{@code trie}: {@link RouteTrie#match(String)}.</li>
+ * </ul>
+ * Con {@code -prof gc} se comprueba que {@code trie} no asigna memoria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteTrieBenchmark {
+
+    @Param({"10", "100", "500"})
+    private int rules;
+
+    private RouteTrie trie;
+    private List<String> prefixes;
+    private List<String> patterns;
+    private String[] paths;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<RouteRule> configured = new ArrayList<>();
+        prefixes = new ArrayList<>();
+        patterns = new ArrayList<>();
+        for (int i = 0; i < rules; i++) {
+            String service = "/svc" + (i % 20);
+            if (i % 2 == 0) {
+                configured.add(new RouteRule(service + "/resource" + i + "/**"));
+                prefixes.add(service + "/resource" + i + "/");
+            } else {
+                configured.add(new RouteRule(service + "/resource" + i + "/*/action"));
+                patterns.add(".*" + service + "/resource" + i + "/.*/action");
+            }
+        }
+        trie = RouteTrie.compile(configured);
+
+        paths = new String[]{
+                "/svc3/resource" + (rules - 2) + "/items/42",
+                "/svc1/resource" + (rules - 1) + "/abc/action",
+                "/app/publicacion/feed",
+                "/svc7/resource7/x/action",
+        };
+    }
+
+    private String nextPath() {
+        next = (next + 1) & 3;
+        return paths[next];
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        String path = nextPath();
+        boolean matched = prefixes.stream().anyMatch(path::startsWith);
+        for (String pattern : patterns) {
+            matched |= path.matches(pattern);
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public RouteRule trie() {
+        return trie.match(nextPath());
+    }
+}
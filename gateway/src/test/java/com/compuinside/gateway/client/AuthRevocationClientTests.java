@@ -0,0 +1,126 @@
+package com.compuinside.gateway.client;
+
+import com.compuinside.gateway.config.DownstreamClientProperties;
+import com.compuinside.gateway.config.DownstreamHttpClients;
+import com.compuinside.gateway.config.NettyTransport;
+import com.compuinside.gateway.service.TokenRevocationSet;
+import com.compuinside.gateway.util.TokenDigest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuthRevocationClientTests {
+
+	private final List<ServiceInstance> instances = new CopyOnWriteArrayList<>();
+	private final TokenRevocationSet revocationSet = new TokenRevocationSet(1000, 0.01, new SimpleMeterRegistry());
+	private final Sinks.Many<String> firstEvents = Sinks.many().multicast().directBestEffort();
+	private final Sinks.Many<String> secondEvents = Sinks.many().multicast().directBestEffort();
+
+	private DisposableServer first;
+	private DisposableServer second;
+	private DownstreamHttpClients httpClients;
+	private AuthRevocationClient client;
+
+	@BeforeEach
+	void setUp() {
+		first = authInstance(firstEvents);
+		second = authInstance(secondEvents);
+		instances.add(instance("auth-1", first));
+		instances.add(instance("auth-2", second));
+
+		ReactiveDiscoveryClient discoveryClient = mock(ReactiveDiscoveryClient.class);
+		when(discoveryClient.getInstances("auth")).thenAnswer(invocation -> Flux.fromIterable(instances));
+		httpClients = new DownstreamHttpClients(new DownstreamClientProperties(), new NettyTransport(false));
+		client = new AuthRevocationClient(httpClients, discoveryClient, revocationSet, new ObjectMapper(), true, "auth",
+				Duration.ofMillis(100), Duration.ofMinutes(5), Duration.ofSeconds(90));
+		client.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		client.stop();
+		first.disposeNow();
+		second.disposeNow();
+		httpClients.destroy();
+	}
+
+	@Test
+	void receivesRevocationsFromEveryInstance() {
+		await(revocationSet::isSynced);
+
+		firstEvents.tryEmitNext(revoked("token-logout-en-auth-1"));
+		secondEvents.tryEmitNext(revoked("token-logout-en-auth-2"));
+
+		await(() -> revocationSet.mightBeRevoked("token-logout-en-auth-1")
+				&& revocationSet.mightBeRevoked("token-logout-en-auth-2"));
+		assertFalse(revocationSet.mightBeRevoked("token-vigente"));
+	}
+
+	@Test
+	void staysOutOfSyncUntilANewInstanceIsConnected() {
+		await(revocationSet::isSynced);
+
+		// Una instancia registrada que no responde deja el conjunto sin sincronizar
+		instances.add(new DefaultServiceInstance("auth-3", "auth", "localhost", 1, false));
+		await(() -> !revocationSet.isSynced());
+
+		instances.remove(2);
+		await(revocationSet::isSynced);
+		assertTrue(revocationSet.isSynced());
+	}
+
+	private static DisposableServer authInstance(Sinks.Many<String> events) {
+		return HttpServer.create()
+				.port(0)
+				.route(routes -> routes
+						.get("/internal/tokens/revocations", (request, response) ->
+								response.header("Content-Type", "application/json").sendString(Flux.just("[]")))
+						.get("/internal/tokens/revocations/stream", (request, response) ->
+								response.header("Content-Type", "text/event-stream")
+										.sendString(Flux.just("event:ready\ndata:ok\n\n").concatWith(events.asFlux()))))
+				.bindNow();
+	}
+
+	private static ServiceInstance instance(String id, DisposableServer server) {
+		return new DefaultServiceInstance(id, "auth", "localhost", server.port(), false);
+	}
+
+	private static String revoked(String token) {
+		long expiresAt = System.currentTimeMillis() + 60_000;
+		return "event:revoked\ndata:{\"digest\":\"" + TokenDigest.of(token) + "\",\"expiresAt\":" + expiresAt + "}\n\n";
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				throw new AssertionError("La condición no se cumplió en 10s");
+			}
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new AssertionError(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.compuinside.gateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveConcurrencyFilterTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AdaptiveConcurrencyFilter factory = new AdaptiveConcurrencyFilter(meterRegistry);
+
+	@Test
+	void limitAndGaugesSurviveRouteRefresh() {
+		Sinks.Empty<Void> slow = Sinks.empty();
+		MockServerWebExchange pending = exchange();
+		factory.apply(config()).filter(pending, exchange -> slow.asMono()).subscribe();
+
+		// Tras el refresco la petición en curso sigue contando contra el mismo límite
+		GatewayFilter refreshed = factory.apply(config());
+		MockServerWebExchange rejected = exchange();
+		refreshed.filter(rejected, exchange -> Mono.empty()).block();
+
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+		assertEquals(1, meterRegistry.get("gateway.concurrency.inflight").gauges().size());
+		assertEquals(1.0, meterRegistry.get("gateway.concurrency.inflight").gauge().value());
+		slow.tryEmitEmpty();
+	}
+
+	private static AdaptiveConcurrencyFilter.Config config() {
+		AdaptiveConcurrencyFilter.Config config = new AdaptiveConcurrencyFilter.Config();
+		config.setName("predict");
+		config.setInitialLimit(1);
+		config.setMinLimit(1);
+		return config;
+	}
+
+	private static MockServerWebExchange exchange() {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("/predict"));
+	}
+}
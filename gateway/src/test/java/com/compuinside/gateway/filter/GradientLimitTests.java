@@ -0,0 +1,68 @@
+package com.compuinside.gateway.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradientLimitTests {
+
+	private static final long BASE_RTT = TimeUnit.MILLISECONDS.toNanos(20);
+
+	/**
+	 * Ronda síncrona: se llena el límite y se liberan todas las peticiones con el
+	 * RTT de un servicio que atiende {@code capacity} a la vez y encola el resto.
+	 */
+	private static void round(GradientLimit limit, int capacity) {
+		int admitted = 0;
+		while (limit.tryAcquire() > 0) {
+			admitted++;
+		}
+		long rtt = BASE_RTT * Math.max(1, (admitted + capacity - 1) / capacity);
+		for (int i = 0; i < admitted; i++) {
+			limit.release(rtt, admitted);
+		}
+	}
+
+	@Test
+	void rejectsWhenLimitIsReached() {
+		GradientLimit limit = new GradientLimit(2, 1, 10, 10, 1000, 1.5, 0.2);
+		assertEquals(1, limit.tryAcquire());
+		assertEquals(2, limit.tryAcquire());
+		assertEquals(-1, limit.tryAcquire());
+		limit.release();
+		assertEquals(2, limit.tryAcquire());
+	}
+
+	@Test
+	void growsWhileLatencyStaysFlat() {
+		GradientLimit limit = new GradientLimit(10, 2, 500, 10, 1000, 1.5, 0.2);
+		for (int i = 0; i < 50; i++) {
+			round(limit, 1000);
+		}
+		assertTrue(limit.getLimit() > 100, "límite " + limit.getLimit());
+	}
+
+	@Test
+	void convergesNearServiceCapacityWhenQueueing() {
+		int capacity = 16;
+		GradientLimit limit = new GradientLimit(4, 2, 500, 10, 1000, 1.5, 0.2);
+		for (int i = 0; i < 400; i++) {
+			round(limit, capacity);
+		}
+		assertTrue(limit.getLimit() >= capacity / 2 && limit.getLimit() <= capacity * 3,
+				"límite " + limit.getLimit());
+	}
+
+	@Test
+	void doesNotGrowWhenUnderused() {
+		GradientLimit limit = new GradientLimit(50, 2, 500, 10, 1000, 1.5, 0.2);
+		for (int i = 0; i < 100; i++) {
+			int inFlight = limit.tryAcquire();
+			limit.release(BASE_RTT, inFlight);
+		}
+		assertEquals(50, limit.getLimit());
+	}
+}
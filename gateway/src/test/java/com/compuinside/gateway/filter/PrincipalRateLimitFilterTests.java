@@ -0,0 +1,60 @@
+package com.compuinside.gateway.filter;
+
+import com.compuinside.gateway.jwt.FirebasePrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PrincipalRateLimitFilterTests {
+
+	private final PrincipalRateLimitFilter factory = new PrincipalRateLimitFilter(new SimpleMeterRegistry());
+	private final GatewayFilterChain upstream = exchange -> Mono.empty();
+
+	@Test
+	void bucketsSurviveRouteRefresh() {
+		PrincipalRateLimitFilter.Config config = config("uid");
+
+		assertNull(request(factory.apply(config), principal("ana", "USER", "cuenta-1")));
+		// Un refresco de rutas vuelve a llamar a apply con la misma ruta
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+				request(factory.apply(config("uid")), principal("ana", "USER", "cuenta-1")));
+	}
+
+	@Test
+	void accountModeSharesOneBucketAcrossUsersAndRoles() {
+		GatewayFilter filter = factory.apply(config("account"));
+
+		assertNull(request(filter, principal("ana", "USER", "cuenta-1")));
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, request(filter, principal("luis", "ADMIN", "cuenta-1")));
+		assertNull(request(filter, principal("eva", "USER", "cuenta-2")));
+	}
+
+	private static PrincipalRateLimitFilter.Config config(String key) {
+		PrincipalRateLimitFilter.Config config = new PrincipalRateLimitFilter.Config();
+		config.setRouteId("ruta");
+		config.setKey(key);
+		config.setCapacity(1);
+		config.setRefillPerSecond(0.001);
+		return config;
+	}
+
+	private static FirebasePrincipal principal(String uid, String role, String accountId) {
+		return FirebasePrincipal.builder().uid(uid).role(role).accountId(accountId).build();
+	}
+
+	private HttpStatusCode request(GatewayFilter filter, FirebasePrincipal principal) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/app/publicacion"));
+		exchange.getAttributes().put(FirebasePrincipal.EXCHANGE_ATTRIBUTE, principal);
+		filter.filter(exchange, upstream).block();
+		return exchange.getResponse().getStatusCode();
+	}
+}
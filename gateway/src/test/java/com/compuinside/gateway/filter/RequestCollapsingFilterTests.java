@@ -0,0 +1,97 @@
+package com.compuinside.gateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RequestCollapsingFilterTests {
+
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final GatewayFilter filter;
+
+	RequestCollapsingFilterTests() {
+		RequestCollapsingFilter.Config config = new RequestCollapsingFilter.Config();
+		config.setPaths(List.of("/app/publicacion/feed"));
+		filter = new RequestCollapsingFilter(meterRegistry).apply(config);
+	}
+
+	/** Servicio simulado que tarda 100 ms y responde con el número de llamada. */
+	private GatewayFilterChain upstream(HttpStatus status, String... extraHeader) {
+		return exchange -> Mono.delay(Duration.ofMillis(100)).then(Mono.defer(() -> {
+			int call = upstreamCalls.incrementAndGet();
+			exchange.getResponse().setStatusCode(status);
+			exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			if (extraHeader.length == 2) {
+				exchange.getResponse().getHeaders().add(extraHeader[0], extraHeader[1]);
+			}
+			byte[] body = ("{\"call\":" + call + "}").getBytes(StandardCharsets.UTF_8);
+			return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+		}));
+	}
+
+	private List<MockServerWebExchange> concurrentGets(int count, String uri, GatewayFilterChain chain) {
+		List<MockServerWebExchange> exchanges = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			exchanges.add(MockServerWebExchange.from(MockServerHttpRequest.get(uri)));
+		}
+		Flux.fromIterable(exchanges)
+				.flatMap(exchange -> filter.filter(exchange, chain))
+				.blockLast(Duration.ofSeconds(5));
+		return exchanges;
+	}
+
+	@Test
+	void collapsesIdenticalConcurrentGets() {
+		List<MockServerWebExchange> exchanges = concurrentGets(20, "/app/publicacion/feed?limit=50", upstream(HttpStatus.OK));
+
+		assertEquals(1, upstreamCalls.get());
+		for (MockServerWebExchange exchange : exchanges) {
+			assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+			assertEquals(MediaType.APPLICATION_JSON, exchange.getResponse().getHeaders().getContentType());
+			assertEquals("{\"call\":1}", exchange.getResponse().getBodyAsString().block());
+		}
+		assertEquals(19, meterRegistry.counter("gateway.collapse.requests", "name", "collapse", "result", "collapsed").count());
+	}
+
+	@Test
+	void differentQueriesAreNotCollapsed() {
+		concurrentGets(1, "/app/publicacion/feed?limit=10", upstream(HttpStatus.OK));
+		concurrentGets(1, "/app/publicacion/feed?limit=50", upstream(HttpStatus.OK));
+		assertEquals(2, upstreamCalls.get());
+	}
+
+	@Test
+	void responsesWithCookiesAreNotShared() {
+		List<MockServerWebExchange> exchanges = concurrentGets(5, "/app/publicacion/feed",
+				upstream(HttpStatus.OK, HttpHeaders.SET_COOKIE, "session=abc"));
+
+		assertEquals(5, upstreamCalls.get());
+		for (MockServerWebExchange exchange : exchanges) {
+			assertNull(exchange.getResponse().getHeaders().getFirst("X-Collapsed"));
+		}
+	}
+
+	@Test
+	void pathsOutsideConfigurationPassThrough() {
+		concurrentGets(3, "/app/publicacion/obtener/all", upstream(HttpStatus.OK));
+		assertEquals(3, upstreamCalls.get());
+	}
+}
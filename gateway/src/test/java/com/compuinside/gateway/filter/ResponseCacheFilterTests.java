@@ -0,0 +1,172 @@
+package com.compuinside.gateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheFilterTests {
+
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private final ResponseCacheFilter factory = new ResponseCacheFilter(new SimpleMeterRegistry());
+
+	private final GatewayFilterChain upstream = exchange -> Mono.defer(() -> {
+		upstreamCalls.incrementAndGet();
+		exchange.getResponse().setStatusCode(HttpStatus.OK);
+		byte[] body = exchange.getRequest().getPath().value().getBytes(StandardCharsets.UTF_8);
+		return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+	});
+
+	private static ResponseCacheFilter.Config config() {
+		ResponseCacheFilter.Config config = new ResponseCacheFilter.Config();
+		config.setPaths(List.of("/app/publicacion/**"));
+		return config;
+	}
+
+	/** El ResponseCacheFilter de la ruta {@code routeId} tal como lo configura application.yaml. */
+	private GatewayFilter routeFilter(String routeId) throws IOException {
+		Binder binder = new Binder(ConfigurationPropertySources.from(new YamlPropertySourceLoader()
+				.load("application", new ClassPathResource("application.yaml")).get(0)));
+		FilterDefinition definition = binder.bind("spring.cloud.gateway.routes", Bindable.listOf(RouteDefinition.class))
+				.get().stream()
+				.filter(route -> route.getId().equals(routeId))
+				.flatMap(route -> route.getFilters().stream())
+				.filter(filter -> filter.getName().equals("ResponseCacheFilter"))
+				.findFirst().orElseThrow();
+		ResponseCacheFilter.Config config = new ConfigurationService(new DefaultListableBeanFactory(),
+				DefaultConversionService::getSharedInstance, () -> null)
+				.with(factory)
+				.name(definition.getName())
+				.properties(definition.getArgs())
+				.bind();
+		return factory.apply(config);
+	}
+
+	private String get(GatewayFilter filter, String uri) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(uri).header("accountId", "acc-1"));
+		filter.filter(exchange, upstream).block();
+		return exchange.getResponse().getHeaders().getFirst("X-Cache");
+	}
+
+	private void put(GatewayFilter filter, String uri) {
+		send(filter, HttpMethod.PUT, uri);
+	}
+
+	private void send(GatewayFilter filter, HttpMethod method, String uri) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.method(method, uri));
+		filter.filter(exchange, upstream).block();
+	}
+
+	@Test
+	void cacheSurvivesRouteRefresh() {
+		assertEquals("MISS", get(factory.apply(config()), "/app/publicacion/1"));
+		assertEquals("HIT", get(factory.apply(config()), "/app/publicacion/1"));
+		assertEquals(1, upstreamCalls.get());
+	}
+
+	@Test
+	void mutationInvalidatesOnlyRelatedPaths() {
+		GatewayFilter filter = factory.apply(config());
+		get(filter, "/app/publicacion");
+		get(filter, "/app/publicacion/1?expand=autor");
+		get(filter, "/app/publicacion/2");
+
+		put(filter, "/app/publicacion/1");
+
+		assertEquals("MISS", get(filter, "/app/publicacion"));
+		assertEquals("MISS", get(filter, "/app/publicacion/1?expand=autor"));
+		assertEquals("HIT", get(filter, "/app/publicacion/2"));
+	}
+
+	@Test
+	void relatedPathsRespectSegmentBoundaries() {
+		assertTrue(ResponseCacheFilter.related("/app/publicacion", "/app/publicacion/1"));
+		assertTrue(ResponseCacheFilter.related("/app/publicacion/1/comentarios", "/app/publicacion/1"));
+		assertFalse(ResponseCacheFilter.related("/app/publicacion/10", "/app/publicacion/1"));
+	}
+
+	@Test
+	void publicationWritesInvalidateTheCachedPublicationAndListing() throws IOException {
+		GatewayFilter filter = routeFilter("app-module");
+		List<String> writes = List.of(
+				"PUT /app/publicacion/change/description/1",
+				"PUT /app/publicacion/comment/post/1?comentario=hola",
+				"PUT /app/publicacion/add/like?publicacionId=1",
+				"PUT /app/publicacion/quit/like?publicacionId=1",
+				"DELETE /app/publicacion/1");
+
+		for (String write : writes) {
+			get(filter, "/app/publicacion/obtener/1");
+			get(filter, "/app/publicacion/obtener/2");
+			get(filter, "/app/publicacion/obtener/all");
+
+			String[] request = write.split(" ");
+			send(filter, HttpMethod.valueOf(request[0]), request[1]);
+
+			assertEquals("MISS", get(filter, "/app/publicacion/obtener/1"), write);
+			assertEquals("HIT", get(filter, "/app/publicacion/obtener/2"), write);
+			assertEquals("MISS", get(filter, "/app/publicacion/obtener/all"), write);
+		}
+	}
+
+	@Test
+	void userChangesInvalidateTheCachedProfile() throws IOException {
+		GatewayFilter filter = routeFilter("auth");
+		for (String write : List.of("POST /auth/user/uid-1/disable", "POST /auth/user/uid-1/enable", "DELETE /auth/user/uid-1")) {
+			get(filter, "/auth/profile/uid-1");
+			get(filter, "/auth/profile/uid-2");
+
+			String[] request = write.split(" ");
+			send(filter, HttpMethod.valueOf(request[0]), request[1]);
+
+			assertEquals("MISS", get(filter, "/auth/profile/uid-1"), write);
+			assertEquals("HIT", get(filter, "/auth/profile/uid-2"), write);
+		}
+	}
+
+	@Test
+	void chunkedBodyOverTheLimitIsForwardedWithoutCaching() {
+		ResponseCacheFilter.Config config = config();
+		config.setMaxEntryBytes(1024);
+		GatewayFilter filter = factory.apply(config);
+		GatewayFilterChain chunked = exchange -> Mono.defer(() -> {
+			upstreamCalls.incrementAndGet();
+			exchange.getResponse().setStatusCode(HttpStatus.OK);
+			return exchange.getResponse().writeWith(Flux.range(0, 4)
+					.map(i -> exchange.getResponse().bufferFactory().wrap(new byte[512])));
+		});
+
+		for (int i = 0; i < 2; i++) {
+			MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/app/publicacion/1"));
+			filter.filter(exchange, chunked).block();
+			assertEquals(2048, exchange.getResponse().getBodyAsString().block().length());
+			assertFalse(exchange.getResponse().getHeaders().containsKey("X-Cache"));
+		}
+		assertEquals(2, upstreamCalls.get());
+	}
+}
@@ -0,0 +1,55 @@
+package com.compuinside.gateway.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void allowsBurstUpToCapacityThenRejects() {
+		long now = 0;
+		TokenBucket bucket = new TokenBucket(5, 1, now);
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, bucket.tryAcquire(now));
+		}
+		long wait = bucket.tryAcquire(now);
+		assertEquals(SECOND, wait);
+	}
+
+	@Test
+	void refillsLazilyAtConfiguredRate() {
+		long now = 0;
+		TokenBucket bucket = new TokenBucket(2, 2, now);
+		assertEquals(0, bucket.tryAcquire(now));
+		assertEquals(0, bucket.tryAcquire(now));
+		assertTrue(bucket.tryAcquire(now) > 0);
+
+		now += SECOND / 2;
+		assertEquals(0, bucket.tryAcquire(now));
+		assertTrue(bucket.tryAcquire(now) > 0);
+
+		// Tras mucho tiempo sin uso el bucket sólo vuelve a su capacidad
+		now += 60 * SECOND;
+		assertEquals(0, bucket.tryAcquire(now));
+		assertEquals(0, bucket.tryAcquire(now));
+		assertTrue(bucket.tryAcquire(now) > 0);
+	}
+
+	@Test
+	void rejectedAttemptsDoNotConsumeTokens() {
+		long now = 0;
+		TokenBucket bucket = new TokenBucket(1, 1, now);
+		assertEquals(0, bucket.tryAcquire(now));
+		for (int i = 0; i < 10; i++) {
+			assertTrue(bucket.tryAcquire(now) > 0);
+		}
+		assertEquals(0, bucket.tryAcquire(now + SECOND));
+	}
+}
@@ -0,0 +1,74 @@
+package com.compuinside.gateway.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InternalTokenIssuerTests {
+
+	private static final String SECRET = "pNr/yw7qzLACP3mgSaquuQr1vr85/q9AR1i4o0hiw1Q=";
+
+	private final InternalTokenIssuer issuer = new InternalTokenIssuer("v1", SECRET, Duration.ofSeconds(60), 100);
+
+	private static FirebasePrincipal principal(long expiresAt) {
+		return FirebasePrincipal.builder()
+				.uid("uid-123")
+				.role("USER")
+				.accountId("acc-9")
+				.email("ana@example.com")
+				.name("Ana Pérez")
+				.expiresAt(expiresAt)
+				.build();
+	}
+
+	@Test
+	void signsPayloadWithSharedSecret() throws Exception {
+		long now = System.currentTimeMillis();
+		String token = issuer.issue(principal(now + 3_600_000));
+
+		String[] parts = token.split("\\.");
+		assertEquals(3, parts.length);
+		assertEquals("v1", parts[0]);
+
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(Base64.getDecoder().decode(SECRET), "HmacSHA256"));
+		byte[] expected = mac.doFinal((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+		assertArrayEquals(expected, Base64.getUrlDecoder().decode(parts[2]));
+
+		String[] fields = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8).split("\u001F");
+		assertEquals("uid-123", fields[0]);
+		assertEquals("Ana Pérez", fields[4]);
+		long exp = Long.parseLong(fields[5]);
+		assertTrue(exp >= now / 1000 + 59 && exp <= now / 1000 + 61);
+	}
+
+	@Test
+	void reusesTokenPerPrincipalAndNeverOutlivesFirebaseToken() {
+		long now = System.currentTimeMillis();
+		String first = issuer.issue(principal(now + 3_600_000));
+		assertSame(first, issuer.issue(principal(now + 3_600_000)));
+
+		InternalTokenIssuer fresh = new InternalTokenIssuer("v1", SECRET, Duration.ofSeconds(60), 100);
+		String shortLived = fresh.issue(principal(now + 10_000));
+		String payload = new String(Base64.getUrlDecoder().decode(shortLived.split("\\.")[1]), StandardCharsets.UTF_8);
+		assertEquals(String.valueOf((now + 10_000) / 1000), payload.substring(payload.lastIndexOf('\u001F') + 1));
+	}
+
+	@Test
+	void refusesMissingOrShortSecret() {
+		assertThrows(IllegalStateException.class, () -> new InternalTokenIssuer("v1", "", Duration.ofSeconds(60), 100));
+		// 16 bytes
+		assertThrows(IllegalStateException.class,
+				() -> new InternalTokenIssuer("v1", "c2VjcmV0by1kZS0xNmJ5dA==", Duration.ofSeconds(60), 100));
+	}
+}
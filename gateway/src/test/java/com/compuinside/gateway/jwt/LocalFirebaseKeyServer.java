@@ -0,0 +1,115 @@
+package com.compuinside.gateway.jwt;
+
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Sustituto local del endpoint JWK de Google: publica claves RSA generadas en
+ * memoria, permite rotarlas y firma ID tokens "de Firebase" con ellas, para
+ * probar el verificador sin red.
+ */
+public class LocalFirebaseKeyServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, KeyPair> published = new LinkedHashMap<>();
+    private volatile long maxAgeSeconds = 3600;
+
+    public LocalFirebaseKeyServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/jwk", exchange -> {
+            byte[] body = jwks().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Cache-Control", "public, max-age=" + maxAgeSeconds);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/jwk";
+    }
+
+    /** Genera una clave nueva, la publica y devuelve su kid. */
+    public synchronized String addKey() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            String kid = UUID.randomUUID().toString();
+            published.put(kid, generator.generateKeyPair());
+            return kid;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Publica una clave nueva y retira todas las anteriores. */
+    public synchronized String rotate() {
+        Map<String, KeyPair> previous = new LinkedHashMap<>(published);
+        String kid = addKey();
+        previous.keySet().forEach(published::remove);
+        return kid;
+    }
+
+    public void setMaxAge(Duration maxAge) {
+        this.maxAgeSeconds = maxAge.toSeconds();
+    }
+
+    public String mint(String kid, String projectId, String uid, Map<String, Object> claims, Duration ttl) {
+        KeyPair keyPair;
+        synchronized (this) {
+            keyPair = published.get(kid);
+        }
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .setHeaderParam("kid", kid)
+                .setIssuer("https://securetoken.google.com/" + projectId)
+                .setAudience(projectId)
+                .setSubject(uid)
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(ttl)))
+                .addClaims(claims)
+                .signWith(keyPair.getPrivate(), SignatureAlgorithm.RS256)
+                .compact();
+    }
+
+    private synchronized String jwks() {
+        return published.entrySet().stream()
+                .map(entry -> {
+                    RSAPublicKey key = (RSAPublicKey) entry.getValue().getPublic();
+                    return "{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"" + entry.getKey()
+                            + "\",\"n\":\"" + base64Url(key.getModulus().toByteArray())
+                            + "\",\"e\":\"" + base64Url(key.getPublicExponent().toByteArray()) + "\"}";
+                })
+                .collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,84 @@
+package com.compuinside.gateway.jwt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalFirebaseTokenVerifierTests {
+
+	private static final String PROJECT_ID = "proyecto-cparalela";
+
+	private LocalFirebaseKeyServer keyServer;
+	private FirebaseKeyStore keyStore;
+	private LocalFirebaseTokenVerifier verifier;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		keyServer = new LocalFirebaseKeyServer();
+		keyStore = new FirebaseKeyStore(keyServer.url(), Duration.ZERO, Duration.ofSeconds(30));
+		verifier = new LocalFirebaseTokenVerifier(keyStore, PROJECT_ID, Duration.ofSeconds(30));
+	}
+
+	@AfterEach
+	void tearDown() {
+		keyStore.destroy();
+		keyServer.close();
+	}
+
+	@Test
+	void verifiesTokenSignedWithPublishedKey() throws Exception {
+		String kid = keyServer.addKey();
+		keyStore.refresh();
+
+		String token = keyServer.mint(kid, PROJECT_ID, "uid-1",
+				Map.of("email", "a@ups.edu.ec", "role", "ADMIN", "accountId", "acc-1"), Duration.ofHours(1));
+		FirebasePrincipal principal = verifier.verify(token);
+
+		assertEquals("uid-1", principal.getUid());
+		assertEquals("a@ups.edu.ec", principal.getEmail());
+		assertEquals("ADMIN", principal.getRole());
+		assertEquals("acc-1", principal.getAccountId());
+	}
+
+	@Test
+	void followsKeyRotation() throws Exception {
+		String oldKid = keyServer.addKey();
+		keyStore.refresh();
+		String oldToken = keyServer.mint(oldKid, PROJECT_ID, "uid-1", Map.of(), Duration.ofHours(1));
+
+		String newKid = keyServer.rotate();
+		String newToken = keyServer.mint(newKid, PROJECT_ID, "uid-1", Map.of(), Duration.ofHours(1));
+		assertThrows(LocalFirebaseTokenVerifier.UnknownKeyException.class, () -> verifier.verify(newToken));
+
+		keyStore.refresh();
+		assertEquals("uid-1", verifier.verify(newToken).getUid());
+		assertThrows(LocalFirebaseTokenVerifier.UnknownKeyException.class, () -> verifier.verify(oldToken));
+	}
+
+	@Test
+	void reportsServerMaxAge() throws Exception {
+		keyServer.addKey();
+		keyServer.setMaxAge(Duration.ofMinutes(90));
+
+		assertEquals(Duration.ofMinutes(90), keyStore.refresh());
+		assertEquals(1, keyStore.size());
+	}
+
+	@Test
+	void rejectsOtherProjectAndExpiredTokens() throws Exception {
+		String kid = keyServer.addKey();
+		keyStore.refresh();
+
+		String otherProject = keyServer.mint(kid, "otro-proyecto", "uid-1", Map.of(), Duration.ofHours(1));
+		String expired = keyServer.mint(kid, PROJECT_ID, "uid-1", Map.of(), Duration.ofMinutes(-5));
+
+		assertThrows(InvalidTokenException.class, () -> verifier.verify(otherProject));
+		assertThrows(InvalidTokenException.class, () -> verifier.verify(expired));
+	}
+}
@@ -0,0 +1,89 @@
+package com.compuinside.gateway.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteTrieTests {
+
+	private static RouteRule rule(String path) {
+		return new RouteRule(path);
+	}
+
+	private static RouteRule open(String path) {
+		RouteRule rule = new RouteRule(path);
+		rule.setOpen(true);
+		return rule;
+	}
+
+	@Test
+	void catchAllMatchesPrefixAndEverythingBelow() {
+		RouteRule login = open("/auth/login/**");
+		RouteTrie trie = RouteTrie.compile(List.of(login));
+
+		assertSame(login, trie.match("/auth/login"));
+		assertSame(login, trie.match("/auth/login/google"));
+		assertSame(RouteRule.AUTHENTICATED, trie.match("/auth/loginx"));
+		assertSame(RouteRule.AUTHENTICATED, trie.match("/auth"));
+	}
+
+	@Test
+	void mostSpecificRuleWins() {
+		RouteRule app = rule("/app/**");
+		RouteRule anyPost = rule("/app/publicacion/*");
+		RouteRule delete = rule("/app/publicacion/*/delete");
+		RouteRule feed = rule("/app/publicacion/feed");
+		RouteTrie trie = RouteTrie.compile(List.of(app, anyPost, delete, feed));
+
+		assertSame(feed, trie.match("/app/publicacion/feed"));
+		assertSame(anyPost, trie.match("/app/publicacion/42"));
+		assertSame(delete, trie.match("/app/publicacion/42/delete"));
+		assertSame(app, trie.match("/app/publicacion/42/like"));
+		assertSame(app, trie.match("/app"));
+	}
+
+	@Test
+	void backtracksFromLiteralToWildcard() {
+		RouteRule literal = rule("/svc/items/list");
+		RouteRule wildcard = rule("/svc/*/detail");
+		RouteTrie trie = RouteTrie.compile(List.of(literal, wildcard));
+
+		assertSame(wildcard, trie.match("/svc/items/detail"));
+		assertSame(literal, trie.match("/svc/items/list/"));
+	}
+
+	@Test
+	void distinguishesSegmentsWithSameHash() {
+		// "Aa" y "BB" tienen el mismo String.hashCode()
+		RouteRule aa = rule("/Aa");
+		RouteRule bb = rule("/BB");
+		RouteTrie trie = RouteTrie.compile(List.of(aa, bb));
+
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		assertSame(aa, trie.match("/Aa"));
+		assertSame(bb, trie.match("/BB"));
+	}
+
+	@Test
+	void rolesAndModulesDefaultToAny() {
+		RouteRule admin = rule("/admin/**");
+		admin.setRoles(Set.of("ADMIN"));
+
+		assertTrue(admin.allowsRole("ADMIN"));
+		assertTrue(!admin.allowsRole("USER"));
+		assertTrue(admin.allowsModule("CUALQUIERA"));
+	}
+
+	@Test
+	void rejectsInvalidPatterns() {
+		assertThrows(IllegalArgumentException.class, () -> RouteTrie.compile(List.of(rule("/a/**/b"))));
+		assertThrows(IllegalArgumentException.class, () -> RouteTrie.compile(List.of(rule("/a"), rule("/a/"))));
+		assertThrows(IllegalArgumentException.class, () -> RouteTrie.compile(List.of(rule("sin-barra"))));
+	}
+}
@@ -0,0 +1,105 @@
+package com.compuinside.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutlierDetectorTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final long[] now = new long[1];
+	private final OutlierDetector detector = new OutlierDetector(5, 20, 50, Duration.ofSeconds(10),
+			Duration.ofMinutes(5), 50, new SimpleMeterRegistry(), () -> now[0]);
+	private final ServiceInstance a = new DefaultServiceInstance("auth-a", "auth", "10.0.0.1", 8080, false);
+	private final ServiceInstance b = new DefaultServiceInstance("auth-b", "auth", "10.0.0.2", 8080, false);
+
+	private void request(ServiceInstance instance, boolean failed) {
+		Request<RequestDataContext> request = new DefaultRequest<>(new RequestDataContext());
+		Response<ServiceInstance> response = new DefaultResponse(instance);
+		detector.onStartRequest(request, response);
+		ResponseData data = new ResponseData(failed ? HttpStatus.BAD_GATEWAY : HttpStatus.OK, new HttpHeaders(), null, null);
+		detector.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, response, data));
+	}
+
+	@Test
+	void ejectsAfterConsecutiveFailuresAndRecoversThroughProbe() {
+		for (int i = 0; i < 4; i++) {
+			request(a, true);
+		}
+		assertTrue(detector.isAvailable(a));
+		request(a, true);
+		assertFalse(detector.isAvailable(a));
+
+		now[0] += 10 * SECOND;
+		assertTrue(detector.isAvailable(a));
+
+		// La prueba falla: el doble de tiempo fuera
+		request(a, true);
+		now[0] += 10 * SECOND;
+		assertFalse(detector.isAvailable(a));
+		now[0] += 10 * SECOND;
+		assertTrue(detector.isAvailable(a));
+
+		request(a, false);
+		assertTrue(detector.isAvailable(a));
+		request(a, true);
+		assertTrue(detector.isAvailable(a));
+	}
+
+	@Test
+	void onlyOneProbeAtATime() {
+		for (int i = 0; i < 5; i++) {
+			request(a, true);
+		}
+		now[0] += 10 * SECOND;
+		detector.onStartRequest(new DefaultRequest<>(new RequestDataContext()), new DefaultResponse(a));
+		assertFalse(detector.isAvailable(a));
+		detector.onCancel(a);
+		assertTrue(detector.isAvailable(a));
+	}
+
+	@Test
+	void ejectsOnFailureRateWithoutConsecutiveFailures() {
+		for (int i = 0; i < 19; i++) {
+			request(a, i % 3 != 2);
+		}
+		assertTrue(detector.isAvailable(a));
+		request(a, true);
+		assertFalse(detector.isAvailable(a));
+	}
+
+	@Test
+	void keepsFullListWhenTooManyInstancesAreEjected() {
+		OutlierEjectingServiceInstanceListSupplier supplier = new OutlierEjectingServiceInstanceListSupplier(
+				ServiceInstanceListSuppliers.from("auth", a, b), detector);
+		for (int i = 0; i < 5; i++) {
+			request(a, true);
+		}
+		assertEquals(List.of(b), supplier.get().blockFirst());
+
+		for (int i = 0; i < 5; i++) {
+			request(b, true);
+		}
+		assertEquals(List.of(a, b), supplier.get().blockFirst());
+	}
+}
@@ -0,0 +1,111 @@
+package com.compuinside.gateway.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Simulación en tiempo virtual: 5 instancias de app-module que atienden 8
+ * peticiones a la vez (el resto se encola), una de ellas atascada a 400 ms.
+ */
+class PeakEwmaLoadBalancerTests {
+
+	private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final int REQUESTS = 20_000;
+
+	private final ServiceInstance[] instances = new ServiceInstance[5];
+	private final long[] now = new long[1];
+
+	PeakEwmaLoadBalancerTests() {
+		for (int i = 0; i < instances.length; i++) {
+			instances[i] = new DefaultServiceInstance("app-module-" + i, "app-module", "10.0.0." + i, 8080, false);
+		}
+	}
+
+	private long serviceTime(int instance) {
+		return instance == 0 ? 400 * MILLIS : 10 * MILLIS;
+	}
+
+	private InstanceLoadStats newStats() {
+		now[0] = 0;
+		return new InstanceLoadStats(Duration.ofSeconds(10), Duration.ofSeconds(2), () -> now[0]);
+	}
+
+	/** @return p99 de latencia en ms con una llegada por milisegundo */
+	private long simulate(ReactorServiceInstanceLoadBalancer loadBalancer, InstanceLoadStats stats) {
+		record Completion(long at, Request<RequestDataContext> request, Response<ServiceInstance> response, int instance) {
+		}
+		Map<ServiceInstance, Integer> index = new HashMap<>();
+		for (int i = 0; i < instances.length; i++) {
+			index.put(instances[i], i);
+		}
+		int[] outstanding = new int[instances.length];
+		long[] latencies = new long[REQUESTS];
+		PriorityQueue<Completion> pending = new PriorityQueue<>((a, b) -> Long.compare(a.at(), b.at()));
+		ResponseData ok = new ResponseData(HttpStatus.OK, new HttpHeaders(), null, null);
+
+		for (int i = 0; i < REQUESTS; i++) {
+			long arrival = i * MILLIS;
+			while (!pending.isEmpty() && pending.peek().at() <= arrival) {
+				Completion done = pending.poll();
+				now[0] = done.at();
+				outstanding[done.instance()]--;
+				stats.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, done.request(), done.response(), ok));
+			}
+			now[0] = arrival;
+
+			Request<RequestDataContext> request = new DefaultRequest<>(new RequestDataContext());
+			Response<ServiceInstance> response = loadBalancer.choose(request).block();
+			int chosen = index.get(response.getServer());
+			stats.onStartRequest(request, response);
+
+			long latency = (long) (serviceTime(chosen) * Math.max(1.0, (outstanding[chosen] + 1) / 8.0));
+			outstanding[chosen]++;
+			latencies[i] = latency;
+			pending.add(new Completion(arrival + latency, request, response, chosen));
+		}
+		Arrays.sort(latencies);
+		return latencies[(int) (REQUESTS * 0.99)] / MILLIS;
+	}
+
+	@Test
+	void avoidsStuckInstanceUnlikeRoundRobin() {
+		long roundRobin = simulate(new RoundRobinLoadBalancer(
+				ServiceInstanceListSuppliers.toProvider("app-module", instances), "app-module"), newStats());
+		InstanceLoadStats stats = newStats();
+		long peakEwma = simulate(new PeakEwmaLoadBalancer(
+				ServiceInstanceListSuppliers.toProvider("app-module", instances), "app-module", stats), stats);
+
+		assertTrue(roundRobin >= 400, "p99 round robin " + roundRobin + " ms");
+		assertTrue(peakEwma <= 20, "p99 P2C " + peakEwma + " ms (round robin " + roundRobin + " ms)");
+	}
+
+	@Test
+	void singleInstanceIsAlwaysChosen() {
+		PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(
+				ServiceInstanceListSuppliers.toProvider("auth", instances[1]), "auth", newStats());
+		Response<ServiceInstance> response = loadBalancer.choose(new DefaultRequest<>(new RequestDataContext())).block();
+		assertEquals(instances[1], response.getServer());
+	}
+}
@@ -0,0 +1,138 @@
+package com.compuinside.gateway.metering;
+
+import com.compuinside.gateway.dto.AccountUsageReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccountMeterTests {
+
+	private final RecordingSink sink = new RecordingSink();
+	private final AccountMeter meter = new AccountMeter(sink, Duration.ofHours(1), 2, new SimpleMeterRegistry());
+
+	@Test
+	void publishesDeltaPerAccountSinceLastFlush() throws Exception {
+		meter.record("acc-1", "PREMIUM", 100, false);
+		meter.record("acc-1", "PREMIUM", -1, true);
+		meter.record("acc-2", "", 0, false);
+
+		List<AccountUsageReport> first = sorted(meter.flush());
+		assertEquals(2, first.size());
+		assertReport(first.get(0), "acc-1", "PREMIUM", 2, 100, 1);
+		assertReport(first.get(1), "acc-2", "UNKNOWN", 1, 0, 0);
+
+		meter.record("acc-1", "PREMIUM", 50, false);
+		List<AccountUsageReport> second = meter.flush();
+		assertEquals(1, second.size());
+		assertReport(second.get(0), "acc-1", "PREMIUM", 1, 50, 0);
+		assertEquals(first.get(0).getWindowEnd(), second.get(0).getWindowStart());
+	}
+
+	@Test
+	void failedPublishIsRetriedWithTheNextWindow() throws Exception {
+		meter.record("acc-1", "BASIC", 10, false);
+		sink.failNext = true;
+		assertThrows(IOException.class, meter::flush);
+
+		meter.record("acc-1", "BASIC", 5, false);
+		List<AccountUsageReport> reports = meter.flush();
+		assertEquals(1, reports.size());
+		assertReport(reports.get(0), "acc-1", "BASIC", 2, 15, 0);
+	}
+
+	@Test
+	void evictsIdleAccountsWithoutLosingCounts() throws Exception {
+		meter.record("acc-1", "BASIC", 0, false);
+		meter.flush();
+		meter.flush();
+		meter.flush();
+		assertEquals(0, meter.trackedAccounts());
+
+		meter.record("acc-1", "BASIC", 0, false);
+		assertReport(meter.flush().get(0), "acc-1", "BASIC", 1, 0, 0);
+	}
+
+	@Test
+	void countsEveryRequestUnderConcurrency() throws Exception {
+		AccountMeter meter = new AccountMeter(sink, Duration.ofHours(1), Integer.MAX_VALUE, new SimpleMeterRegistry());
+		assertNothingLost(meter, i -> "acc-" + (i & 7));
+	}
+
+	@Test
+	void countsEveryRequestWhileEvictingAccounts() throws Exception {
+		// Cada cuenta recibe tráfico a rachas y se retira en cuanto pasa un volcado sin actividad
+		AccountMeter meter = new AccountMeter(sink, Duration.ofHours(1), 1, new SimpleMeterRegistry());
+		assertNothingLost(meter, i -> "acc-" + (i / 500 & 15));
+	}
+
+	/** Volcados cada milisegundo mientras se cuenta: ninguna petición puede perderse ni repetirse. */
+	private void assertNothingLost(AccountMeter meter, IntFunction<String> account) throws Exception {
+		int threads = 4;
+		int perThread = 50_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch done = new CountDownLatch(threads);
+		long published = 0;
+		try {
+			for (int t = 0; t < threads; t++) {
+				executor.execute(() -> {
+					for (int i = 0; i < perThread; i++) {
+						meter.record(account.apply(i), "STANDARD", 1, false);
+					}
+					done.countDown();
+				});
+			}
+			while (!done.await(1, TimeUnit.MILLISECONDS)) {
+				published += meter.flush().stream().mapToLong(AccountUsageReport::getRequests).sum();
+			}
+			published += meter.flush().stream().mapToLong(AccountUsageReport::getRequests).sum();
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals((long) threads * perThread, published);
+		assertEquals((long) threads * perThread,
+				sink.published.stream().mapToLong(AccountUsageReport::getUploadedBytes).sum());
+	}
+
+	private static List<AccountUsageReport> sorted(List<AccountUsageReport> reports) {
+		List<AccountUsageReport> copy = new ArrayList<>(reports);
+		copy.sort(Comparator.comparing(AccountUsageReport::getAccountId));
+		return copy;
+	}
+
+	private static void assertReport(AccountUsageReport report, String accountId, String plan,
+									 long requests, long uploadedBytes, long filterInvocations) {
+		assertEquals(accountId, report.getAccountId());
+		assertEquals(plan, report.getPlan());
+		assertEquals(requests, report.getRequests());
+		assertEquals(uploadedBytes, report.getUploadedBytes());
+		assertEquals(filterInvocations, report.getFilterInvocations());
+	}
+
+	private static class RecordingSink implements UsageSink {
+
+		private final List<AccountUsageReport> published = new ArrayList<>();
+		private boolean failNext;
+
+		@Override
+		public void publish(List<AccountUsageReport> reports) throws IOException {
+			if (failNext) {
+				failNext = false;
+				throw new IOException("sink caído");
+			}
+			published.addAll(reports);
+		}
+	}
+}